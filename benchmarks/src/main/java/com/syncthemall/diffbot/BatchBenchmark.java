@@ -0,0 +1,165 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.syncthemall.diffbot.exception.DiffbotException;
+import com.syncthemall.diffbot.jfr.FlightRecorderEvents;
+import com.syncthemall.diffbot.model.Model;
+import com.syncthemall.diffbot.model.article.Article;
+import com.syncthemall.diffbot.model.batch.BatchResponse;
+import com.syncthemall.diffbot.test.OfflineTest;
+
+/**
+ * Building of the batch calls and dispatch of their responses to the {@code Future}s, for batches of 1 to 50 article
+ * requests. In the package of {@link DiffbotRequest} to call its package-private batch methods.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchBenchmark {
+
+	private static final String URL = "http://www.example.com/articles/%d";
+
+	@Param({ "1", "10", "25", "50" })
+	private int batchSize;
+
+	private Diffbot client;
+	private DiffbotRequest<Article> request;
+	private List<DiffbotRequest<Article>> requests;
+	private MockHttpTransport transport;
+
+	/**
+	 * Creates the requests of a batch and the recorded batch response answering them.
+	 * 
+	 * @throws IOException if the recorded response cannot be read
+	 * @throws JAXBException if JAXB is not in the classpath
+	 */
+	@Setup
+	public final void setUp() throws IOException, JAXBException {
+		String article = OfflineTest.fixture("article.json");
+		client = OfflineTest.mockDiffbot(article);
+		requests = new ArrayList<DiffbotRequest<Article>>();
+		List<GenericJson> responses = new ArrayList<GenericJson>();
+		for (int i = 0; i < batchSize; i++) {
+			DiffbotRequest<Article> analyze = client.article().analyze(String.format(URL, i));
+			requests.add(analyze);
+			GenericJson response = new GenericJson();
+			response.set("code", 200).set("body", article).set("relative_url", analyze.buildRelativeUrl());
+			responses.add(response);
+		}
+		request = requests.get(0);
+		final String content = new GsonFactory().toString(responses);
+		transport = new MockHttpTransport() {
+			@Override
+			public LowLevelHttpRequest buildRequest(final String method, final String url) {
+				return new MockLowLevelHttpRequest(url).setResponse(new MockLowLevelHttpResponse().setContentType(
+						"application/json; charset=UTF-8").setContent(content));
+			}
+		};
+	}
+
+	/**
+	 * The {@code Future}s of a batch and its response, new for every invocation as they are consumed.
+	 */
+	@State(Scope.Thread)
+	public static class Dispatch {
+
+		private List<Future<? extends Model>> futures;
+		private HttpResponse response;
+
+		/**
+		 * @param batch the benchmark state
+		 * @throws IOException if the response cannot be created
+		 */
+		@Setup(Level.Invocation)
+		public final void setUp(final BatchBenchmark batch) throws IOException {
+			futures = batch.newFutures();
+			response = batch.transport.createRequestFactory().buildGetRequest(new GenericUrl(Constants.BATCH_URL))
+					.execute();
+		}
+	}
+
+	private List<Future<? extends Model>> newFutures() {
+		List<Future<? extends Model>> futures = new ArrayList<Future<? extends Model>>();
+		for (DiffbotRequest<Article> analyze : requests) {
+			futures.add(new Future<Article>(analyze, client));
+		}
+		return futures;
+	}
+
+	/**
+	 * @return the encoded URL of the batch call, built from the relative URLs of the requests
+	 * @throws DiffbotException if the batch query cannot be built
+	 */
+	@Benchmark
+	public final String buildBatchRequest() throws DiffbotException {
+		return request.buildBatchRequest(newFutures()).build();
+	}
+
+	/**
+	 * @param dispatch the futures and response of the batch
+	 * @return the filled futures
+	 * @throws DiffbotException if the batch response cannot be parsed
+	 */
+	@Benchmark
+	public final List<Future<? extends Model>> parseBatchResponse(final Dispatch dispatch) throws DiffbotException {
+		BatchResponse[] responses = request.parseBatchResponse(dispatch.response, batchSize, 0L,
+				FlightRecorderEvents.NOOP);
+		request.parseBatchSubResponses(responses, dispatch.futures);
+		return dispatch.futures;
+	}
+
+}
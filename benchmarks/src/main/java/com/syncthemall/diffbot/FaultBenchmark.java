@@ -0,0 +1,183 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBException;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.api.client.json.gson.GsonFactory;
+import com.syncthemall.diffbot.exception.DiffbotBatchException;
+import com.syncthemall.diffbot.exception.DiffbotException;
+import com.syncthemall.diffbot.model.article.Article;
+import com.syncthemall.diffbot.test.FaultInjectingTransport;
+import com.syncthemall.diffbot.test.FaultInjectingTransport.Fault;
+import com.syncthemall.diffbot.test.ReplayTransport;
+
+/**
+ * Batches of article requests answered by recorded responses in which a fault is injected with a given probability.
+ * A batch failing as a whole is retried up to 3 times. The API calls, the calls wasted by a fault and the futures
+ * failed after their retries are reported as secondary results. The sample time mode reports the distribution of the
+ * latency from the queueing of a batch to the completion of all its futures. The benchmark is in the package of
+ * {@link Diffbot} so it can clear the batch queue under the queue lock.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FaultBenchmark {
+
+	private static final String URL = "http://www.example.com/articles/%d";
+	private static final int ATTEMPTS = 3;
+	private static final int TIMEOUT = 50;
+
+	@Param({ "NONE", "UNAUTHORIZED", "SERVER_ERROR", "SLOW_READ", "TRUNCATED_BODY", "SUB_RESPONSE_ERROR" })
+	private String fault;
+
+	@Param({ "0.05" })
+	private double probability;
+
+	@Param({ "10", "50" })
+	private int batchSize;
+
+	private Diffbot client;
+	private FaultInjectingTransport transport;
+
+	/**
+	 * The calls made, wasted by a fault, and the futures failed after all their retries.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Counters {
+
+		// CHECKSTYLE:OFF JMH reads the public fields of the auxiliary counters
+		public long calls;
+		public long wastedCalls;
+		public long failedFutures;
+		// CHECKSTYLE:ON
+
+		/**
+		 * Resets the counters before every iteration.
+		 */
+		@Setup(Level.Iteration)
+		public final void reset() {
+			calls = 0;
+			wastedCalls = 0;
+			failedFutures = 0;
+		}
+	}
+
+	/**
+	 * Creates the client, with a transport replaying the recorded responses and injecting the fault.
+	 * 
+	 * @throws IOException if the recorded responses cannot be read
+	 * @throws JAXBException if JAXB is not in the classpath
+	 */
+	@Setup
+	public final void setUp() throws IOException, JAXBException {
+		transport = new FaultInjectingTransport(ReplayTransport.fromFixtures(), 1);
+		if (!"NONE".equals(fault)) {
+			transport.setProbability(Fault.valueOf(fault), probability);
+		}
+		client = new Diffbot(transport, new GsonFactory(), "token");
+		client.setMaxBatchRequest(batchSize);
+		client.setBatchRequestTimeout(TIMEOUT);
+	}
+
+	/**
+	 * @param counters the counters of the calls
+	 * @return the articles of the batch that could be retrieved
+	 * @throws DiffbotException if a request cannot be queued
+	 */
+	@Benchmark
+	public final List<Article> batch(final Counters counters) throws DiffbotException {
+		int calls = transport.getCallCount();
+		int wasted = injected();
+		List<Future<Article>> futures = new ArrayList<Future<Article>>();
+		for (int i = 0; i < batchSize; i++) {
+			futures.add(client.article().analyze(String.format(URL, i)).queue());
+		}
+		List<Article> articles = new ArrayList<Article>();
+		for (Future<Article> future : futures) {
+			Article article = get(future);
+			if (article != null) {
+				articles.add(article);
+			} else {
+				counters.failedFutures++;
+			}
+		}
+		client.getQueueLock().lock();
+		try {
+			// the futures failed after their retries are still queued
+			client.getFutures().clear();
+		} finally {
+			client.getQueueLock().unlock();
+		}
+		counters.calls += transport.getCallCount() - calls;
+		counters.wastedCalls += injected() - wasted;
+		return articles;
+	}
+
+	private static Article get(final Future<Article> future) {
+		for (int attempt = 1; attempt <= ATTEMPTS; attempt++) {
+			try {
+				return future.get();
+			} catch (DiffbotBatchException e) {
+				continue;
+			} catch (DiffbotException e) {
+				return null;
+			}
+		}
+		return null;
+	}
+
+	private int injected() {
+		int injected = 0;
+		for (Fault f : Fault.values()) {
+			injected += transport.getInjectedCount(f);
+		}
+		return injected;
+	}
+
+}
@@ -0,0 +1,84 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.syncthemall.diffbot.Diffbot;
+import com.syncthemall.diffbot.model.frontpage.Frontpage;
+import com.syncthemall.diffbot.test.OfflineTest;
+
+/**
+ * Unmarshalling of a recorded Frontpage DML response, with a new {@code Unmarshaller} from the {@code JAXBContext} of
+ * the client for every response, as done by the SDK.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrontpageBenchmark {
+
+	private Diffbot client;
+	private String content;
+
+	/**
+	 * Loads the recorded response.
+	 * 
+	 * @throws IOException if the recorded response cannot be read
+	 * @throws JAXBException if JAXB is not in the classpath
+	 */
+	@Setup
+	public final void setUp() throws IOException, JAXBException {
+		content = OfflineTest.fixture("frontpage.xml");
+		client = OfflineTest.mockDiffbot(content);
+	}
+
+	/**
+	 * @return the unmarshalled {@code Frontpage}
+	 * @throws JAXBException if the response cannot be unmarshalled
+	 */
+	@Benchmark
+	public final Frontpage unmarshal() throws JAXBException {
+		return (Frontpage) client.getJAXBContext().createUnmarshaller().unmarshal(new StringReader(content));
+	}
+
+}
@@ -0,0 +1,150 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.benchmarks;
+
+import java.io.IOException;
+
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.gson.GsonFactory;
+import com.syncthemall.diffbot.codec.JsonFactoryCodec;
+import com.syncthemall.diffbot.codec.Projection;
+import com.syncthemall.diffbot.codec.StringInterner;
+import com.syncthemall.diffbot.codec.UnknownKeys;
+import com.syncthemall.diffbot.model.article.Article;
+import com.syncthemall.diffbot.test.OfflineTest;
+
+/**
+ * Retained heap per {@code Article} for each memory option of the codec. A corpus of articles is generated from the
+ * recorded article: each one has a distinct URL, title and text, and shares its site, language and author with other
+ * articles. The corpus is parsed with Gson and kept, and the heap used after a full GC is compared with the heap used
+ * before the parsing.
+ * <p>
+ * This is not a JMH benchmark, run it with
+ * {@code java -cp benchmarks.jar com.syncthemall.diffbot.benchmarks.HeapBenchmark [articles] [textLength]}. When
+ * {@code textLength} is set, the text and the HTML of each article are extended to this number of characters, with a
+ * few non Latin-1 characters.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public final class HeapBenchmark {
+
+	private static final String[] OPTIONS = { "retain", "names", "discard", "interner", "compact" };
+	private static final String[] LANGUAGES = { "en", "fr", "de", "es", "it" };
+	private static final int SITES = 20;
+	private static final int AUTHORS = 200;
+	private static final int DEFAULT_ARTICLES = 20000;
+	private static final int GC_RUNS = 5;
+	private static final long GC_PAUSE = 100;
+
+	private final JsonFactory jsonFactory = new GsonFactory();
+	private final GenericJson article;
+	private final int articles;
+	private final String text;
+	private final String html;
+
+	private HeapBenchmark(final int articles, final int textLength) throws IOException {
+		this.articles = articles;
+		this.article = jsonFactory.fromString(OfflineTest.fixture("article.json"), GenericJson.class);
+		this.text = extend((String) article.get("text"), textLength);
+		this.html = extend((String) article.get("html"), textLength);
+	}
+
+	/**
+	 * Prints the retained heap per article for each option.
+	 * 
+	 * @param args the number of articles of the corpus (20000 by default) and the length of their text and HTML (the
+	 *            length of the recorded article by default)
+	 * @throws IOException if the recorded article cannot be read
+	 * @throws InterruptedException if interrupted while waiting for the GC
+	 */
+	public static void main(final String[] args) throws IOException, InterruptedException {
+		int articles = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ARTICLES;
+		int textLength = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+		HeapBenchmark benchmark = new HeapBenchmark(articles, textLength);
+		System.out.println(String.format("%d articles, Java %s", articles, System.getProperty("java.version")));
+		for (String option : OPTIONS) {
+			System.out.println(String.format("%-10s %10d bytes per article", option, benchmark.measure(option)));
+		}
+	}
+
+	private long measure(final String option) throws IOException, InterruptedException {
+		JsonFactoryCodec codec = codec(option);
+		Article[] retained = new Article[articles];
+		long before = usedHeap();
+		for (int i = 0; i < articles; i++) {
+			retained[i] = codec.parse(json(i), Article.class, Projection.ALL);
+		}
+		long after = usedHeap();
+		if (retained[articles - 1].getUrl() == null) {
+			throw new IllegalStateException("The corpus was not parsed");
+		}
+		return (after - before) / articles;
+	}
+
+	private JsonFactoryCodec codec(final String option) {
+		JsonFactoryCodec codec = new JsonFactoryCodec(jsonFactory);
+		if ("names".equals(option)) {
+			codec.setUnknownKeys(UnknownKeys.NAMES);
+		} else if ("discard".equals(option)) {
+			codec.setUnknownKeys(UnknownKeys.DISCARD);
+		} else if ("interner".equals(option)) {
+			codec.setInterner(new StringInterner());
+		} else if ("compact".equals(option)) {
+			codec.setCompactText(true);
+		}
+		return codec;
+	}
+
+	private String json(final int index) throws IOException {
+		String site = "http://www.site" + index % SITES + ".com";
+		GenericJson copy = article.clone();
+		copy.set("url", site + "/article-" + index + ".html");
+		copy.set("resolved_url", site + "/article-" + index + ".html");
+		copy.set("icon", site + "/favicon.ico");
+		copy.set("title", "Article " + index);
+		copy.set("author", "Author " + index % AUTHORS);
+		copy.set("humanLanguage", LANGUAGES[index % LANGUAGES.length]);
+		copy.set("text", text + " " + index);
+		copy.set("html", html + "<p>" + index + "</p>");
+		return jsonFactory.toString(copy);
+	}
+
+	private static String extend(final String value, final int length) {
+		StringBuilder builder = new StringBuilder(value);
+		while (builder.length() < length) {
+			builder.append(" \u2014 ").append(value);
+		}
+		return builder.toString();
+	}
+
+	private static long usedHeap() throws InterruptedException {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < GC_RUNS; i++) {
+			System.gc();
+			Thread.sleep(GC_PAUSE);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
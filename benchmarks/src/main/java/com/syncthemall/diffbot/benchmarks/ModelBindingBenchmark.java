@@ -0,0 +1,108 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.api.client.json.gson.GsonFactory;
+import com.syncthemall.diffbot.codec.JacksonCodec;
+import com.syncthemall.diffbot.codec.JsonFactoryCodec;
+import com.syncthemall.diffbot.codec.ModelCodec;
+import com.syncthemall.diffbot.codec.Projection;
+import com.syncthemall.diffbot.model.Model;
+import com.syncthemall.diffbot.model.article.Article;
+import com.syncthemall.diffbot.model.classifier.Classified;
+import com.syncthemall.diffbot.model.images.Images;
+import com.syncthemall.diffbot.model.products.Products;
+import com.syncthemall.diffbot.test.OfflineTest;
+
+/**
+ * Binding of the recorded JSON responses of every API to their {@code Model}, as done for a direct call.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelBindingBenchmark {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	@Param({ "article", "products", "images", "classified" })
+	private String model;
+
+	@Param({ "gson", "jackson" })
+	private String codec;
+
+	private ModelCodec modelCodec;
+	private Class<? extends Model> modelClass;
+	private byte[] content;
+
+	/**
+	 * Loads the recorded response of the benchmarked API.
+	 * 
+	 * @throws IOException if the recorded response cannot be read
+	 */
+	@Setup
+	public final void setUp() throws IOException {
+		modelCodec = "jackson".equals(codec) ? new JacksonCodec() : new JsonFactoryCodec(new GsonFactory());
+		if ("article".equals(model)) {
+			modelClass = Article.class;
+		} else if ("products".equals(model)) {
+			modelClass = Products.class;
+		} else if ("images".equals(model)) {
+			modelClass = Images.class;
+		} else {
+			modelClass = Classified.class;
+		}
+		content = OfflineTest.fixture(model + ".json").getBytes(UTF8);
+	}
+
+	/**
+	 * @return the bound model
+	 * @throws IOException if the response cannot be parsed
+	 */
+	@Benchmark
+	public final Model bind() throws IOException {
+		return modelCodec.parse(new ByteArrayInputStream(content), UTF8, modelClass, Projection.ALL);
+	}
+
+}
@@ -0,0 +1,74 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Takes the batch calls to make out of the queue of the requests of a client. Independent of the {@code Future}s so
+ * the batching policies can be simulated with the same planning.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+final class BatchPlanner {
+
+	private BatchPlanner() {
+		super();
+	}
+
+	/**
+	 * Removes from {@code queue} the requests of up to {@code maxCalls} batch calls. The first call is made of
+	 * {@code initiator} and of the first requests of the queue, the next ones of the following requests, each call
+	 * having at most {@code maxBatchRequest} requests. The lock of the queue must be held by the caller.
+	 * 
+	 * @param <E> the type of the requests
+	 * @param queue the requests waiting to be sent, in the order they were queued
+	 * @param initiator the request whose result is requested, sent in the first call
+	 * @param maxBatchRequest the maximum number of requests per batch call
+	 * @param maxCalls the maximum number of batch calls to make
+	 * @return the requests of each batch call, never empty
+	 */
+	static <E> List<List<E>> plan(final List<E> queue, final E initiator, final int maxBatchRequest,
+			final int maxCalls) {
+		List<List<E>> calls = new ArrayList<List<E>>();
+		queue.remove(initiator);
+		List<E> call = new ArrayList<E>();
+		call.add(initiator);
+		take(queue, call, maxBatchRequest - 1);
+		calls.add(call);
+		while (!queue.isEmpty() && calls.size() < maxCalls) {
+			call = new ArrayList<E>();
+			take(queue, call, maxBatchRequest);
+			calls.add(call);
+		}
+		return calls;
+	}
+
+	private static <E> void take(final List<E> queue, final List<E> call, final int count) {
+		List<E> subList = queue.subList(0, Math.min(count, queue.size()));
+		call.addAll(subList);
+		subList.clear();
+	}
+
+}
@@ -0,0 +1,83 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@code InputStream} counting the bytes read, used to weigh the responses added to the
+ * {@link com.syncthemall.diffbot.cache.ResultCache}.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+final class CountingInputStream extends FilterInputStream {
+
+	private long count;
+
+	/**
+	 * @param in the stream to read
+	 */
+	CountingInputStream(final InputStream in) {
+		super(in);
+	}
+
+	/**
+	 * @return the number of bytes read
+	 */
+	long getCount() {
+		return count;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int result = super.read();
+		if (result != -1) {
+			count++;
+		}
+		return result;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		int result = super.read(b, off, len);
+		if (result != -1) {
+			count += result;
+		}
+		return result;
+	}
+
+	@Override
+	public long skip(final long n) throws IOException {
+		long result = super.skip(n);
+		count += result;
+		return result;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+}
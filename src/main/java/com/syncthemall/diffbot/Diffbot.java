@@ -36,6 +36,13 @@ import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -47,6 +54,14 @@ import com.google.api.client.http.HttpRequestInitializer;
 import com.google.api.client.http.HttpTransport;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.JsonObjectParser;
+import com.syncthemall.diffbot.cache.CacheKey;
+import com.syncthemall.diffbot.cache.DiskStore;
+import com.syncthemall.diffbot.cache.ErrorCache;
+import com.syncthemall.diffbot.cache.ResultCache;
+import com.syncthemall.diffbot.codec.JsonFactoryCodec;
+import com.syncthemall.diffbot.codec.ModelCodec;
+import com.syncthemall.diffbot.converter.UrlCanonicalizer;
+import com.syncthemall.diffbot.metrics.DiffbotMetrics;
 import com.syncthemall.diffbot.model.Model;
 import com.syncthemall.diffbot.model.PageType;
 import com.syncthemall.diffbot.model.classifier.Classified;
@@ -167,11 +182,34 @@ public class Diffbot {
 	private ResourceBundle bundle = ResourceBundle.getBundle("com.syncthemall.diffbot.messages.Messages");
 	private JAXBContext jAXBContext;
 	private JsonFactory jsonFactory;
+	private ModelCodec modelCodec;
 	private HttpRequestFactory requestFactory;
 	private List<Future<? extends Model>> futures = new ArrayList<Future<? extends Model>>();
 	private int maxBatchRequest = 25;
 	private int batchRequestTimeout = 300000;
 	private int concurrentBatchRequest = 1;
+	private boolean fieldsProjection = false;
+	private volatile ResultCache resultCache;
+	private volatile DiskStore diskStore;
+	private volatile ErrorCache errorCache;
+	private volatile UrlCanonicalizer urlCanonicalizer;
+	private volatile DiffbotMetrics metrics;
+	private volatile String baseUrl;
+	private final ConcurrentMap<CacheKey, Future<? extends Model>> refreshes =
+			new ConcurrentHashMap<CacheKey, Future<? extends Model>>();
+	private final ConcurrentMap<String, DiffbotRequest.InFlightCall> inFlightCalls =
+			new ConcurrentHashMap<String, DiffbotRequest.InFlightCall>();
+	private final Lock batchLock = new ReentrantLock();
+	private final Lock queueLock = new ReentrantLock();
+	private volatile ExecutorService batchExecutor;
+	private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			Thread thread = new Thread(runnable, "diffbot-refresh");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
 
 	/**
 	 * Constructor allowing to set the Diffbot developer token and the underlying implementations for the HTTP client
@@ -207,6 +245,7 @@ public class Diffbot {
 			throw new IllegalArgumentException(bundle.getString("jsonfactory.null"));
 		}
 		this.jsonFactory = jsonFactory;
+		this.modelCodec = new JsonFactoryCodec(jsonFactory);
 		jAXBContext = JAXBContext.newInstance(com.syncthemall.diffbot.model.frontpage.Frontpage.class);
 		this.requestFactory = httpTransport.createRequestFactory(new HttpRequestInitializer() {
 			@Override
@@ -237,6 +276,27 @@ public class Diffbot {
 		return jsonFactory;
 	}
 
+	/**
+	 * @return the {@code ModelCodec} used to parse the Diffbot API responses.
+	 **/
+	public final ModelCodec getModelCodec() {
+		return modelCodec;
+	}
+
+	/**
+	 * Sets the {@code ModelCodec} used to parse the Article, Image, Product and Classifier API responses, the batch API
+	 * sub-responses and the API errors. By default a {@link JsonFactoryCodec} based on the {@code JsonFactory} passed
+	 * to the constructor is used.
+	 * 
+	 * @param modelCodec an implementation of {@code ModelCodec}
+	 */
+	public final void setModelCodec(final ModelCodec modelCodec) {
+		if (modelCodec == null) {
+			throw new IllegalArgumentException(bundle.getString("modelcodec.null"));
+		}
+		this.modelCodec = modelCodec;
+	}
+
 	/**
 	 * @return the HTTP Request Factory.
 	 **/
@@ -251,6 +311,60 @@ public class Diffbot {
 		return futures;
 	}
 
+	/**
+	 * @return the lock held by {@link Future#get()} while the batch calls of its request are made
+	 */
+	final Lock getBatchLock() {
+		return batchLock;
+	}
+
+	/**
+	 * @return the lock guarding the batch queue returned by {@link #getFutures()}
+	 */
+	final Lock getQueueLock() {
+		return queueLock;
+	}
+
+	/**
+	 * @return the executor of the concurrent batch calls, or {@code null} to use a new thread for each call
+	 */
+	final ExecutorService getBatchExecutor() {
+		return batchExecutor;
+	}
+
+	/**
+	 * @return the {@code Future} of the refreshes of stale cached results in progress, by key
+	 */
+	final ConcurrentMap<CacheKey, Future<? extends Model>> getRefreshes() {
+		return refreshes;
+	}
+
+	/**
+	 * @return the calls made by {@link DiffbotRequest#execute()} in progress, by API type and relative URL
+	 */
+	final ConcurrentMap<String, DiffbotRequest.InFlightCall> getInFlightCalls() {
+		return inFlightCalls;
+	}
+
+	/**
+	 * @return the executor running the batch requests that refresh the stale cached results, on daemon threads
+	 */
+	final ExecutorService getRefreshExecutor() {
+		return refreshExecutor;
+	}
+
+	/**
+	 * @param uri the URI of a Diffbot API
+	 * @return {@code uri}, or its path on the base URL of this client if it has one
+	 */
+	final String resolve(final String uri) {
+		String base = baseUrl;
+		if (base == null) {
+			return uri;
+		}
+		return base + uri.substring(uri.indexOf('/', uri.indexOf("//") + 2));
+	}
+
 	/**
 	 * An accessor for creating requests from the {@link Frontpage} collection.
 	 * 
@@ -303,7 +417,7 @@ public class Diffbot {
 			 * @param url URL to extract the {@link Frontpage} from.
 			 */
 			protected Analyze(final String url) {
-				super(Diffbot.this, com.syncthemall.diffbot.model.frontpage.Frontpage.class, FRONTPAGE_URI);
+				super(Diffbot.this, com.syncthemall.diffbot.model.frontpage.Frontpage.class, resolve(FRONTPAGE_URI));
 				set(URL,
 						com.google.api.client.util.Preconditions.checkNotNull(url,
 								MessageFormat.format(bundle.getString("required.parameter.null"), URL)));
@@ -369,7 +483,7 @@ public class Diffbot {
 			 * @param url URL to extract the {@link Article} from.
 			 */
 			protected Analyze(final String url) {
-				super(Diffbot.this, com.syncthemall.diffbot.model.article.Article.class, ARTICLE_URI);
+				super(Diffbot.this, com.syncthemall.diffbot.model.article.Article.class, resolve(ARTICLE_URI));
 				set(URL,
 						com.google.api.client.util.Preconditions.checkNotNull(url,
 								MessageFormat.format(bundle.getString("required.parameter.null"), URL)));
@@ -467,7 +581,7 @@ public class Diffbot {
 			 * @param url URL to extract the {@link Images} from.
 			 */
 			protected Analyze(final String url) {
-				super(Diffbot.this, com.syncthemall.diffbot.model.images.Images.class, IMAGE_URI);
+				super(Diffbot.this, com.syncthemall.diffbot.model.images.Images.class, resolve(IMAGE_URI));
 				set(URL,
 						com.google.api.client.util.Preconditions.checkNotNull(url,
 								MessageFormat.format(bundle.getString("required.parameter.null"), URL)));
@@ -565,7 +679,7 @@ public class Diffbot {
 			 * @param url URL to extract the {@link Products} from.
 			 */
 			protected Analyze(final String url) {
-				super(Diffbot.this, com.syncthemall.diffbot.model.products.Products.class, PRODUCT_URI);
+				super(Diffbot.this, com.syncthemall.diffbot.model.products.Products.class, resolve(PRODUCT_URI));
 				set(URL,
 						com.google.api.client.util.Preconditions.checkNotNull(url,
 								MessageFormat.format(bundle.getString("required.parameter.null"), URL)));
@@ -663,7 +777,7 @@ public class Diffbot {
 			 * @param url URL to extract the {@link Products} from.
 			 */
 			protected Analyze(final String url) {
-				super(Diffbot.this, com.syncthemall.diffbot.model.classifier.Classified.class, CLASSIFIER_URI);
+				super(Diffbot.this, com.syncthemall.diffbot.model.classifier.Classified.class, resolve(CLASSIFIER_URI));
 				set(URL,
 						com.google.api.client.util.Preconditions.checkNotNull(url,
 								MessageFormat.format(bundle.getString("required.parameter.null"), URL)));
@@ -789,4 +903,180 @@ public class Diffbot {
 		this.concurrentBatchRequest = concurrentBatchRequest;
 	}
 
-}
\ No newline at end of file
+	/**
+	 * @return {@code true} if the fields requested with {@code withFields} are also used to filter the responses
+	 *         while they are parsed
+	 */
+	public final boolean isFieldsProjection() {
+		return fieldsProjection;
+	}
+
+	/**
+	 * Diffbot may return keys that were not requested with the {@code withFields} method of a request (ie
+	 * {@code meta}, {@code html} or {@code querystring}). If {@code fieldsProjection} is {@code true}, the value of the
+	 * {@code fields} parameter is used as a {@link com.syncthemall.diffbot.codec.Projection} while the response is
+	 * parsed: the keys that were not requested are skipped by the parser instead of being bound to the {@code Model}.
+	 * 
+	 * @param fieldsProjection {@code true} to skip the keys not requested with {@code withFields} (default
+	 *            {@code false})
+	 */
+	public final void setFieldsProjection(final boolean fieldsProjection) {
+		this.fieldsProjection = fieldsProjection;
+	}
+
+	/**
+	 * @return the cache of the Diffbot results, or {@code null} if the results are not cached
+	 */
+	public final ResultCache getResultCache() {
+		return resultCache;
+	}
+
+	/**
+	 * Sets a cache of the Diffbot results. When a result is in the cache, {@link DiffbotRequest#execute()} returns it
+	 * without calling Diffbot and {@link DiffbotRequest#queue()} returns a {@code Future} already filled with it, that
+	 * is never part of a batch request. The results of the calls and of the batch sub-requests are added to the cache.
+	 * <p>
+	 * If the cache has a maximum staleness, an expired result is returned the same way while a request refreshing it
+	 * is queued and run in a batch on a background thread. The concurrent refreshes of the same result are done once.
+	 * 
+	 * @param resultCache the cache of the Diffbot results, or {@code null} to disable the caching (default)
+	 */
+	public final void setResultCache(final ResultCache resultCache) {
+		this.resultCache = resultCache;
+	}
+
+	/**
+	 * @return the disk tier of the Diffbot results, or {@code null} if the results are not stored on disk
+	 */
+	public final DiskStore getDiskStore() {
+		return diskStore;
+	}
+
+	/**
+	 * Sets a disk tier of the Diffbot results, consulted after the {@link ResultCache} and before calling Diffbot. The
+	 * raw bodies of the responses and of the batch sub-responses are stored in it, so the results received before a
+	 * restart are parsed from the disk instead of being requested again. The store is not closed by this client.
+	 * 
+	 * @param diskStore the disk tier of the Diffbot results, or {@code null} to disable it (default)
+	 */
+	public final void setDiskStore(final DiskStore diskStore) {
+		this.diskStore = diskStore;
+	}
+
+	/**
+	 * @return the negative cache of the Diffbot API errors, or {@code null} if the errors are not cached
+	 */
+	public final ErrorCache getErrorCache() {
+		return errorCache;
+	}
+
+	/**
+	 * Sets a negative cache of the Diffbot API errors. The {@code DiffbotAPIException} returned for a URL by a call or
+	 * a batch sub-request is cached, so the next requests for this API and URL fail at once without being sent:
+	 * {@link DiffbotRequest#execute()} throws the error and {@link DiffbotRequest#queue()} returns a {@code Future}
+	 * already holding it.
+	 * 
+	 * @param errorCache the negative cache of the Diffbot API errors, or {@code null} to disable it (default)
+	 */
+	public final void setErrorCache(final ErrorCache errorCache) {
+		this.errorCache = errorCache;
+	}
+
+	/**
+	 * @return the canonicalizer of the URLs submitted to Diffbot, or {@code null} if they are submitted as they are
+	 */
+	public final UrlCanonicalizer getUrlCanonicalizer() {
+		return urlCanonicalizer;
+	}
+
+	/**
+	 * Sets a canonicalizer of the URLs submitted to Diffbot. The {@code url} parameter of the requests created after
+	 * this call is canonicalized before the request is queued, cached or de-duplicated, so the variants of a URL share
+	 * one call and one cached result. The URL passed to the request is returned by {@code Model#getRequestedUrl()}.
+	 * 
+	 * @param urlCanonicalizer the canonicalizer of the URLs, or {@code null} to submit the URLs as they are (default)
+	 */
+	public final void setUrlCanonicalizer(final UrlCanonicalizer urlCanonicalizer) {
+		this.urlCanonicalizer = urlCanonicalizer;
+	}
+
+	/**
+	 * @return the listener measuring the requests, or {@code null} if they are not measured
+	 */
+	public final DiffbotMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Sets a listener measuring the requests: round trip and parse durations, size of the responses, time waited in
+	 * the batch queue, fill ratio of the batch calls and errors. The built-in implementation is
+	 * {@link com.syncthemall.diffbot.metrics.HistogramMetrics}.
+	 * 
+	 * @param metrics the listener measuring the requests, or {@code null} to disable the measures (default)
+	 */
+	public final void setMetrics(final DiffbotMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @return the scheme, host and port the requests are sent to instead of the Diffbot servers, or {@code null} if
+	 *         they are sent to Diffbot
+	 */
+	public final String getBaseUrl() {
+		return baseUrl;
+	}
+
+	/**
+	 * Sends the requests to another server than Diffbot, e.g. a proxy or a local stand-in for load tests. The paths of
+	 * the APIs ({@code /v2/article}, {@code /api/frontpage}, {@code /api/batch}, etc.) are kept. Applies to the
+	 * requests created after the call.
+	 * 
+	 * @param baseUrl the scheme, host and port of the server, e.g. {@code http://localhost:8080}, or {@code null} to
+	 *            call Diffbot (default)
+	 */
+	public final void setBaseUrl(final String baseUrl) {
+		this.baseUrl = baseUrl != null && baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1)
+				: baseUrl;
+	}
+
+	/**
+	 * @return {@code true} if the JVM supports virtual threads (Java 21 or later)
+	 */
+	public static boolean isVirtualThreadsSupported() {
+		return VirtualThreads.isSupported();
+	}
+
+	/**
+	 * @return {@code true} if the concurrent batch calls are made on virtual threads
+	 */
+	public final boolean isVirtualThreads() {
+		return batchExecutor != null;
+	}
+
+	/**
+	 * Makes the concurrent batch calls (see {@link #setConcurrentBatchRequest(int)}) on virtual threads rather than on
+	 * a new platform thread per call. The client only blocks on {@code java.util.concurrent} locks, so
+	 * {@link DiffbotRequest#execute()} and {@link Future#get()} can also be called from virtual threads without pinning
+	 * their carrier thread.
+	 * 
+	 * @param virtualThreads {@code true} to make the batch calls on virtual threads, {@code false} to use platform
+	 *            threads (default)
+	 * @throws UnsupportedOperationException if {@code virtualThreads} is {@code true} and the JVM doesn't support
+	 *             virtual threads
+	 */
+	public final void setVirtualThreads(final boolean virtualThreads) {
+		ExecutorService previous = batchExecutor;
+		if (virtualThreads) {
+			if (!VirtualThreads.isSupported()) {
+				throw new UnsupportedOperationException(bundle.getString("virtual.threads.unsupported"));
+			}
+			if (previous == null) {
+				batchExecutor = VirtualThreads.newExecutor();
+			}
+		} else if (previous != null) {
+			batchExecutor = null;
+			previous.shutdown();
+		}
+	}
+
+}
@@ -25,20 +25,36 @@ package com.syncthemall.diffbot;
 import static com.syncthemall.diffbot.Constants.BATCH;
 import static com.syncthemall.diffbot.Constants.BATCH_URL;
 import static com.syncthemall.diffbot.Constants.ERROR;
+import static com.syncthemall.diffbot.Constants.FIELDS;
 import static com.syncthemall.diffbot.Constants.GET;
 import static com.syncthemall.diffbot.Constants.HTTP_OK;
 import static com.syncthemall.diffbot.Constants.HTTP_UNAUTHORIZED;
+import static com.syncthemall.diffbot.Constants.TIMEOUT;
+import static com.syncthemall.diffbot.Constants.TOKEN;
+import static com.syncthemall.diffbot.Constants.URL;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.ResourceBundle;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
@@ -48,6 +64,13 @@ import com.google.api.client.http.HttpRequest;
 import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.json.GenericJson;
+import com.google.api.client.util.Types;
+import com.syncthemall.diffbot.cache.CacheKey;
+import com.syncthemall.diffbot.cache.DiskStore;
+import com.syncthemall.diffbot.cache.ErrorCache;
+import com.syncthemall.diffbot.cache.ResultCache;
+import com.syncthemall.diffbot.codec.Projection;
+import com.syncthemall.diffbot.converter.UrlCanonicalizer;
 import com.syncthemall.diffbot.exception.DiffbotAPIException;
 import com.syncthemall.diffbot.exception.DiffbotBatchException;
 import com.syncthemall.diffbot.exception.DiffbotException;
@@ -56,6 +79,10 @@ import com.syncthemall.diffbot.exception.DiffbotServerException;
 import com.syncthemall.diffbot.exception.DiffbotUnauthorizedException;
 import com.syncthemall.diffbot.exception.JAXBInitializationException;
 import com.syncthemall.diffbot.exception.UnknownRequestAPITypeException;
+import com.syncthemall.diffbot.jfr.EventKind;
+import com.syncthemall.diffbot.jfr.FlightRecorderEvents;
+import com.syncthemall.diffbot.jfr.Span;
+import com.syncthemall.diffbot.metrics.DiffbotMetrics;
 import com.syncthemall.diffbot.model.Model;
 import com.syncthemall.diffbot.model.article.Article;
 import com.syncthemall.diffbot.model.batch.BatchRequest;
@@ -74,6 +101,9 @@ import com.syncthemall.diffbot.model.products.Products;
  */
 public abstract class DiffbotRequest<T extends Model> {
 
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final int BUFFER_SIZE = 8192;
+
 	private Diffbot client;
 	private ResourceBundle bundle = ResourceBundle.getBundle("com.syncthemall.diffbot.messages.Messages");
 	private Class<T> responseClass;
@@ -82,6 +112,7 @@ public abstract class DiffbotRequest<T extends Model> {
 	private int batchRequestTimeout;
 	private int concurrentBatchRequest;
 	private GenericUrl url;
+	private String requestedUrl;
 
 	/**
 	 * Diffbot API type.
@@ -121,20 +152,108 @@ public abstract class DiffbotRequest<T extends Model> {
 	 */
 	protected abstract ApiType getApiType();
 
-	private String buildRelativeUrl() {
+	final String buildRelativeUrl() {
 		return this.url.buildRelativeUrl();
 	}
 
+	/**
+	 * Sets a parameter of this request. The {@code url} parameter is canonicalized with the {@link UrlCanonicalizer} of
+	 * the client, if it has one.
+	 * 
+	 * @param fieldName the name of the parameter
+	 * @param value the value of the parameter
+	 * @return the URL of this request
+	 */
 	protected final GenericUrl set(final String fieldName, final Object value) {
+		if (URL.equals(fieldName) && value != null) {
+			requestedUrl = value.toString();
+			UrlCanonicalizer canonicalizer = client.getUrlCanonicalizer();
+			if (canonicalizer != null) {
+				return url.set(fieldName, canonicalizer.canonicalize(requestedUrl));
+			}
+		}
 		return url.set(fieldName, value);
 	}
 
+	/**
+	 * @return the URL passed to this request, before its canonicalization
+	 */
+	public final String getRequestedUrl() {
+		return requestedUrl;
+	}
+
+	/**
+	 * Returns a result to the caller of this request, with the URL passed to this request. A result shared with a
+	 * request for another variant of the URL is copied.
+	 */
+	private <M extends Model> M deliver(final M result) {
+		if (result == null || requestedUrl == null || requestedUrl.equals(result.getRequestedUrl())) {
+			return result;
+		}
+		M copy = shallowCopy(result);
+		copy.setRequestedUrl(requestedUrl);
+		return copy;
+	}
+
+	/**
+	 * Copies the fields and the unknown keys of a result, sharing their values. {@code GenericData#clone()} cannot be
+	 * used as its deep copy fails on the {@code enum} fields.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <M extends Model> M shallowCopy(final M result) {
+		M copy = (M) Types.newInstance(result.getClass());
+		try {
+			for (Class<?> c = result.getClass(); c != Model.class; c = c.getSuperclass()) {
+				for (Field field : c.getDeclaredFields()) {
+					if (!Modifier.isStatic(field.getModifiers())) {
+						field.setAccessible(true);
+						field.set(copy, field.get(result));
+					}
+				}
+			}
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+		copy.getUnknownKeys().putAll(result.getUnknownKeys());
+		copy.setFactory(result.getFactory());
+		return copy;
+	}
+
+	/**
+	 * @return the key of the result of this request in a {@link ResultCache}
+	 */
+	final CacheKey getCacheKey() {
+		StringBuilder options = new StringBuilder();
+		for (String name : new TreeSet<String>(url.keySet())) {
+			if (!name.equals(URL) && !name.equals(FIELDS) && !name.equals(TOKEN) && !name.equals(TIMEOUT)) {
+				options.append(name).append('=').append(url.get(name)).append('&');
+			}
+		}
+		return new CacheKey(getApiType(), asString(url.get(URL)), asString(url.get(FIELDS)),
+				options.length() == 0 ? null : options.toString());
+	}
+
+	private static String asString(final Object value) {
+		return value == null ? null : value.toString();
+	}
+
+	private Projection getProjection() {
+		if (!client.isFieldsProjection() || url.get(FIELDS) == null) {
+			return Projection.ALL;
+		}
+		return Projection.parse(url.get(FIELDS).toString());
+	}
+
 	/**
 	 * Sends the metadata request to the server and returns the parsed metadata response.
 	 * 
 	 * <p>
 	 * Subclasses may override by calling the super implementation.
 	 * </p>
+	 * <p>
+	 * If the same request (same API and relative URL) is already executed by another thread, waits for its response
+	 * and returns the same result, or throws the same error, instead of calling Diffbot again.
+	 * </p>
 	 * 
 	 * @return the {@code Model} representing the Diffbot API parsed HTTP response
 	 * @throws DiffbotUnauthorizedException if the developer token is not recognized or revoked
@@ -145,54 +264,321 @@ public abstract class DiffbotRequest<T extends Model> {
 	 *             so you may want to only catch this exception if not interested in the cause of the error.
 	 */
 	public final T execute() throws DiffbotException {
+		ResultCache cache = client.getResultCache();
+		DiskStore store = client.getDiskStore();
+		CacheKey key = null;
+		if (cache != null || store != null) {
+			key = getCacheKey();
+			T cached = getCached(key);
+			if (cached != null) {
+				return deliver(cached);
+			}
+		}
+		DiffbotAPIException cachedError = getCachedError();
+		if (cachedError != null) {
+			throw cachedError;
+		}
+		String callKey = getApiType() + " " + buildRelativeUrl();
+		InFlightCall call = new InFlightCall();
+		InFlightCall leader = client.getInFlightCalls().putIfAbsent(callKey, call);
+		if (leader != null) {
+			return deliver(await(leader));
+		}
+		try {
+			T result = call(key);
+			call.result = result;
+			return result;
+		} catch (DiffbotException e) {
+			call.error = e;
+			failed(getApiType(), e);
+			throw e;
+		} catch (RuntimeException e) {
+			call.error = e;
+			throw e;
+		} finally {
+			client.getInFlightCalls().remove(callKey, call);
+			call.latch.countDown();
+		}
+	}
+
+	private T call(final CacheKey key) throws DiffbotException {
+		ResultCache cache = client.getResultCache();
+		DiskStore store = client.getDiskStore();
+		Span span = FlightRecorderEvents.begin(EventKind.REQUEST);
 		try {
 			HttpRequest request = client.getRequestFactory().buildGetRequest(this.url);
 			request.setReadTimeout(readTimeout);
+			long start = System.nanoTime();
 			HttpResponse response = request.execute();
-			// Specific case for Frontpage has the response is either in JSON (error case) or XML (success case)
-			if (responseClass.equals(Frontpage.class)) {
-				return parseFrontpage(response);
+			long received = System.nanoTime();
+			T result;
+			long weight;
+			if (store != null) {
+				byte[] body = readContent(response);
+				result = parse(new ByteArrayInputStream(body), UTF8);
+				store(key, body);
+				weight = body.length;
 			} else {
-				return parseModel(response);
+				CountingInputStream content = getContent(response);
+				result = parse(content, response.getContentCharset());
+				weight = content.getCount();
+			}
+			DiffbotMetrics metrics = client.getMetrics();
+			if (metrics != null) {
+				metrics.requestCompleted(getApiType(), received - start, weight);
+				metrics.responseParsed(getApiType(), System.nanoTime() - received);
+			}
+			span.end(getApiType(), 1, weight, null);
+			if (cache != null && result != null) {
+				cache.put(key, result, weight);
 			}
+			return result;
 		} catch (HttpResponseException e) {
-			parseAPIError(e.getStatusCode(), e.getContent());
+			span.end(getApiType(), 1, 0, e);
+			try {
+				parseAPIError(e.getStatusCode(), e.getContent());
+			} catch (DiffbotAPIException error) {
+				cacheError(error);
+				throw error;
+			}
 			return null;
 		} catch (IOException e) {
+			span.end(getApiType(), 1, 0, e);
 			throw new DiffbotServerException(bundle.getString("request.not.executed"), e);
+		} catch (DiffbotException e) {
+			span.end(getApiType(), 1, 0, e);
+			throw e;
+		}
+	}
+
+	/**
+	 * A call made by {@link DiffbotRequest#execute()}, that the concurrent executions of the same request wait for
+	 * instead of calling Diffbot again.
+	 */
+	static final class InFlightCall {
+
+		private final CountDownLatch latch = new CountDownLatch(1);
+		private Model result;
+		private Exception error;
+	}
+
+	/**
+	 * @return the result of the call made by another thread for the same request, or its error
+	 */
+	private T await(final InFlightCall call) throws DiffbotException {
+		try {
+			call.latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DiffbotServerException(bundle.getString("request.interrupted"), e);
+		}
+		if (call.error instanceof DiffbotException) {
+			throw (DiffbotException) call.error;
+		} else if (call.error != null) {
+			throw (RuntimeException) call.error;
+		}
+		return responseClass.cast(call.result);
+	}
+
+	/**
+	 * @return the error of the last call for the API and URL of this request in the {@link ErrorCache} of the client,
+	 *         or {@code null} if there is none
+	 */
+	private DiffbotAPIException getCachedError() {
+		ErrorCache errors = client.getErrorCache();
+		return errors == null ? null : errors.get(getApiType(), asString(url.get(URL)));
+	}
+
+	private void cacheError(final DiffbotAPIException error) {
+		ErrorCache errors = client.getErrorCache();
+		if (errors != null) {
+			errors.put(getApiType(), asString(url.get(URL)), error);
+		}
+	}
+
+	private T parse(final InputStream content, final Charset charset) throws DiffbotAPIException,
+			DiffbotParseException {
+		T result;
+		// Specific case for Frontpage has the response is either in JSON (error case) or XML (success case)
+		if (responseClass.equals(Frontpage.class)) {
+			Span span = FlightRecorderEvents.begin(EventKind.UNMARSHAL);
+			try {
+				result = parseFrontpage(content);
+			} catch (DiffbotException e) {
+				span.end(getApiType(), 1, 0, e);
+				throw e;
+			}
+			span.end(getApiType(), 1, 0, null);
+		} else {
+			Span span = FlightRecorderEvents.begin(EventKind.PARSE);
+			try {
+				result = parseModel(content, charset);
+			} catch (DiffbotException e) {
+				span.end(getApiType(), 1, 0, e);
+				throw e;
+			}
+			span.end(getApiType(), 1, 0, null);
+		}
+		if (result != null) {
+			result.setRequestedUrl(requestedUrl);
+		}
+		return result;
+	}
+
+	private CountingInputStream getContent(final HttpResponse response) throws DiffbotException {
+		try {
+			return new CountingInputStream(response.getContent());
+		} catch (IOException e) {
+			throw contentError(e);
+		}
+	}
+
+	/**
+	 * Reads the whole content of a response, re-encoded in UTF-8 if needed so it can be stored in a {@link DiskStore}.
+	 */
+	private byte[] readContent(final HttpResponse response) throws DiffbotException {
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			InputStream content = response.getContent();
+			try {
+				byte[] buffer = new byte[BUFFER_SIZE];
+				for (int read = content.read(buffer); read != -1; read = content.read(buffer)) {
+					out.write(buffer, 0, read);
+				}
+			} finally {
+				content.close();
+			}
+			Charset charset = response.getContentCharset();
+			if (charset != null && !UTF8.equals(charset)) {
+				return new String(out.toByteArray(), charset).getBytes(UTF8);
+			}
+			return out.toByteArray();
+		} catch (IOException e) {
+			throw contentError(e);
+		}
+	}
+
+	private DiffbotException contentError(final IOException e) {
+		if (responseClass.equals(Frontpage.class)) {
+			return new DiffbotServerException(bundle.getString("response.not.read"), e);
+		}
+		return new DiffbotParseException(bundle.getString("response.not.parsed"), e);
+	}
+
+	/**
+	 * @return the result of this request from the {@link ResultCache} or the {@link DiskStore} of the client, or a
+	 *         stale result being refreshed, or {@code null} if it is in none of them
+	 */
+	private T getCached(final CacheKey key) {
+		ResultCache cache = client.getResultCache();
+		if (cache != null) {
+			Model cached = cache.get(key);
+			if (responseClass.isInstance(cached)) {
+				return responseClass.cast(cached);
+			}
+		}
+		DiskStore store = client.getDiskStore();
+		if (store != null) {
+			byte[] body = store.get(key);
+			if (body != null) {
+				try {
+					T result = parse(new ByteArrayInputStream(body), UTF8);
+					if (cache != null && result != null) {
+						cache.put(key, result, body.length);
+					}
+					return result;
+				} catch (DiffbotException e) {
+					// the stored body is not a valid result anymore, it is requested again
+					store.invalidate(key);
+				}
+			}
+		}
+		if (cache != null) {
+			Model stale = cache.getStale(key);
+			if (responseClass.isInstance(stale)) {
+				refresh(key);
+				return responseClass.cast(stale);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Queues this request in the batch list, once per key, and runs it on a background thread. The result is added to
+	 * the cache by the batch call.
+	 */
+	private void refresh(final CacheKey key) {
+		final Future<T> future = new Future<T>(this, client);
+		if (client.getRefreshes().putIfAbsent(key, future) == null) {
+			future.setQueueSpan(FlightRecorderEvents.begin(EventKind.QUEUE));
+			enqueue(Collections.singletonList(future));
+			client.getRefreshExecutor().execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						future.get();
+					} catch (DiffbotException e) {
+						// the stale result is served until a refresh succeeds: a failed batch puts the future back in
+						// the queue, where nothing would wait for it
+						dequeue(future);
+						return;
+					} finally {
+						client.getRefreshes().remove(key, future);
+					}
+				}
+			});
+		}
+	}
+
+	private void store(final CacheKey key, final byte[] body) {
+		try {
+			client.getDiskStore().put(key, body);
+		} catch (IOException e) {
+			// the result is returned even if it cannot be stored
+			return;
 		}
 	}
 
 	@SuppressWarnings("unchecked")
-	private T parseFrontpage(final HttpResponse response) throws DiffbotAPIException, DiffbotParseException,
-			DiffbotServerException {
+	private T parseFrontpage(final InputStream content) throws DiffbotAPIException, DiffbotParseException {
 		try {
-			return (T) createUnmarshaller().unmarshal(response.getContent());
+			return (T) createUnmarshaller().unmarshal(content);
 		} catch (JAXBException e) {
 			throw new DiffbotParseException(bundle.getString("dml.not.parsed"), e);
-		} catch (IOException e) {
-			throw new DiffbotServerException(bundle.getString("response.not.read"), e);
 		}
 	}
 
-	private T parseModel(final HttpResponse response) throws DiffbotAPIException, DiffbotParseException {
+	private T parseModel(final InputStream content, final Charset charset) throws DiffbotAPIException,
+			DiffbotParseException {
 		try {
-			return response.parseAs(responseClass);
+			return client.getModelCodec().parse(content, charset, responseClass, getProjection());
 		} catch (IOException e) {
 			throw new DiffbotParseException(bundle.getString("response.not.parsed"), e);
 		}
 	}
 
 	/**
-	 * Add this {@code Request} to the batch list.
+	 * Add this {@code Request} to the batch list. If the result of this {@code Request} is in the {@link ResultCache}
+	 * or the {@link DiskStore} of the client, the returned {@code Future} is already filled with it and not added to
+	 * the batch list. The same way, if the URL of this {@code Request} is in the {@link ErrorCache} of the client, the
+	 * returned {@code Future} already holds the error.
 	 * 
 	 * @return a {@code Future<T>} that will be filled with the result {@code Model} on the next batch call
 	 */
 	public final Future<T> queue() {
 		Future<T> future = new Future<T>(this, client);
-		synchronized (client.getFutures()) {
-			client.getFutures().add(future);
+		if (client.getResultCache() != null || client.getDiskStore() != null) {
+			T cached = getCached(getCacheKey());
+			if (cached != null) {
+				return future.setResult(deliver(cached));
+			}
+		}
+		DiffbotAPIException cachedError = getCachedError();
+		if (cachedError != null) {
+			return future.setError(cachedError);
 		}
+		future.setQueueSpan(FlightRecorderEvents.begin(EventKind.QUEUE));
+		enqueue(Collections.singletonList(future));
 		return future;
 	}
 
@@ -218,66 +604,42 @@ public abstract class DiffbotRequest<T extends Model> {
 
 	private void runSyncBatch(final Future<T> initiator) throws DiffbotBatchException {
 		if (client.getFutures().contains(initiator)) {
-			List<Future<? extends Model>> batchList = new ArrayList<Future<? extends Model>>();
-			synchronized (client.getFutures()) {
-				batchList.add(initiator);
-				client.getFutures().remove(initiator);
-				int batchSize = (client.getFutures().size() > maxBatchRequest - 1) ? maxBatchRequest - 1 : client
-						.getFutures().size();
-
-				List<Future<? extends Model>> subList = client.getFutures().subList(0, batchSize);
-				batchList.addAll(subList);
-				subList.clear();
-			}
+			List<Future<? extends Model>> batchList = plan(initiator, 1).get(0);
+			Span span = FlightRecorderEvents.begin(EventKind.BATCH_REQUEST);
 			try {
+				long start = System.nanoTime();
+				queueWaited(batchList, start);
 				HttpResponse response = executeBatchRequest(batchList);
-				BatchResponse[] responses = parseBatchResponse(response);
+				long received = System.nanoTime();
+				responded(batchList, received);
+				BatchResponse[] responses = parseBatchResponse(response, batchList.size(), received - start, span);
 				parseBatchSubResponses(responses, batchList);
 			} catch (DiffbotUnauthorizedException | DiffbotServerException | DiffbotParseException
 					| DiffbotAPIException e) {
-				synchronized (client.getFutures()) {
-					client.getFutures().addAll(batchList);
-				}
-				throw new DiffbotBatchException(e);
+				span.end(null, batchList.size(), 0, e);
+				enqueue(batchList);
+				DiffbotBatchException error = new DiffbotBatchException(e);
+				failed(getApiType(), error);
+				throw error;
 			}
 		}
 	}
 
 	private void runAsyncBatch(final Future<T> initiator) throws DiffbotBatchException {
-		List<List<Future<? extends Model>>> batchCalls = new ArrayList<List<Future<? extends Model>>>();
-		int callsToMake = 0;
-		synchronized (client.getFutures()) {
-			client.getFutures().remove(initiator);
-			int batchSize = (client.getFutures().size() > maxBatchRequest - 1) ? maxBatchRequest - 1 : client
-					.getFutures().size();
-			List<Future<? extends Model>> subList = client.getFutures().subList(0, batchSize);
-			subList.add(initiator);
-			List<Future<? extends Model>> batchList = new ArrayList<Future<? extends Model>>();
-			batchList.addAll(subList);
-			batchCalls.add(batchList);
-			callsToMake++;
-			subList.clear();
-			while (!client.getFutures().isEmpty() && callsToMake < concurrentBatchRequest) {
-				batchSize = (client.getFutures().size() > maxBatchRequest) ? maxBatchRequest : client.getFutures()
-						.size();
-				subList = client.getFutures().subList(0, batchSize);
-				batchList = new ArrayList<Future<? extends Model>>();
-				batchList.addAll(subList);
-				batchCalls.add(batchList);
-				callsToMake++;
-				subList.clear();
-			}
-		}
+		List<List<Future<? extends Model>>> batchCalls = plan(initiator, concurrentBatchRequest);
 
 		DiffbotBatchException errorOnInitiator = null;
 		Map<List<Future<? extends Model>>, java.util.concurrent.Future<HttpResponse>> asyncResponses = new HashMap<List<Future<? extends Model>>, java.util.concurrent.Future<HttpResponse>>();
+		Map<List<Future<? extends Model>>, Span> spans = new HashMap<List<Future<? extends Model>>, Span>();
 		for (List<Future<? extends Model>> call : batchCalls) {
+			queueWaited(call, System.nanoTime());
+			Span span = FlightRecorderEvents.begin(EventKind.BATCH_REQUEST);
+			spans.put(call, span);
 			try {
 				asyncResponses.put(call, executeBatchAsyncRequest(call));
 			} catch (DiffbotServerException | DiffbotParseException e) {
-				synchronized (client.getFutures()) {
-					client.getFutures().addAll(call);
-				}
+				span.end(null, call.size(), 0, e);
+				enqueue(call);
 				if (call.contains(initiator)) {
 					errorOnInitiator = new DiffbotBatchException(e);
 				}
@@ -286,20 +648,23 @@ public abstract class DiffbotRequest<T extends Model> {
 
 		for (Entry<List<Future<? extends Model>>, java.util.concurrent.Future<HttpResponse>> entry : asyncResponses
 				.entrySet()) {
+			Span span = spans.get(entry.getKey());
 			try {
-				BatchResponse[] responses = parseBatchResponse(entry.getValue().get());
+				HttpResponse response = entry.getValue().get();
+				// the response time of each call is set by its HTTP task, whatever the order of the calls here
+				Future<? extends Model> first = entry.getKey().get(0);
+				BatchResponse[] responses = parseBatchResponse(response, entry.getKey().size(),
+						first.getRespondedNanos() - first.getDispatchedNanos(), span);
 				parseBatchSubResponses(responses, entry.getKey());
 			} catch (DiffbotParseException | InterruptedException e) {
-				synchronized (client.getFutures()) {
-					client.getFutures().addAll(entry.getKey());
-				}
+				span.end(null, entry.getKey().size(), 0, e);
+				enqueue(entry.getKey());
 				if (entry.getKey().contains(initiator)) {
 					errorOnInitiator = new DiffbotBatchException(e);
 				}
 			} catch (ExecutionException e) {
-				synchronized (client.getFutures()) {
-					client.getFutures().addAll(entry.getKey());
-				}
+				span.end(null, entry.getKey().size(), 0, e.getCause());
+				enqueue(entry.getKey());
 				if (entry.getKey().contains(initiator)) {
 					if (e.getCause() instanceof HttpResponseException) {
 						try {
@@ -315,10 +680,49 @@ public abstract class DiffbotRequest<T extends Model> {
 			}
 		}
 		if (errorOnInitiator != null) {
+			failed(getApiType(), errorOnInitiator);
 			throw errorOnInitiator;
 		}
 	}
 
+	/**
+	 * Adds {@code futures} to the batch queue of the client.
+	 */
+	private void enqueue(final Collection<? extends Future<? extends Model>> futures) {
+		client.getQueueLock().lock();
+		try {
+			client.getFutures().addAll(futures);
+		} finally {
+			client.getQueueLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes {@code future} from the batch queue of the client.
+	 */
+	private void dequeue(final Future<? extends Model> future) {
+		client.getQueueLock().lock();
+		try {
+			client.getFutures().remove(future);
+		} finally {
+			client.getQueueLock().unlock();
+		}
+	}
+
+	/**
+	 * Takes out of the batch queue the requests of up to {@code maxCalls} batch calls, the first one sending
+	 * {@code initiator}.
+	 */
+	private List<List<Future<? extends Model>>> plan(final Future<T> initiator, final int maxCalls) {
+		client.getQueueLock().lock();
+		try {
+			return BatchPlanner.<Future<? extends Model>> plan(client.getFutures(), initiator, maxBatchRequest,
+					maxCalls);
+		} finally {
+			client.getQueueLock().unlock();
+		}
+	}
+
 	private HttpResponse executeBatchRequest(final Collection<Future<? extends Model>> futureRequests)
 			throws DiffbotParseException, DiffbotServerException, DiffbotUnauthorizedException, DiffbotAPIException {
 		try {
@@ -333,26 +737,52 @@ public abstract class DiffbotRequest<T extends Model> {
 		}
 	}
 
+	/**
+	 * Sends a batch call in the batch executor of the client, or in a new thread as done by
+	 * {@code HttpRequest#executeAsync()}. The task sets the response time of {@code futureRequests} as soon as the
+	 * response is received.
+	 */
 	private java.util.concurrent.Future<HttpResponse> executeBatchAsyncRequest(
-			final Collection<Future<? extends Model>> futureRequests) throws DiffbotParseException,
-			DiffbotServerException {
+			final List<Future<? extends Model>> futureRequests) throws DiffbotParseException, DiffbotServerException {
 		try {
-			HttpRequest request = client.getRequestFactory().buildPostRequest(buildBatchRequest(futureRequests), null);
+			final HttpRequest request = client.getRequestFactory().buildPostRequest(buildBatchRequest(futureRequests),
+					null);
 			request.setReadTimeout(batchRequestTimeout);
-			return request.executeAsync();
+			ExecutorService executor = client.getBatchExecutor();
+			return (executor != null ? executor : Executors.newSingleThreadExecutor()).submit(
+					new Callable<HttpResponse>() {
+						@Override
+						public HttpResponse call() throws IOException {
+							HttpResponse response = request.execute();
+							responded(futureRequests, System.nanoTime());
+							return response;
+						}
+					});
 		} catch (IOException e) {
 			throw new DiffbotServerException(bundle.getString("request.not.executed"), e);
 		}
 	}
 
-	private GenericUrl buildBatchRequest(final Collection<Future<? extends Model>> futureRequests)
+	/**
+	 * @return the URL of the batch call of {@code futureRequests}; package-private for the benchmarks
+	 */
+	final GenericUrl buildBatchRequest(final Collection<Future<? extends Model>> futureRequests)
 			throws DiffbotParseException {
+		Span span = FlightRecorderEvents.begin(EventKind.BATCH_BUILD);
 		List<BatchRequest> requests = new ArrayList<BatchRequest>();
-		GenericUrl batchUrl = new GenericUrl(BATCH_URL);
+		GenericUrl batchUrl = new GenericUrl(client.resolve(BATCH_URL));
 		for (Future<? extends Object> future : futureRequests) {
 			requests.add(new BatchRequest(GET, future.getRequest().buildRelativeUrl()));
 		}
-		batchUrl.set(BATCH, buildBatchQuery(requests));
+		String query;
+		try {
+			query = buildBatchQuery(requests);
+		} catch (DiffbotParseException e) {
+			span.end(null, requests.size(), 0, e);
+			throw e;
+		}
+		batchUrl.set(BATCH, query);
+		span.end(null, requests.size(), query.length(), null);
 		return batchUrl;
 	}
 
@@ -364,15 +794,31 @@ public abstract class DiffbotRequest<T extends Model> {
 		}
 	}
 
-	private BatchResponse[] parseBatchResponse(final HttpResponse response) throws DiffbotParseException {
+	/**
+	 * @return the sub-responses of a batch call of {@code size} requests, answered in {@code roundTrip} nanoseconds;
+	 *         package-private for the benchmarks
+	 */
+	final BatchResponse[] parseBatchResponse(final HttpResponse response, final int size, final long roundTrip,
+			final Span span) throws DiffbotParseException {
 		try {
-			return response.parseAs(BatchResponse[].class);
+			CountingInputStream content = new CountingInputStream(response.getContent());
+			BatchResponse[] responses = client.getModelCodec().parse(content, response.getContentCharset(),
+					BatchResponse[].class, Projection.ALL);
+			DiffbotMetrics metrics = client.getMetrics();
+			if (metrics != null) {
+				metrics.batchCompleted(size, maxBatchRequest, roundTrip, content.getCount());
+			}
+			span.end(null, size, content.getCount(), null);
+			return responses;
 		} catch (IOException e) {
 			throw new DiffbotParseException(bundle.getString("response.not.parsed"), e);
 		}
 	}
 
-	private void parseBatchSubResponses(final BatchResponse[] responses, final List<Future<? extends Model>> results) {
+	/**
+	 * Fills the {@code Future}s of a batch call with their sub-responses; package-private for the benchmarks.
+	 */
+	final void parseBatchSubResponses(final BatchResponse[] responses, final List<Future<? extends Model>> results) {
 		for (int i = 0; i < responses.length; i++) {
 			for (Future<? extends Model> future : results) {
 				if (future.getRequest().buildRelativeUrl().equals(responses[i].getRelativeUrl())
@@ -387,8 +833,17 @@ public abstract class DiffbotRequest<T extends Model> {
 						} else {
 							parseFrontpageBatchResponses(responses[i], result);
 						}
-					} catch (DiffbotAPIException | DiffbotParseException e) {
+					} catch (DiffbotAPIException e) {
+						result.getRequest().cacheError(e);
+						result.setError(e);
+						failed(result.getRequest().getApiType(), e);
+					} catch (DiffbotParseException e) {
 						result.setError(e);
+						failed(result.getRequest().getApiType(), e);
+					}
+					DiffbotMetrics metrics = client.getMetrics();
+					if (metrics != null) {
+						metrics.futureCompleted(result.getRequest().getApiType(), result);
 					}
 				}
 			}
@@ -398,22 +853,36 @@ public abstract class DiffbotRequest<T extends Model> {
 	private void parseModelBatchResponses(final BatchResponse response, final Future<? extends Model> result)
 			throws DiffbotParseException, DiffbotAPIException {
 		try {
-			Model model;
+			Class<? extends Model> modelClass;
 			if (result.getRequest().getApiType() == ApiType.ARTICLE) {
-				model = client.getJsonFactory().createJsonParser(response.getBody()).parseAndClose(Article.class, null);
+				modelClass = Article.class;
 			} else if (result.getRequest().getApiType() == ApiType.IMAGE) {
-				model = client.getJsonFactory().createJsonParser(response.getBody()).parseAndClose(Images.class, null);
+				modelClass = Images.class;
 			} else if (result.getRequest().getApiType() == ApiType.PRODUCT) {
-				model = client.getJsonFactory().createJsonParser(response.getBody())
-						.parseAndClose(Products.class, null);
+				modelClass = Products.class;
 			} else if (result.getRequest().getApiType() == ApiType.CLASSIFIER) {
-				model = client.getJsonFactory().createJsonParser(response.getBody())
-						.parseAndClose(Classified.class, null);
+				modelClass = Classified.class;
 			} else {
 				throw new UnknownRequestAPITypeException(bundle.getString("batch.unknow.type"), result.getRequest()
 						.getApiType());
 			}
+			long start = System.nanoTime();
+			Span span = FlightRecorderEvents.begin(EventKind.PARSE);
+			Model model;
+			try {
+				model = client.getModelCodec().parse(response.getBody(), modelClass, result.getRequest()
+						.getProjection());
+			} catch (IOException e) {
+				span.end(result.getRequest().getApiType(), 1, response.getBody().length(), e);
+				throw e;
+			}
+			span.end(result.getRequest().getApiType(), 1, response.getBody().length(), null);
+			parsed(result.getRequest().getApiType(), start);
+			if (model != null) {
+				model.setRequestedUrl(result.getRequest().getRequestedUrl());
+			}
 			result.setResult(model);
+			cache(result.getRequest(), model, response.getBody());
 		} catch (IOException e) {
 			throw new DiffbotParseException(bundle.getString("model.not.parsed"), e);
 		}
@@ -422,13 +891,68 @@ public abstract class DiffbotRequest<T extends Model> {
 	private void parseFrontpageBatchResponses(final BatchResponse response, final Future<? extends Model> result)
 			throws DiffbotAPIException, DiffbotParseException {
 		try {
-			Frontpage frontpage = (Frontpage) createUnmarshaller().unmarshal(new StringReader(response.getBody()));
+			long start = System.nanoTime();
+			Span span = FlightRecorderEvents.begin(EventKind.UNMARSHAL);
+			Frontpage frontpage;
+			try {
+				frontpage = (Frontpage) createUnmarshaller().unmarshal(new StringReader(response.getBody()));
+			} catch (JAXBException e) {
+				span.end(ApiType.FRONTPAGE, 1, response.getBody().length(), e);
+				throw e;
+			}
+			span.end(ApiType.FRONTPAGE, 1, response.getBody().length(), null);
+			parsed(ApiType.FRONTPAGE, start);
+			frontpage.setRequestedUrl(result.getRequest().getRequestedUrl());
 			result.setResult(frontpage);
+			cache(result.getRequest(), frontpage, response.getBody());
 		} catch (JAXBException e) {
 			throw new DiffbotParseException(bundle.getString("dml.not.parsed"), e);
 		}
 	}
 
+	private void cache(final DiffbotRequest<? extends Model> request, final Model model, final String body) {
+		ResultCache cache = client.getResultCache();
+		if (cache != null && model != null) {
+			cache.put(request.getCacheKey(), model, body.length());
+		}
+		if (client.getDiskStore() != null) {
+			store(request.getCacheKey(), body.getBytes(UTF8));
+		}
+	}
+
+	private void queueWaited(final List<Future<? extends Model>> batch, final long now) {
+		DiffbotMetrics metrics = client.getMetrics();
+		for (Future<? extends Model> future : batch) {
+			ApiType apiType = future.getRequest().getApiType();
+			if (metrics != null) {
+				metrics.queueWaited(apiType, now - future.getEnqueuedNanos());
+			}
+			future.setDispatchedNanos(now);
+			future.getQueueSpan().end(apiType, batch.size(), 0, null);
+			future.setQueueSpan(FlightRecorderEvents.NOOP);
+		}
+	}
+
+	private void responded(final List<Future<? extends Model>> batch, final long now) {
+		for (Future<? extends Model> future : batch) {
+			future.setRespondedNanos(now);
+		}
+	}
+
+	private void parsed(final ApiType apiType, final long start) {
+		DiffbotMetrics metrics = client.getMetrics();
+		if (metrics != null) {
+			metrics.responseParsed(apiType, System.nanoTime() - start);
+		}
+	}
+
+	private void failed(final ApiType apiType, final DiffbotException error) {
+		DiffbotMetrics metrics = client.getMetrics();
+		if (metrics != null) {
+			metrics.failed(apiType, error);
+		}
+	}
+
 	private Unmarshaller createUnmarshaller() {
 		try {
 			return client.getJAXBContext().createUnmarshaller();
@@ -443,8 +967,8 @@ public abstract class DiffbotRequest<T extends Model> {
 			throw new DiffbotUnauthorizedException(bundle.getString("token.not.authorized"));
 		} else {
 			try {
-				throw new DiffbotAPIException(statusCode, client.getJsonFactory().createJsonParser(responseContent)
-						.parse(GenericJson.class).get(ERROR).toString());
+				throw new DiffbotAPIException(statusCode, client.getModelCodec()
+						.parse(responseContent, GenericJson.class, Projection.ALL).get(ERROR).toString());
 			} catch (IOException e) {
 				throw new DiffbotParseException(bundle.getString("error.not.parsed"), e);
 			}
@@ -28,6 +28,8 @@ import com.syncthemall.diffbot.exception.DiffbotException;
 import com.syncthemall.diffbot.exception.DiffbotParseException;
 import com.syncthemall.diffbot.exception.DiffbotServerException;
 import com.syncthemall.diffbot.exception.DiffbotUnauthorizedException;
+import com.syncthemall.diffbot.jfr.FlightRecorderEvents;
+import com.syncthemall.diffbot.jfr.Span;
 import com.syncthemall.diffbot.model.Model;
 import com.syncthemall.diffbot.model.article.Article;
 import com.syncthemall.diffbot.model.frontpage.Frontpage;
@@ -55,6 +57,11 @@ public class Future<T extends Model> {
 	private Model result;
 	private DiffbotException error;
 	private boolean executed = false;
+	private final long enqueuedNanos = System.nanoTime();
+	private long dispatchedNanos;
+	private long respondedNanos;
+	private long completedNanos;
+	private Span queueSpan = FlightRecorderEvents.NOOP;
 
 	/**
 	 * Default constructor.
@@ -72,14 +79,82 @@ public class Future<T extends Model> {
 		return request;
 	}
 
+	/**
+	 * @return the {@code System.nanoTime()} at which the request of this {@code Future} was queued
+	 */
+	public final long getEnqueuedNanos() {
+		return enqueuedNanos;
+	}
+
+	/**
+	 * @return the {@code System.nanoTime()} at which the request of this {@code Future} was last sent in a batch call,
+	 *         or 0 if it was not sent
+	 */
+	public final long getDispatchedNanos() {
+		return dispatchedNanos;
+	}
+
+	/**
+	 * @return the {@code System.nanoTime()} at which the response of the batch call of this {@code Future} was
+	 *         received, or 0 if it was not received
+	 */
+	public final long getRespondedNanos() {
+		return respondedNanos;
+	}
+
+	/**
+	 * @return the {@code System.nanoTime()} at which the result or error of this {@code Future} was set, after the
+	 *         parsing of its sub-response, or 0 if it is not executed
+	 */
+	public final long getCompletedNanos() {
+		return completedNanos;
+	}
+
+	/**
+	 * @return the time the request of this {@code Future} waited in the batch queue before being sent, in
+	 *         nanoseconds, or -1 if it was not sent
+	 */
+	public final long getQueueTimeNanos() {
+		return dispatchedNanos == 0 ? -1 : dispatchedNanos - enqueuedNanos;
+	}
+
+	/**
+	 * @return the time from the queuing of the request of this {@code Future} to its result or error, in nanoseconds,
+	 *         or -1 if it is not executed
+	 */
+	public final long getLatencyNanos() {
+		return completedNanos == 0 ? -1 : completedNanos - enqueuedNanos;
+	}
+
+	protected final void setDispatchedNanos(final long dispatchedNanos) {
+		this.dispatchedNanos = dispatchedNanos;
+	}
+
+	protected final void setRespondedNanos(final long respondedNanos) {
+		this.respondedNanos = respondedNanos;
+	}
+
+	/**
+	 * @return the recording of the time this {@code Future} waits in the batch queue
+	 */
+	protected final Span getQueueSpan() {
+		return queueSpan;
+	}
+
+	protected final void setQueueSpan(final Span queueSpan) {
+		this.queueSpan = queueSpan;
+	}
+
 	protected final Future<T> setResult(final Model result) {
 		this.result = result;
+		this.completedNanos = System.nanoTime();
 		this.executed = true;
 		return this;
 	}
 
 	protected final Future<T> setError(final DiffbotException error) {
 		this.error = error;
+		this.completedNanos = System.nanoTime();
 		this.executed = true;
 		return this;
 	}
@@ -109,13 +184,14 @@ public class Future<T extends Model> {
 		if (executed) {
 			return getResult();
 		} else {
-			synchronized (client) {
+			client.getBatchLock().lock();
+			try {
 				if (!executed) {
 					request.runBatch(this);
-					return getResult();
-				} else {
-					return getResult();
 				}
+				return getResult();
+			} finally {
+				client.getBatchLock().unlock();
 			}
 		}
 	}
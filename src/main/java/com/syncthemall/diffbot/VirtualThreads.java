@@ -0,0 +1,80 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the virtual threads of the client, looking up the Java 21 API by reflection. In the multi-release JAR this
+ * class is replaced on Java 21 by a version calling it directly.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+final class VirtualThreads {
+
+	private static final Method NEW_EXECUTOR = lookup();
+
+	private VirtualThreads() {
+		super();
+	}
+
+	/**
+	 * @return {@code true} if the JVM supports virtual threads
+	 */
+	static boolean isSupported() {
+		return NEW_EXECUTOR != null;
+	}
+
+	/**
+	 * @return an executor starting a new virtual thread for each task
+	 * @throws UnsupportedOperationException if the JVM doesn't support virtual threads
+	 */
+	static ExecutorService newExecutor() {
+		if (NEW_EXECUTOR == null) {
+			throw new UnsupportedOperationException("Executors.newVirtualThreadPerTaskExecutor");
+		}
+		try {
+			return (ExecutorService) NEW_EXECUTOR.invoke(null);
+		} catch (IllegalAccessException | InvocationTargetException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * The method is called once as it is a preview API on Java 19 and 20, failing unless the preview features are
+	 * enabled.
+	 */
+	private static Method lookup() {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			((ExecutorService) method.invoke(null)).shutdown();
+			return method;
+		} catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,118 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.cache;
+
+import com.syncthemall.diffbot.DiffbotRequest.ApiType;
+import com.syncthemall.diffbot.converter.UrlNormalizer;
+
+/**
+ * Key of a Diffbot result in a {@link ResultCache}: the API called, the normalized URL submitted, the requested fields
+ * and the other options changing the result (e.g. the mode and the statistics of the Classifier API).
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public final class CacheKey {
+
+	private final ApiType apiType;
+	private final String url;
+	private final String fields;
+	private final String options;
+	private final int hash;
+
+	/**
+	 * Creates a {@code CacheKey}.
+	 * 
+	 * @param apiType the API called
+	 * @param url the URL submitted to Diffbot
+	 * @param fields the fields requested, or {@code null} for the default fields
+	 * @param options the other options of the request changing the result, or {@code null} if none
+	 */
+	public CacheKey(final ApiType apiType, final String url, final String fields, final String options) {
+		super();
+		this.apiType = apiType;
+		this.url = UrlNormalizer.normalize(url);
+		this.fields = fields;
+		this.options = options;
+		int h = apiType == null ? 0 : apiType.hashCode();
+		h = 31 * h + (this.url == null ? 0 : this.url.hashCode());
+		h = 31 * h + (fields == null ? 0 : fields.hashCode());
+		h = 31 * h + (options == null ? 0 : options.hashCode());
+		this.hash = h;
+	}
+
+	/**
+	 * @return the API called
+	 */
+	public ApiType getApiType() {
+		return apiType;
+	}
+
+	/**
+	 * @return the normalized URL submitted to Diffbot
+	 */
+	public String getUrl() {
+		return url;
+	}
+
+	/**
+	 * @return the fields requested, or {@code null} for the default fields
+	 */
+	public String getFields() {
+		return fields;
+	}
+
+	/**
+	 * @return the other options of the request changing the result, or {@code null} if none
+	 */
+	public String getOptions() {
+		return options;
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof CacheKey)) {
+			return false;
+		}
+		CacheKey other = (CacheKey) obj;
+		return hash == other.hash && apiType == other.apiType && equal(url, other.url) && equal(fields, other.fields)
+				&& equal(options, other.options);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("CacheKey [apiType=%s, url=%s, fields=%s, options=%s]", apiType, url, fields, options);
+	}
+
+	private static boolean equal(final String a, final String b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+}
@@ -0,0 +1,126 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.cache;
+
+/**
+ * Snapshot of the statistics of a {@link ResultCache}.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public final class CacheStats {
+
+	private final long hitCount;
+	private final long missCount;
+	private final long staleHitCount;
+	private final long evictionCount;
+	private final long rejectionCount;
+	private final long expirationCount;
+	private final int size;
+	private final long weight;
+
+	CacheStats(final long hitCount, final long missCount, final long staleHitCount, final long evictionCount,
+			final long rejectionCount, final long expirationCount, final int size, final long weight) {
+		super();
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.staleHitCount = staleHitCount;
+		this.evictionCount = evictionCount;
+		this.rejectionCount = rejectionCount;
+		this.expirationCount = expirationCount;
+		this.size = size;
+		this.weight = weight;
+	}
+
+	/**
+	 * @return the number of requests that returned a cached result
+	 */
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * @return the number of requests that found no valid result in the cache
+	 */
+	public long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * @return the number of expired results served while they were refreshed
+	 */
+	public long getStaleHitCount() {
+		return staleHitCount;
+	}
+
+	/**
+	 * @return the ratio of requests that returned a cached result, or 0 if there was no request
+	 */
+	public double getHitRate() {
+		long requests = hitCount + missCount;
+		return requests == 0 ? 0 : (double) hitCount / requests;
+	}
+
+	/**
+	 * @return the number of cached results evicted by a more frequently requested result
+	 */
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * @return the number of results not admitted in the cache because they were requested less frequently than the
+	 *         results they would have evicted
+	 */
+	public long getRejectionCount() {
+		return rejectionCount;
+	}
+
+	/**
+	 * @return the number of cached results removed because their time to live elapsed
+	 */
+	public long getExpirationCount() {
+		return expirationCount;
+	}
+
+	/**
+	 * @return the number of cached results
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * @return the size in bytes of the cached responses
+	 */
+	public long getWeight() {
+		return weight;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("CacheStats [hitCount=%s, missCount=%s, staleHitCount=%s, evictionCount=%s, "
+				+ "rejectionCount=%s, expirationCount=%s, size=%s, weight=%s]", hitCount, missCount, staleHitCount,
+				evictionCount, rejectionCount, expirationCount, size, weight);
+	}
+
+}
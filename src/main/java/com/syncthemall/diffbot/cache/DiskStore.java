@@ -0,0 +1,500 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.cache;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import com.syncthemall.diffbot.DiffbotRequest.ApiType;
+
+/**
+ * Disk tier of the Diffbot results, storing the raw response bodies so a restarted client does not call Diffbot again
+ * for the results it already received.
+ * <p>
+ * The bodies are appended to memory-mapped segment files ({@code <id>.segment}) of a directory. Each record holds its
+ * length, a CRC32 checksum, its expiration time, the key and the body. The length is written last, so a record
+ * interrupted by a crash is never seen as complete. When the store is opened, the segments are scanned in order to
+ * rebuild the index: the scan of a segment stops at the first record that is incomplete or has an invalid checksum,
+ * and the next records are appended from there. The index maps a 64-bit hash of the keys to the records, in a table
+ * stored outside of the Java heap.
+ * <p>
+ * When a segment is full a new one is started and the old segments are compacted: a segment whose records are all
+ * expired, or that has less than half of its bytes still referenced by the index, has its live records copied to the
+ * current segment and is deleted.
+ * <p>
+ * Each body expires after the time to live of the {@link ApiType} of its request, or the default time to live (1 day).
+ * A time to live of 0 disables the storage. This class is thread-safe.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public final class DiskStore implements Closeable {
+
+	/** Default time to live of the bodies, in milliseconds. */
+	public static final long DEFAULT_TTL = TimeUnit.DAYS.toMillis(1);
+
+	/** Default size of the segment files, in bytes. */
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+	private static final String SEGMENT_SUFFIX = ".segment";
+	private static final int MIN_SEGMENT_SIZE = 4096;
+	private static final double COMPACTION_RATIO = 0.5;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	// record layout: length, CRC32 of the rest of the record, expiration, key length, body length, key, body
+	private static final int CRC = 4;
+	private static final int EXPIRATION = 8;
+	private static final int KEY_LENGTH = 16;
+	private static final int BODY_LENGTH = 20;
+	private static final int HEADER_SIZE = 24;
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final File directory;
+	private final int segmentSize;
+	private final SortedMap<Integer, Segment> segments = new TreeMap<Integer, Segment>();
+	private final OffHeapIndex index = new OffHeapIndex();
+	private final Map<ApiType, Long> apiTtls = new EnumMap<ApiType, Long>(ApiType.class);
+	private long defaultTtl = DEFAULT_TTL;
+	private Segment active;
+	private boolean compacting;
+	private boolean closed;
+
+	/**
+	 * Opens a {@code DiskStore} with segments of {@link #DEFAULT_SEGMENT_SIZE} bytes.
+	 * 
+	 * @param directory the directory of the segment files, created if it does not exist
+	 * @throws IOException if the directory cannot be created or the segments cannot be read
+	 */
+	public DiskStore(final File directory) throws IOException {
+		this(directory, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Opens a {@code DiskStore}, recovering the bodies stored in the segments of {@code directory}.
+	 * 
+	 * @param directory the directory of the segment files, created if it does not exist
+	 * @param segmentSize the size in bytes of the segment files, which is also the maximum size of a record
+	 * @throws IOException if the directory cannot be created or the segments cannot be read
+	 */
+	public DiskStore(final File directory, final int segmentSize) throws IOException {
+		super();
+		if (segmentSize < MIN_SEGMENT_SIZE) {
+			throw new IllegalArgumentException("segmentSize must be at least " + MIN_SEGMENT_SIZE);
+		}
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create the directory " + directory);
+		}
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		recover();
+	}
+
+	/**
+	 * @return the directory of the segment files
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * @return the size in bytes of the segment files
+	 */
+	public int getSegmentSize() {
+		return segmentSize;
+	}
+
+	/**
+	 * @param ttl the default time to live of the bodies, 0 to only store the bodies with a specific time to live
+	 * @param unit the unit of {@code ttl}
+	 */
+	public synchronized void setDefaultTtl(final long ttl, final TimeUnit unit) {
+		this.defaultTtl = toMillis(ttl, unit);
+	}
+
+	/**
+	 * @param apiType an API
+	 * @param ttl the time to live of the bodies of {@code apiType}, 0 to never store them
+	 * @param unit the unit of {@code ttl}
+	 */
+	public synchronized void setTtl(final ApiType apiType, final long ttl, final TimeUnit unit) {
+		apiTtls.put(apiType, toMillis(ttl, unit));
+	}
+
+	/**
+	 * @param key the key of a request
+	 * @return the body of the response to the request, or {@code null} if it is not stored or has expired
+	 */
+	public synchronized byte[] get(final CacheKey key) {
+		checkOpen();
+		byte[] encoded = encode(key);
+		long hash = hash(encoded);
+		long location = index.get(hash);
+		if (location == OffHeapIndex.NOT_FOUND) {
+			return null;
+		}
+		ByteBuffer buffer = segments.get(segmentId(location)).buffer;
+		int position = offset(location);
+		if (!Arrays.equals(encoded, read(buffer, position + HEADER_SIZE, buffer.getInt(position + KEY_LENGTH)))) {
+			// another key with the same hash
+			return null;
+		}
+		if (buffer.getLong(position + EXPIRATION) <= System.currentTimeMillis()
+				|| buffer.getInt(position + CRC) != crc(buffer, position, buffer.getInt(position))) {
+			release(index.remove(hash));
+			return null;
+		}
+		return read(buffer, position + HEADER_SIZE + encoded.length, buffer.getInt(position + BODY_LENGTH));
+	}
+
+	/**
+	 * Stores the body of the response to a request, replacing the previous one. A body larger than a segment is not
+	 * stored.
+	 * 
+	 * @param key the key of a request
+	 * @param body the body of the response to the request
+	 * @throws IOException if a new segment cannot be created
+	 */
+	public synchronized void put(final CacheKey key, final byte[] body) throws IOException {
+		checkOpen();
+		long ttl = ttl(key.getApiType());
+		if (ttl > 0) {
+			append(encode(key), body, System.currentTimeMillis() + ttl);
+		}
+	}
+
+	/**
+	 * Removes the body of the response to a request.
+	 * 
+	 * @param key the key of a request
+	 */
+	public synchronized void invalidate(final CacheKey key) {
+		checkOpen();
+		byte[] encoded = encode(key);
+		long hash = hash(encoded);
+		long location = index.get(hash);
+		if (location != OffHeapIndex.NOT_FOUND) {
+			ByteBuffer buffer = segments.get(segmentId(location)).buffer;
+			int position = offset(location);
+			if (Arrays.equals(encoded, read(buffer, position + HEADER_SIZE, buffer.getInt(position + KEY_LENGTH)))) {
+				release(index.remove(hash));
+			}
+		}
+	}
+
+	/**
+	 * @return the number of bodies in the index, including the expired bodies not yet removed
+	 */
+	public synchronized int size() {
+		return index.size();
+	}
+
+	/**
+	 * @return the number of segment files
+	 */
+	public synchronized int getSegmentCount() {
+		return segments.size();
+	}
+
+	/**
+	 * Copies the live records of the segments that are expired or mostly unused to the current segment and deletes
+	 * them. This is done each time a new segment is started.
+	 * 
+	 * @throws IOException if a new segment cannot be created
+	 */
+	public synchronized void compact() throws IOException {
+		checkOpen();
+		compacting = true;
+		try {
+			long now = System.currentTimeMillis();
+			for (Segment segment : new ArrayList<Segment>(segments.values())) {
+				if (segment != active
+						&& (segment.maxExpiration <= now || segment.liveBytes <= segment.writePosition
+								* COMPACTION_RATIO)) {
+					compact(segment, now);
+				}
+			}
+		} finally {
+			compacting = false;
+		}
+	}
+
+	/**
+	 * Writes the segments to the disk and closes this store.
+	 */
+	@Override
+	public synchronized void close() {
+		if (!closed) {
+			for (Segment segment : segments.values()) {
+				segment.buffer.force();
+			}
+			segments.clear();
+			index.clear();
+			active = null;
+			closed = true;
+		}
+	}
+
+	private void recover() throws IOException {
+		List<Integer> ids = new ArrayList<Integer>();
+		String[] names = directory.list(new FilenameFilter() {
+			@Override
+			public boolean accept(final File dir, final String name) {
+				return name.endsWith(SEGMENT_SUFFIX);
+			}
+		});
+		for (String name : names) {
+			try {
+				ids.add(Integer.valueOf(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+			} catch (NumberFormatException e) {
+				continue;
+			}
+		}
+		Collections.sort(ids);
+		long now = System.currentTimeMillis();
+		for (Integer id : ids) {
+			Segment segment = open(id);
+			segments.put(id, segment);
+			scan(segment, now);
+		}
+		if (segments.isEmpty()) {
+			active = open(1);
+			segments.put(active.id, active);
+		} else {
+			active = segments.get(segments.lastKey());
+		}
+	}
+
+	private void scan(final Segment segment, final long now) {
+		MappedByteBuffer buffer = segment.buffer;
+		int position = 0;
+		while (position + HEADER_SIZE <= segment.capacity) {
+			int length = buffer.getInt(position);
+			if (length == 0) {
+				break;
+			}
+			if (!isValid(segment, position, length)) {
+				// incomplete record: the next records are appended in its place
+				for (int i = position; i < segment.capacity; i++) {
+					buffer.put(i, (byte) 0);
+				}
+				break;
+			}
+			long hash = hash(read(buffer, position + HEADER_SIZE, buffer.getInt(position + KEY_LENGTH)));
+			release(index.put(hash, location(segment.id, position)));
+			long expiration = buffer.getLong(position + EXPIRATION);
+			if (expiration <= now) {
+				index.remove(hash);
+			} else {
+				segment.liveBytes += length;
+				segment.maxExpiration = Math.max(segment.maxExpiration, expiration);
+			}
+			position += length;
+		}
+		segment.writePosition = position;
+	}
+
+	private static boolean isValid(final Segment segment, final int position, final int length) {
+		if (length < HEADER_SIZE || (long) position + length > segment.capacity) {
+			return false;
+		}
+		int keyLength = segment.buffer.getInt(position + KEY_LENGTH);
+		int bodyLength = segment.buffer.getInt(position + BODY_LENGTH);
+		return keyLength >= 0 && bodyLength >= 0 && (long) HEADER_SIZE + keyLength + bodyLength == length
+				&& segment.buffer.getInt(position + CRC) == crc(segment.buffer, position, length);
+	}
+
+	private void append(final byte[] key, final byte[] body, final long expiration) throws IOException {
+		long length = (long) HEADER_SIZE + key.length + body.length;
+		if (length > segmentSize) {
+			return;
+		}
+		// the compaction run by roll() may fill the new segment with the live records of the compacted ones
+		while (active.writePosition + length > active.capacity) {
+			roll();
+		}
+		int position = active.writePosition;
+		ByteBuffer record = active.buffer.duplicate();
+		record.position(position + EXPIRATION);
+		record.putLong(expiration).putInt(key.length).putInt(body.length).put(key).put(body);
+		active.buffer.putInt(position + CRC, crc(active.buffer, position, (int) length));
+		active.buffer.putInt(position, (int) length);
+		active.writePosition += length;
+		active.liveBytes += length;
+		active.maxExpiration = Math.max(active.maxExpiration, expiration);
+		release(index.put(hash(key), location(active.id, position)));
+	}
+
+	private void roll() throws IOException {
+		active.buffer.force();
+		active = open(active.id + 1);
+		segments.put(active.id, active);
+		if (!compacting) {
+			compact();
+		}
+	}
+
+	private void compact(final Segment segment, final long now) throws IOException {
+		ByteBuffer buffer = segment.buffer;
+		for (int position = 0; position < segment.writePosition; position += buffer.getInt(position)) {
+			byte[] key = read(buffer, position + HEADER_SIZE, buffer.getInt(position + KEY_LENGTH));
+			long hash = hash(key);
+			if (index.get(hash) == location(segment.id, position)) {
+				long expiration = buffer.getLong(position + EXPIRATION);
+				if (expiration <= now) {
+					index.remove(hash);
+				} else {
+					append(key,
+							read(buffer, position + HEADER_SIZE + key.length, buffer.getInt(position + BODY_LENGTH)),
+							expiration);
+				}
+			}
+		}
+		segments.remove(segment.id);
+		if (!segment.file.delete()) {
+			segment.file.deleteOnExit();
+		}
+	}
+
+	/**
+	 * Updates the live bytes of the segment of a record no longer referenced by the index.
+	 */
+	private void release(final long location) {
+		if (location != OffHeapIndex.NOT_FOUND) {
+			Segment segment = segments.get(segmentId(location));
+			if (segment != null) {
+				segment.liveBytes -= segment.buffer.getInt(offset(location));
+			}
+		}
+	}
+
+	private Segment open(final int id) throws IOException {
+		File file = new File(directory, String.format("%08d%s", id, SEGMENT_SUFFIX));
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			long length = raf.length();
+			int capacity = length == 0 ? segmentSize : (int) Math.min(length, Integer.MAX_VALUE);
+			return new Segment(id, file, raf.getChannel().map(MapMode.READ_WRITE, 0, capacity), capacity);
+		} finally {
+			raf.close();
+		}
+	}
+
+	private long ttl(final ApiType apiType) {
+		Long ttl = apiType == null ? null : apiTtls.get(apiType);
+		return ttl == null ? defaultTtl : ttl;
+	}
+
+	private void checkOpen() {
+		if (closed) {
+			throw new IllegalStateException("The DiskStore is closed");
+		}
+	}
+
+	private static byte[] encode(final CacheKey key) {
+		return (key.getApiType() + "\n" + key.getUrl() + "\n" + key.getFields() + "\n" + key.getOptions())
+				.getBytes(UTF8);
+	}
+
+	private static long hash(final byte[] bytes) {
+		long hash = FNV_OFFSET;
+		for (byte b : bytes) {
+			hash ^= b & 0xff;
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+
+	private static int crc(final ByteBuffer buffer, final int position, final int length) {
+		CRC32 crc = new CRC32();
+		crc.update(read(buffer, position + EXPIRATION, length - EXPIRATION));
+		return (int) crc.getValue();
+	}
+
+	private static byte[] read(final ByteBuffer buffer, final int position, final int length) {
+		byte[] bytes = new byte[length];
+		ByteBuffer source = buffer.duplicate();
+		source.position(position);
+		source.get(bytes);
+		return bytes;
+	}
+
+	private static long location(final int segmentId, final int offset) {
+		return ((long) segmentId << 32) | (offset & 0xffffffffL);
+	}
+
+	private static int segmentId(final long location) {
+		return (int) (location >>> 32);
+	}
+
+	private static int offset(final long location) {
+		return (int) location;
+	}
+
+	private static long toMillis(final long ttl, final TimeUnit unit) {
+		if (ttl < 0) {
+			throw new IllegalArgumentException("ttl cannot be negative");
+		}
+		return unit.toMillis(ttl);
+	}
+
+	/**
+	 * A memory-mapped segment file.
+	 */
+	private static final class Segment {
+
+		private final int id;
+		private final File file;
+		private final MappedByteBuffer buffer;
+		private final int capacity;
+		private int writePosition;
+		private long liveBytes;
+		private long maxExpiration;
+
+		private Segment(final int id, final File file, final MappedByteBuffer buffer, final int capacity) {
+			this.id = id;
+			this.file = file;
+			this.buffer = buffer;
+			this.capacity = capacity;
+		}
+
+	}
+
+}
@@ -0,0 +1,232 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.cache;
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.syncthemall.diffbot.DiffbotRequest.ApiType;
+import com.syncthemall.diffbot.exception.DiffbotAPIException;
+
+/**
+ * Negative cache of the Diffbot API errors, by API and normalized URL. A request for a URL that recently failed with a
+ * {@link DiffbotAPIException} (e.g. unreachable host, page not found, unsupported content) fails at once with the same
+ * error code and message, without being sent to Diffbot.
+ * <p>
+ * Each error expires after the time to live of its error code, then of its error class (the first digit of the code,
+ * e.g. 4 for the 4xx errors), then the default time to live (5 minutes). A time to live of 0 disables the caching of
+ * the error. The transient errors, 429 and 5xx, have a time to live of 0 unless one is set for them, and the 401 errors
+ * are never cached, as they concern the token rather than the URL. When the maximum number of errors is reached, the
+ * expired errors are removed and the new errors are not cached until there is room again.
+ * <p>
+ * This class is thread-safe.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public final class ErrorCache {
+
+	/** Default time to live of the errors, in milliseconds. */
+	public static final long DEFAULT_TTL = TimeUnit.MINUTES.toMillis(5);
+
+	/** Default maximum number of errors. */
+	public static final int DEFAULT_MAXIMUM_SIZE = 10000;
+
+	private static final int HTTP_UNAUTHORIZED = 401;
+	private static final int HTTP_TOO_MANY_REQUESTS = 429;
+	private static final int SERVER_ERROR_CLASS = 5;
+
+	private final int maximumSize;
+	private final ConcurrentMap<CacheKey, CachedError> errors = new ConcurrentHashMap<CacheKey, CachedError>();
+	private final ConcurrentMap<Integer, Long> codeTtls = new ConcurrentHashMap<Integer, Long>();
+	private final ConcurrentMap<Integer, Long> classTtls = new ConcurrentHashMap<Integer, Long>();
+	private volatile long defaultTtl = DEFAULT_TTL;
+
+	/**
+	 * Creates an {@code ErrorCache} of {@link #DEFAULT_MAXIMUM_SIZE} errors.
+	 */
+	public ErrorCache() {
+		this(DEFAULT_MAXIMUM_SIZE);
+	}
+
+	/**
+	 * Creates an {@code ErrorCache}.
+	 * 
+	 * @param maximumSize the maximum number of errors
+	 */
+	public ErrorCache(final int maximumSize) {
+		super();
+		if (maximumSize <= 0) {
+			throw new IllegalArgumentException("maximumSize must be positive");
+		}
+		this.maximumSize = maximumSize;
+		codeTtls.put(HTTP_TOO_MANY_REQUESTS, 0L);
+		classTtls.put(SERVER_ERROR_CLASS, 0L);
+	}
+
+	/**
+	 * @return the maximum number of errors
+	 */
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 * @param ttl the default time to live of the errors, 0 to only cache the errors with a specific time to live
+	 * @param unit the unit of {@code ttl}
+	 */
+	public void setDefaultTtl(final long ttl, final TimeUnit unit) {
+		this.defaultTtl = toMillis(ttl, unit);
+	}
+
+	/**
+	 * @param errorCode a Diffbot API error code
+	 * @param ttl the time to live of the errors with this code, 0 to never cache them
+	 * @param unit the unit of {@code ttl}
+	 */
+	public void setTtl(final int errorCode, final long ttl, final TimeUnit unit) {
+		codeTtls.put(errorCode, toMillis(ttl, unit));
+	}
+
+	/**
+	 * @param errorClass the first digit of the error codes, e.g. 4 for the 4xx errors
+	 * @param ttl the time to live of the errors of this class without a time to live for their code, 0 to never cache
+	 *            them
+	 * @param unit the unit of {@code ttl}
+	 */
+	public void setClassTtl(final int errorClass, final long ttl, final TimeUnit unit) {
+		classTtls.put(errorClass, toMillis(ttl, unit));
+	}
+
+	/**
+	 * Returns a new exception with the code and message of a cached error.
+	 * 
+	 * @param apiType the API called
+	 * @param url the URL submitted to Diffbot
+	 * @return the error, or {@code null} if there is no error cached for this API and URL
+	 */
+	public DiffbotAPIException get(final ApiType apiType, final String url) {
+		CacheKey key = key(apiType, url);
+		CachedError error = errors.get(key);
+		if (error == null) {
+			return null;
+		}
+		if (error.expiration <= System.currentTimeMillis()) {
+			errors.remove(key, error);
+			return null;
+		}
+		return new DiffbotAPIException(error.errorCode, error.message);
+	}
+
+	/**
+	 * Caches an error, if its time to live is not 0 and it is not a 401.
+	 * 
+	 * @param apiType the API called
+	 * @param url the URL submitted to Diffbot
+	 * @param error the error returned by Diffbot
+	 */
+	public void put(final ApiType apiType, final String url, final DiffbotAPIException error) {
+		long ttl = ttl(error.getErrorCode());
+		if (ttl <= 0 || error.getErrorCode() == HTTP_UNAUTHORIZED) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		if (errors.size() >= maximumSize) {
+			removeExpired(now);
+			if (errors.size() >= maximumSize) {
+				return;
+			}
+		}
+		errors.put(key(apiType, url), new CachedError(error.getErrorCode(), error.getMessage(), now + ttl));
+	}
+
+	/**
+	 * Removes the error cached for an API and URL.
+	 * 
+	 * @param apiType the API called
+	 * @param url the URL submitted to Diffbot
+	 */
+	public void invalidate(final ApiType apiType, final String url) {
+		errors.remove(key(apiType, url));
+	}
+
+	/**
+	 * Removes all the errors.
+	 */
+	public void invalidateAll() {
+		errors.clear();
+	}
+
+	/**
+	 * @return the number of errors cached, including the expired errors not yet removed
+	 */
+	public int size() {
+		return errors.size();
+	}
+
+	private void removeExpired(final long now) {
+		for (Iterator<Entry<CacheKey, CachedError>> it = errors.entrySet().iterator(); it.hasNext();) {
+			if (it.next().getValue().expiration <= now) {
+				it.remove();
+			}
+		}
+	}
+
+	private long ttl(final int errorCode) {
+		Long ttl = codeTtls.get(errorCode);
+		if (ttl == null) {
+			ttl = classTtls.get(errorCode / 100);
+		}
+		return ttl == null ? defaultTtl : ttl;
+	}
+
+	private static CacheKey key(final ApiType apiType, final String url) {
+		return new CacheKey(apiType, url, null, null);
+	}
+
+	private static long toMillis(final long ttl, final TimeUnit unit) {
+		if (ttl < 0) {
+			throw new IllegalArgumentException("ttl cannot be negative");
+		}
+		return unit.toMillis(ttl);
+	}
+
+	/**
+	 * Code and message of a cached error.
+	 */
+	private static final class CachedError {
+
+		private final int errorCode;
+		private final String message;
+		private final long expiration;
+
+		private CachedError(final int errorCode, final String message, final long expiration) {
+			this.errorCode = errorCode;
+			this.message = message;
+			this.expiration = expiration;
+		}
+	}
+
+}
@@ -0,0 +1,112 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.cache;
+
+/**
+ * Count-Min sketch of 4-bit counters estimating the access frequency of the keys of a {@link ResultCache}.
+ * <p>
+ * Each key is counted in one counter of each of the four rows of the sketch, its frequency is the minimum of these
+ * counters. All the counters are halved once the number of increments reaches ten times the width of the sketch, so
+ * the estimated frequencies favor the recent accesses.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+final class FrequencySketch {
+
+	private static final int DEPTH = 4;
+	private static final int COUNTERS_PER_WORD = 16;
+	private static final int MAX_COUNT = 15;
+	private static final long RESET_MASK = 0x7777777777777777L;
+	private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+			0xcbf29ce484222325L };
+
+	private final long[][] table;
+	private final int mask;
+	private final int sampleSize;
+	private int additions;
+
+	/**
+	 * @param expectedEntries the expected number of entries of the cache
+	 */
+	FrequencySketch(final int expectedEntries) {
+		int width = Integer.highestOneBit(Math.max(expectedEntries, COUNTERS_PER_WORD) - 1) << 1;
+		this.table = new long[DEPTH][width / COUNTERS_PER_WORD];
+		this.mask = width - 1;
+		this.sampleSize = 10 * width;
+	}
+
+	/**
+	 * @param hash the hash code of a key
+	 * @return the estimated number of recent accesses to the key, between 0 and 15
+	 */
+	int frequency(final int hash) {
+		int frequency = MAX_COUNT;
+		for (int i = 0; i < DEPTH; i++) {
+			int counter = index(hash, i);
+			int count = (int) ((table[i][counter / COUNTERS_PER_WORD] >>> shift(counter)) & MAX_COUNT);
+			frequency = Math.min(frequency, count);
+		}
+		return frequency;
+	}
+
+	/**
+	 * Counts an access to a key.
+	 * 
+	 * @param hash the hash code of the key
+	 */
+	void increment(final int hash) {
+		boolean added = false;
+		for (int i = 0; i < DEPTH; i++) {
+			int counter = index(hash, i);
+			int word = counter / COUNTERS_PER_WORD;
+			int shift = shift(counter);
+			if (((table[i][word] >>> shift) & MAX_COUNT) < MAX_COUNT) {
+				table[i][word] += 1L << shift;
+				added = true;
+			}
+		}
+		if (added && ++additions >= sampleSize) {
+			reset();
+		}
+	}
+
+	private void reset() {
+		for (long[] row : table) {
+			for (int i = 0; i < row.length; i++) {
+				row[i] = (row[i] >>> 1) & RESET_MASK;
+			}
+		}
+		additions /= 2;
+	}
+
+	private int index(final int hash, final int row) {
+		long h = (hash + SEEDS[row]) * SEEDS[row];
+		h ^= h >>> 32;
+		return (int) h & mask;
+	}
+
+	private static int shift(final int counter) {
+		return (counter % COUNTERS_PER_WORD) * 4;
+	}
+
+}
@@ -0,0 +1,175 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.cache;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Hash table stored outside of the Java heap, mapping the 64-bit hash of a key to the location of its record in a
+ * {@link DiskStore}.
+ * <p>
+ * The table uses open addressing with linear probing in a direct {@code ByteBuffer}. Each slot holds the hash (0 for
+ * an empty slot) and the location, on 16 bytes. Removals shift the following entries back so no tombstone is needed.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+final class OffHeapIndex {
+
+	/** Value returned for a hash not in the table. */
+	static final long NOT_FOUND = -1;
+
+	private static final int SLOT_SIZE = 16;
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final float LOAD_FACTOR = 0.7f;
+
+	private ByteBuffer slots;
+	private int capacity;
+	private int size;
+
+	OffHeapIndex() {
+		allocate(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * @return the number of entries of the table
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @param hash the hash of a key
+	 * @return the location of the key, or {@link #NOT_FOUND}
+	 */
+	long get(final long hash) {
+		long h = nonZero(hash);
+		for (int slot = slot(h);; slot = next(slot)) {
+			long current = slots.getLong(slot * SLOT_SIZE);
+			if (current == 0) {
+				return NOT_FOUND;
+			} else if (current == h) {
+				return slots.getLong(slot * SLOT_SIZE + 8);
+			}
+		}
+	}
+
+	/**
+	 * @param hash the hash of a key
+	 * @param location the location of the key
+	 * @return the previous location of the key, or {@link #NOT_FOUND}
+	 */
+	long put(final long hash, final long location) {
+		if (size + 1 > capacity * LOAD_FACTOR) {
+			resize();
+		}
+		long h = nonZero(hash);
+		for (int slot = slot(h);; slot = next(slot)) {
+			long current = slots.getLong(slot * SLOT_SIZE);
+			if (current == 0) {
+				slots.putLong(slot * SLOT_SIZE, h);
+				slots.putLong(slot * SLOT_SIZE + 8, location);
+				size++;
+				return NOT_FOUND;
+			} else if (current == h) {
+				long previous = slots.getLong(slot * SLOT_SIZE + 8);
+				slots.putLong(slot * SLOT_SIZE + 8, location);
+				return previous;
+			}
+		}
+	}
+
+	/**
+	 * @param hash the hash of a key
+	 * @return the location of the removed key, or {@link #NOT_FOUND}
+	 */
+	long remove(final long hash) {
+		long h = nonZero(hash);
+		int slot = slot(h);
+		while (true) {
+			long current = slots.getLong(slot * SLOT_SIZE);
+			if (current == 0) {
+				return NOT_FOUND;
+			} else if (current == h) {
+				break;
+			}
+			slot = next(slot);
+		}
+		long removed = slots.getLong(slot * SLOT_SIZE + 8);
+		// shift back the following entries of the cluster that can be moved to the freed slot
+		int free = slot;
+		for (int i = next(slot);; i = next(i)) {
+			long current = slots.getLong(i * SLOT_SIZE);
+			if (current == 0) {
+				break;
+			}
+			int home = slot(current);
+			if ((i > free && (home <= free || home > i)) || (i < free && home <= free && home > i)) {
+				slots.putLong(free * SLOT_SIZE, current);
+				slots.putLong(free * SLOT_SIZE + 8, slots.getLong(i * SLOT_SIZE + 8));
+				free = i;
+			}
+		}
+		slots.putLong(free * SLOT_SIZE, 0);
+		slots.putLong(free * SLOT_SIZE + 8, 0);
+		size--;
+		return removed;
+	}
+
+	/**
+	 * Removes all the entries.
+	 */
+	void clear() {
+		allocate(INITIAL_CAPACITY);
+	}
+
+	private void resize() {
+		ByteBuffer old = slots;
+		int oldCapacity = capacity;
+		allocate(capacity * 2);
+		for (int slot = 0; slot < oldCapacity; slot++) {
+			long hash = old.getLong(slot * SLOT_SIZE);
+			if (hash != 0) {
+				put(hash, old.getLong(slot * SLOT_SIZE + 8));
+			}
+		}
+	}
+
+	private void allocate(final int newCapacity) {
+		this.slots = ByteBuffer.allocateDirect(newCapacity * SLOT_SIZE);
+		this.capacity = newCapacity;
+		this.size = 0;
+	}
+
+	private int slot(final long hash) {
+		return (int) (hash ^ (hash >>> 32)) & (capacity - 1);
+	}
+
+	private int next(final int slot) {
+		return (slot + 1) & (capacity - 1);
+	}
+
+	private static long nonZero(final long hash) {
+		return hash == 0 ? 1 : hash;
+	}
+
+}
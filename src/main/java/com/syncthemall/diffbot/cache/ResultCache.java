@@ -0,0 +1,436 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.cache;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.syncthemall.diffbot.DiffbotRequest.ApiType;
+import com.syncthemall.diffbot.model.Model;
+import com.syncthemall.diffbot.model.PageType;
+
+/**
+ * In-process cache of Diffbot results, bounded by the size in bytes of the responses.
+ * <p>
+ * The eviction follows the W-TinyLFU policy: new results enter a small LRU window (1% of the maximum weight), and the
+ * results leaving the window are admitted in the main area only if they were requested more often than the result
+ * they would evict. The access frequencies are estimated with a Count-Min sketch, including the requests that missed
+ * the cache. The main area is a segmented LRU where the results requested again move from a probation segment to a
+ * protected segment (80% of the main area).
+ * <p>
+ * Each result expires after a time to live chosen from its {@link PageType}, then from the {@link ApiType} of its
+ * request, then the default time to live (1 hour). A time to live of 0 disables the caching. If a maximum staleness is
+ * set, the expired results are kept for this duration and can be served with {@link #getStale(CacheKey)} while they
+ * are refreshed.
+ * <p>
+ * The cached {@code Model} instances are shared by all the requests they are returned to and must not be modified.
+ * This class is thread-safe.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public final class ResultCache {
+
+	/** Default time to live of the results, in milliseconds. */
+	public static final long DEFAULT_TTL = TimeUnit.HOURS.toMillis(1);
+
+	private static final int WINDOW_PERCENT = 1;
+	private static final int PROTECTED_PERCENT = 80;
+	private static final long AVERAGE_WEIGHT = 4096;
+	private static final int MAX_EXPECTED_ENTRIES = 1 << 24;
+
+	private final long maximumWeight;
+	private final long windowMaximum;
+	private final long protectedMaximum;
+	private final Map<CacheKey, Node> data = new HashMap<CacheKey, Node>();
+	private final FrequencySketch sketch;
+	private final Queue window = new Queue();
+	private final Queue probation = new Queue();
+	private final Queue protectedQueue = new Queue();
+	private final Map<ApiType, Long> apiTtls = new EnumMap<ApiType, Long>(ApiType.class);
+	private final Map<PageType, Long> pageTypeTtls = new EnumMap<PageType, Long>(PageType.class);
+	private long defaultTtl = DEFAULT_TTL;
+	private long maxStale;
+
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+	private long rejectionCount;
+	private long expirationCount;
+	private long staleHitCount;
+
+	/**
+	 * Creates a {@code ResultCache}.
+	 * 
+	 * @param maximumWeight the maximum size in bytes of the cached responses
+	 */
+	public ResultCache(final long maximumWeight) {
+		super();
+		if (maximumWeight <= 0) {
+			throw new IllegalArgumentException("maximumWeight must be positive");
+		}
+		this.maximumWeight = maximumWeight;
+		this.windowMaximum = Math.max(1, maximumWeight * WINDOW_PERCENT / 100);
+		this.protectedMaximum = (maximumWeight - windowMaximum) * PROTECTED_PERCENT / 100;
+		this.sketch = new FrequencySketch((int) Math.min(MAX_EXPECTED_ENTRIES, maximumWeight / AVERAGE_WEIGHT));
+	}
+
+	/**
+	 * @return the maximum size in bytes of the cached responses
+	 */
+	public long getMaximumWeight() {
+		return maximumWeight;
+	}
+
+	/**
+	 * @param ttl the default time to live of the results, 0 to only cache the results with a specific time to live
+	 * @param unit the unit of {@code ttl}
+	 */
+	public synchronized void setDefaultTtl(final long ttl, final TimeUnit unit) {
+		this.defaultTtl = toMillis(ttl, unit);
+	}
+
+	/**
+	 * @param apiType an API
+	 * @param ttl the time to live of the results of {@code apiType}, 0 to never cache them
+	 * @param unit the unit of {@code ttl}
+	 */
+	public synchronized void setTtl(final ApiType apiType, final long ttl, final TimeUnit unit) {
+		apiTtls.put(apiType, toMillis(ttl, unit));
+	}
+
+	/**
+	 * @param pageType a type of page
+	 * @param ttl the time to live of the results of {@code pageType}, 0 to never cache them
+	 * @param unit the unit of {@code ttl}
+	 */
+	public synchronized void setTtl(final PageType pageType, final long ttl, final TimeUnit unit) {
+		pageTypeTtls.put(pageType, toMillis(ttl, unit));
+	}
+
+	/**
+	 * @return the duration in milliseconds the expired results are kept to be served stale
+	 */
+	public synchronized long getMaxStale() {
+		return maxStale;
+	}
+
+	/**
+	 * @param maxStale the duration the expired results are kept to be served stale with {@link #getStale(CacheKey)}, 0
+	 *            to remove them as soon as they expire (default)
+	 * @param unit the unit of {@code maxStale}
+	 */
+	public synchronized void setMaxStale(final long maxStale, final TimeUnit unit) {
+		if (maxStale < 0) {
+			throw new IllegalArgumentException("maxStale cannot be negative");
+		}
+		this.maxStale = unit.toMillis(maxStale);
+	}
+
+	/**
+	 * Returns a cached result.
+	 * 
+	 * @param key the key of the result
+	 * @return the result, or {@code null} if it is not in the cache or expired
+	 */
+	public synchronized Model get(final CacheKey key) {
+		sketch.increment(key.hashCode());
+		Node node = data.get(key);
+		if (node == null) {
+			missCount++;
+			return null;
+		}
+		long now = System.currentTimeMillis();
+		if (node.isExpired(now)) {
+			if (isDead(node, now)) {
+				remove(node);
+				expirationCount++;
+			}
+			missCount++;
+			return null;
+		}
+		hitCount++;
+		onAccess(node);
+		return node.value;
+	}
+
+	/**
+	 * Returns a cached result that has expired less than the maximum staleness ago. It should be refreshed by the
+	 * caller.
+	 * 
+	 * @param key the key of the result
+	 * @return the expired result, or {@code null} if it is not in the cache, not expired or expired for too long
+	 */
+	public synchronized Model getStale(final CacheKey key) {
+		Node node = data.get(key);
+		long now = System.currentTimeMillis();
+		if (node == null || !node.isExpired(now) || isDead(node, now)) {
+			return null;
+		}
+		staleHitCount++;
+		onAccess(node);
+		return node.value;
+	}
+
+	/**
+	 * Adds a result in the cache, if its time to live is not 0 and it is not larger than the cache.
+	 * 
+	 * @param key the key of the result
+	 * @param value the result
+	 * @param weight the size in bytes of the response
+	 */
+	public synchronized void put(final CacheKey key, final Model value, final long weight) {
+		long ttl = ttl(key.getApiType(), value.getType());
+		if (ttl <= 0 || weight > maximumWeight) {
+			return;
+		}
+		long expiration = System.currentTimeMillis() + ttl;
+		Node node = data.get(key);
+		if (node != null) {
+			node.queue.resize(node, weight);
+			node.value = value;
+			node.expiration = expiration;
+			onAccess(node);
+		} else {
+			sketch.increment(key.hashCode());
+			node = new Node(key, value, weight, expiration);
+			data.put(key, node);
+			window.addLast(node);
+		}
+		evict();
+	}
+
+	/**
+	 * Removes a result from the cache.
+	 * 
+	 * @param key the key of the result
+	 */
+	public synchronized void invalidate(final CacheKey key) {
+		Node node = data.get(key);
+		if (node != null) {
+			remove(node);
+		}
+	}
+
+	/**
+	 * Removes all the results from the cache.
+	 */
+	public synchronized void invalidateAll() {
+		data.clear();
+		window.clear();
+		probation.clear();
+		protectedQueue.clear();
+	}
+
+	/**
+	 * Removes the expired results from the cache, after their maximum staleness. The expired results are otherwise
+	 * removed when requested or evicted.
+	 */
+	public synchronized void cleanUp() {
+		long now = System.currentTimeMillis();
+		for (Queue queue : new Queue[] { window, probation, protectedQueue }) {
+			Node node = queue.head;
+			while (node != null) {
+				Node next = node.next;
+				if (isDead(node, now)) {
+					remove(node);
+					expirationCount++;
+				}
+				node = next;
+			}
+		}
+	}
+
+	/**
+	 * @return a snapshot of the statistics of this cache
+	 */
+	public synchronized CacheStats stats() {
+		return new CacheStats(hitCount, missCount, staleHitCount, evictionCount, rejectionCount, expirationCount,
+				data.size(), window.weight + probation.weight + protectedQueue.weight);
+	}
+
+	private long ttl(final ApiType apiType, final PageType pageType) {
+		Long ttl = pageType == null ? null : pageTypeTtls.get(pageType);
+		if (ttl == null) {
+			ttl = apiType == null ? null : apiTtls.get(apiType);
+		}
+		return ttl == null ? defaultTtl : ttl;
+	}
+
+	private boolean isDead(final Node node, final long now) {
+		return now - maxStale >= node.expiration;
+	}
+
+	private void onAccess(final Node node) {
+		if (node.queue == protectedQueue) {
+			protectedQueue.moveToLast(node);
+		} else if (node.queue == probation) {
+			probation.remove(node);
+			protectedQueue.addLast(node);
+			while (protectedQueue.weight > protectedMaximum && protectedQueue.head != node) {
+				Node demoted = protectedQueue.head;
+				protectedQueue.remove(demoted);
+				probation.addLast(demoted);
+			}
+		} else {
+			window.moveToLast(node);
+		}
+	}
+
+	private void evict() {
+		while (window.weight > windowMaximum) {
+			Node candidate = window.head;
+			window.remove(candidate);
+			admit(candidate);
+		}
+		while (probation.weight + protectedQueue.weight > maximumWeight - windowMaximum) {
+			remove(probation.head != null ? probation.head : protectedQueue.head);
+			evictionCount++;
+		}
+	}
+
+	private void admit(final Node candidate) {
+		long mainMaximum = maximumWeight - windowMaximum;
+		long now = System.currentTimeMillis();
+		while (probation.weight + protectedQueue.weight + candidate.weight > mainMaximum) {
+			Node victim = probation.head != null ? probation.head : protectedQueue.head;
+			if (victim == null) {
+				break;
+			}
+			if (victim.isExpired(now)) {
+				remove(victim);
+				expirationCount++;
+			} else if (sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode())) {
+				remove(victim);
+				evictionCount++;
+			} else {
+				data.remove(candidate.key);
+				rejectionCount++;
+				return;
+			}
+		}
+		if (probation.weight + protectedQueue.weight + candidate.weight > mainMaximum) {
+			data.remove(candidate.key);
+			rejectionCount++;
+			return;
+		}
+		probation.addLast(candidate);
+	}
+
+	private void remove(final Node node) {
+		node.queue.remove(node);
+		data.remove(node.key);
+	}
+
+	private static long toMillis(final long ttl, final TimeUnit unit) {
+		if (ttl < 0) {
+			throw new IllegalArgumentException("ttl cannot be negative");
+		}
+		return unit.toMillis(ttl);
+	}
+
+	/**
+	 * Cached result, linked in one of the LRU queues.
+	 */
+	private static final class Node {
+
+		private final CacheKey key;
+		private Model value;
+		private long weight;
+		private long expiration;
+		private Queue queue;
+		private Node previous;
+		private Node next;
+
+		private Node(final CacheKey key, final Model value, final long weight, final long expiration) {
+			this.key = key;
+			this.value = value;
+			this.weight = weight;
+			this.expiration = expiration;
+		}
+
+		private boolean isExpired(final long now) {
+			return now >= expiration;
+		}
+	}
+
+	/**
+	 * Doubly-linked LRU queue of {@code Node}, the least recently used first.
+	 */
+	private static final class Queue {
+
+		private Node head;
+		private Node tail;
+		private long weight;
+
+		private void addLast(final Node node) {
+			node.queue = this;
+			node.previous = tail;
+			node.next = null;
+			if (tail == null) {
+				head = node;
+			} else {
+				tail.next = node;
+			}
+			tail = node;
+			weight += node.weight;
+		}
+
+		private void remove(final Node node) {
+			if (node.previous == null) {
+				head = node.next;
+			} else {
+				node.previous.next = node.next;
+			}
+			if (node.next == null) {
+				tail = node.previous;
+			} else {
+				node.next.previous = node.previous;
+			}
+			node.previous = null;
+			node.next = null;
+			node.queue = null;
+			weight -= node.weight;
+		}
+
+		private void moveToLast(final Node node) {
+			if (node != tail) {
+				remove(node);
+				addLast(node);
+			}
+		}
+
+		private void resize(final Node node, final long newWeight) {
+			weight += newWeight - node.weight;
+			node.weight = newWeight;
+		}
+
+		private void clear() {
+			head = null;
+			tail = null;
+			weight = 0;
+		}
+	}
+
+}
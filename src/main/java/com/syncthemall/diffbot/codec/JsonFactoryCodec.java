@@ -0,0 +1,174 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.text.MessageFormat;
+import java.util.ResourceBundle;
+
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.JsonParser;
+import com.syncthemall.diffbot.model.Compactable;
+
+/**
+ * {@link ModelCodec} based on the reflective binding of google-http-client with a given {@code JsonFactory}.
+ * <p>
+ * This is the default {@code ModelCodec} of a {@link com.syncthemall.diffbot.Diffbot} client, created with the
+ * {@code JsonFactory} passed to its constructor. When a {@link Projection} other than {@link Projection#ALL} is
+ * given, the JSON structure is walked by this codec and the keys outside of the projection are skipped with
+ * {@code JsonParser#skipChildren()}. With the Jackson 2 parser the skipped values are never materialized. The same
+ * applies to the keys without field in the {@code Model} if they are not retained (see
+ * {@link #setUnknownKeys(UnknownKeys)}).
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public class JsonFactoryCodec implements ModelCodec {
+
+	private ResourceBundle bundle = ResourceBundle.getBundle("com.syncthemall.diffbot.messages.Messages");
+	private final JsonFactory jsonFactory;
+	private volatile UnknownKeys unknownKeys = UnknownKeys.RETAIN;
+	private volatile StringInterner interner;
+	private volatile ModelBinder binder = new ModelBinder(UnknownKeys.RETAIN, null);
+	private volatile boolean compactText = false;
+
+	/**
+	 * Creates a {@code ModelCodec} parsing with the given {@code JsonFactory}.
+	 * 
+	 * @param jsonFactory an implementation of {@code JsonFactory}
+	 */
+	public JsonFactoryCodec(final JsonFactory jsonFactory) {
+		super();
+		if (jsonFactory == null) {
+			throw new IllegalArgumentException(bundle.getString("jsonfactory.null"));
+		}
+		this.jsonFactory = jsonFactory;
+	}
+
+	/**
+	 * @return the JSON Factory used to create the parsers.
+	 */
+	public final JsonFactory getJsonFactory() {
+		return jsonFactory;
+	}
+
+	/**
+	 * @return what is done with the JSON keys that are not bound to a field of the {@code Model}
+	 */
+	public final UnknownKeys getUnknownKeys() {
+		return unknownKeys;
+	}
+
+	/**
+	 * By default the JSON keys without a corresponding field in the {@code Model} classes are kept in the unknown keys
+	 * map of every {@code GenericJson} element ({@link UnknownKeys#RETAIN}). For responses carrying a lot of extra
+	 * metadata this map can retain as much memory as the bound fields. With {@link UnknownKeys#DISCARD} those keys are
+	 * skipped by the parser and with {@link UnknownKeys#NAMES} only their names are kept.
+	 * <p>
+	 * The free-form maps ({@code GenericJson} instances such as {@code Article#getQuerystring()}) and the keys declared
+	 * by the {@link com.syncthemall.diffbot.model.DynamicKeys} elements, such as the content extracted in a
+	 * {@code Classified}, are always retained.
+	 * 
+	 * @param unknownKeys what to do with the JSON keys that are not bound to a field (default
+	 *            {@link UnknownKeys#RETAIN})
+	 */
+	public final synchronized void setUnknownKeys(final UnknownKeys unknownKeys) {
+		if (unknownKeys == null) {
+			throw new IllegalArgumentException(MessageFormat.format(bundle.getString("required.parameter.null"),
+					"unknownKeys"));
+		}
+		this.binder = new ModelBinder(unknownKeys, interner);
+		this.unknownKeys = unknownKeys;
+	}
+
+	/**
+	 * @return the table of canonical {@code String} used while parsing, or {@code null} if none
+	 */
+	public final StringInterner getInterner() {
+		return interner;
+	}
+
+	/**
+	 * Sets a table of canonical {@code String} used while parsing. The short {@code String} values repeated across the
+	 * results (languages, MIME types, site names, locales, etc.) and the names of the unknown keys then share the same
+	 * instance. The same {@code StringInterner} can be shared by several codecs.
+	 * 
+	 * @param interner the table of canonical {@code String}, or {@code null} to keep the parsed instances (default)
+	 */
+	public final synchronized void setInterner(final StringInterner interner) {
+		this.binder = new ModelBinder(unknownKeys, interner);
+		this.interner = interner;
+	}
+
+	/**
+	 * @return {@code true} if the large text values of the parsed {@code Model} are kept in their compact form
+	 */
+	public final boolean isCompactText() {
+		return compactText;
+	}
+
+	/**
+	 * When enabled, the large text values of the parsed {@code Model}, such as the text and the HTML of an
+	 * {@code Article}, are kept as UTF-8 bytes and decoded on each access (see {@link Compactable}). This reduces the
+	 * memory retained by the results held between processing steps, at the cost of a decoding on each read.
+	 * 
+	 * @param compactText {@code true} to keep the large text values in their compact form (default {@code false})
+	 */
+	public final void setCompactText(final boolean compactText) {
+		this.compactText = compactText;
+	}
+
+	@Override
+	public <T> T parse(final InputStream content, final Charset charset, final Class<T> dataClass,
+			final Projection projection) throws IOException {
+		return parse(jsonFactory.createJsonParser(content, charset), dataClass, projection);
+	}
+
+	@Override
+	public <T> T parse(final String content, final Class<T> dataClass, final Projection projection)
+			throws IOException {
+		return parse(jsonFactory.createJsonParser(content), dataClass, projection);
+	}
+
+	private <T> T parse(final JsonParser parser, final Class<T> dataClass, final Projection projection)
+			throws IOException {
+		T result;
+		try {
+			if ((projection == null || projection == Projection.ALL) && unknownKeys == UnknownKeys.RETAIN
+					&& interner == null) {
+				result = parser.parseAndClose(dataClass, null);
+			} else {
+				result = binder.parseAndClose(parser, dataClass, projection == null ? Projection.ALL : projection);
+			}
+		} catch (RuntimeException e) {
+			// the JsonParser fails with a NullPointerException or an IllegalArgumentException on truncated content
+			throw new IOException(bundle.getString("json.not.valid"), e);
+		}
+		if (compactText && result instanceof Compactable) {
+			((Compactable) result).compact();
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,184 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.codec;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Map;
+
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.json.JsonParser;
+import com.google.api.client.json.JsonToken;
+import com.google.api.client.util.ClassInfo;
+import com.google.api.client.util.Data;
+import com.google.api.client.util.FieldInfo;
+import com.google.api.client.util.GenericData;
+import com.google.api.client.util.Types;
+import com.syncthemall.diffbot.model.DynamicKeys;
+
+/**
+ * Streaming binder of JSON objects to {@code GenericData} classes applying a {@link Projection}.
+ * <p>
+ * The structure of the JSON (objects and arrays) is walked by this binder so the keys outside of the
+ * {@code Projection}, and the unknown keys if they are not retained, can be skipped at the token level. The scalar
+ * values are converted by the google-http-client parser, so the bound values are the same as with the reflective
+ * binding of the {@code JsonParser}. If a {@link StringInterner} is given, the {@code String} values and the unknown
+ * keys are replaced by their canonical instance.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+final class ModelBinder {
+
+	private final UnknownKeys unknownKeys;
+	private final StringInterner interner;
+
+	/**
+	 * @param unknownKeys what to do with the keys that are not bound to a field
+	 * @param interner the table of canonical {@code String}, or {@code null} to keep the parsed instances
+	 */
+	ModelBinder(final UnknownKeys unknownKeys, final StringInterner interner) {
+		super();
+		this.unknownKeys = unknownKeys;
+		this.interner = interner;
+	}
+
+	/**
+	 * Parses the JSON content of a parser and closes it.
+	 * 
+	 * @param <T> the type to parse into
+	 * @param parser the parser to read
+	 * @param dataClass the class to parse into
+	 * @param projection the keys to bind
+	 * @return a new instance of {@code dataClass} filled with the JSON content
+	 * @throws IOException if the content cannot be read or is not valid JSON
+	 */
+	@SuppressWarnings("unchecked")
+	<T> T parseAndClose(final JsonParser parser, final Class<T> dataClass, final Projection projection)
+			throws IOException {
+		try {
+			if (parser.nextToken() == null) {
+				throw new IllegalArgumentException("no JSON input found");
+			}
+			return (T) parseValue(parser, dataClass, projection);
+		} finally {
+			parser.close();
+		}
+	}
+
+	private Object parseValue(final JsonParser parser, final Type valueType, final Projection projection)
+			throws IOException {
+		JsonToken token = parser.getCurrentToken();
+		if (token == JsonToken.START_OBJECT) {
+			Class<?> valueClass = rawClass(valueType);
+			Object value;
+			if (valueClass == null || valueClass == Object.class || Map.class.isAssignableFrom(valueClass)
+					&& !GenericData.class.isAssignableFrom(valueClass)) {
+				value = Data.newMapInstance(valueClass);
+			} else {
+				value = Types.newInstance(valueClass);
+			}
+			parseObject(parser, value, projection);
+			return value;
+		} else if (token == JsonToken.START_ARRAY) {
+			boolean isArray = valueType != null && Types.isArray(valueType);
+			Type elementType = null;
+			if (isArray) {
+				elementType = Types.getArrayComponentType(valueType);
+			} else if (valueType != null && Iterable.class.isAssignableFrom(rawClass(valueType))) {
+				elementType = Types.getIterableParameter(valueType);
+			}
+			Collection<Object> values = Data.newCollectionInstance(isArray ? null : valueType);
+			while (parser.nextToken() != JsonToken.END_ARRAY) {
+				values.add(parseValue(parser, elementType, projection));
+			}
+			if (isArray) {
+				return Types.toArray(values, rawClass(elementType));
+			}
+			return values;
+		} else {
+			Object value = parser.parse(valueType, false, null);
+			if (interner != null && value instanceof String) {
+				return interner.intern((String) value);
+			}
+			return value;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void parseObject(final JsonParser parser, final Object destination, final Projection projection)
+			throws IOException {
+		if (destination instanceof GenericJson) {
+			((GenericJson) destination).setFactory(parser.getFactory());
+		}
+		ClassInfo classInfo = ClassInfo.of(destination.getClass());
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String key = parser.getCurrentName();
+			parser.nextToken();
+			Projection child = projection.child(key);
+			FieldInfo fieldInfo = classInfo.getFieldInfo(key);
+			if (child == null) {
+				parser.skipChildren();
+			} else if (fieldInfo != null) {
+				fieldInfo.setValue(destination, parseValue(parser, fieldInfo.getGenericType(), child));
+			} else if (destination instanceof GenericData) {
+				if (unknownKeys == UnknownKeys.RETAIN || !isModel(destination) || destination instanceof DynamicKeys
+						&& ((DynamicKeys) destination).isDynamicKey(key)) {
+					((GenericData) destination).set(intern(key), parseValue(parser, null, child));
+				} else {
+					parser.skipChildren();
+					if (unknownKeys == UnknownKeys.NAMES) {
+						((GenericData) destination).set(intern(key), null);
+					}
+				}
+			} else if (destination instanceof Map) {
+				((Map<String, Object>) destination).put(intern(key), parseValue(parser, null, child));
+			} else {
+				parser.skipChildren();
+			}
+		}
+	}
+
+	private String intern(final String key) {
+		return interner == null ? key : interner.intern(key);
+	}
+
+	/**
+	 * The {@code GenericJson} and {@code GenericData} instances are free-form maps (ie the query string of an
+	 * {@code Article}): all their keys are unknown so they are always retained.
+	 */
+	private static boolean isModel(final Object destination) {
+		return destination.getClass() != GenericJson.class && destination.getClass() != GenericData.class;
+	}
+
+	private static Class<?> rawClass(final Type type) {
+		if (type instanceof Class<?>) {
+			return (Class<?>) type;
+		} else if (type instanceof ParameterizedType) {
+			return Types.getRawClass((ParameterizedType) type);
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,73 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Binds the JSON content returned by the Diffbot API to the SDK {@code Model} classes.
+ * <p>
+ * A {@code ModelCodec} is used by the {@link com.syncthemall.diffbot.Diffbot} client to parse the results of the
+ * Article, Image, Product and Classifier APIs, the sub-responses of the batch API and the API error messages. By
+ * default the {@link JsonFactoryCodec} based on the {@code JsonFactory} passed to the {@code Diffbot} constructor is
+ * used. Another implementation can be set with {@link com.syncthemall.diffbot.Diffbot#setModelCodec(ModelCodec)}, for
+ * example to bind the models with Jackson 2 while keeping another JSON implementation for the HTTP layer:
+ * 
+ * <pre>
+ * diffbot.setModelCodec(new JacksonCodec());
+ * </pre>
+ * 
+ * Implementations have to be thread-safe as a single instance is shared by all the requests of a client.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public interface ModelCodec {
+
+	/**
+	 * Parses a JSON stream into a new instance of the given class. The stream is closed once parsed.
+	 * 
+	 * @param <T> the type to parse into
+	 * @param content the JSON content to parse
+	 * @param charset the charset of the content
+	 * @param dataClass the class to parse into
+	 * @param projection the keys to bind, the other keys are skipped without being bound
+	 * @return a new instance of {@code dataClass} filled with the JSON content
+	 * @throws IOException if the content cannot be read or is not valid JSON
+	 */
+	<T> T parse(InputStream content, Charset charset, Class<T> dataClass, Projection projection) throws IOException;
+
+	/**
+	 * Parses a JSON {@code String} into a new instance of the given class.
+	 * 
+	 * @param <T> the type to parse into
+	 * @param content the JSON content to parse
+	 * @param dataClass the class to parse into
+	 * @param projection the keys to bind, the other keys are skipped without being bound
+	 * @return a new instance of {@code dataClass} filled with the JSON content
+	 * @throws IOException if the content is not valid JSON
+	 */
+	<T> T parse(String content, Class<T> dataClass, Projection projection) throws IOException;
+
+}
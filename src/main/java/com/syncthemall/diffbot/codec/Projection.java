@@ -0,0 +1,136 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.codec;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The subset of the JSON keys of a Diffbot response that has to be bound to the {@code Model}, following the syntax of
+ * the {@code fields} parameter of the Diffbot APIs.
+ * <p>
+ * For example {@code title,date,images(url,caption)} keeps the {@code title} and {@code date} keys and, for every
+ * element of {@code images}, only the {@code url} and {@code caption} keys. A key without parentheses or followed by
+ * {@code (*)} is kept with all its sub-keys and {@code *} keeps every key of its level. The {@code url} and
+ * {@code type} keys of the response are always kept as they identify the {@code Model}.
+ * <p>
+ * The keys that are not part of the {@code Projection} are skipped by the parser without being bound.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public final class Projection {
+
+	/** {@code Projection} keeping every key. */
+	public static final Projection ALL = new Projection(Collections.<String, Projection> emptyMap());
+
+	private static final String[] IDENTITY_KEYS = { "url", "type" };
+
+	private final Map<String, Projection> keys;
+
+	private Projection(final Map<String, Projection> keys) {
+		super();
+		this.keys = keys;
+	}
+
+	/**
+	 * Creates a {@code Projection} from the value of the {@code fields} parameter of a Diffbot request.
+	 * 
+	 * @param fields the fields to keep, ie {@code meta,links,images(*)}
+	 * @return the corresponding {@code Projection}, {@link #ALL} if {@code fields} is {@code null}, empty or contains
+	 *         {@code *}
+	 * @throws IllegalArgumentException if the parentheses of {@code fields} are not balanced
+	 */
+	public static Projection parse(final String fields) {
+		if (fields == null || fields.trim().isEmpty()) {
+			return ALL;
+		}
+		Projection projection = parse(fields, new int[] { 0 }, false);
+		if (projection == ALL) {
+			return ALL;
+		}
+		for (String key : IDENTITY_KEYS) {
+			if (!projection.keys.containsKey(key)) {
+				projection.keys.put(key, ALL);
+			}
+		}
+		return projection;
+	}
+
+	private static Projection parse(final String fields, final int[] position, final boolean nested) {
+		Map<String, Projection> keys = new HashMap<String, Projection>();
+		boolean all = false;
+		StringBuilder name = new StringBuilder();
+		while (position[0] < fields.length()) {
+			char c = fields.charAt(position[0]++);
+			if (c == ',') {
+				all |= add(keys, name, ALL);
+			} else if (c == '(') {
+				all |= add(keys, name, parse(fields, position, true));
+			} else if (c == ')') {
+				if (!nested) {
+					throw new IllegalArgumentException("Unbalanced parentheses in fields: " + fields);
+				}
+				all |= add(keys, name, ALL);
+				return all || keys.isEmpty() ? ALL : new Projection(keys);
+			} else if (!Character.isWhitespace(c)) {
+				name.append(c);
+			}
+		}
+		if (nested) {
+			throw new IllegalArgumentException("Unbalanced parentheses in fields: " + fields);
+		}
+		all |= add(keys, name, ALL);
+		return all || keys.isEmpty() ? ALL : new Projection(keys);
+	}
+
+	private static boolean add(final Map<String, Projection> keys, final StringBuilder name, final Projection child) {
+		if (name.length() == 0) {
+			return false;
+		}
+		String key = name.toString();
+		name.setLength(0);
+		if ("*".equals(key)) {
+			return true;
+		}
+		keys.put(key, child);
+		return false;
+	}
+
+	/**
+	 * @param key a JSON key of the object this {@code Projection} applies to
+	 * @return the {@code Projection} to apply to the value of {@code key}, or {@code null} if the key has to be skipped
+	 */
+	public Projection child(final String key) {
+		if (this == ALL) {
+			return ALL;
+		}
+		return keys.get(key);
+	}
+
+	@Override
+	public String toString() {
+		return this == ALL ? "Projection [*]" : "Projection " + keys;
+	}
+
+}
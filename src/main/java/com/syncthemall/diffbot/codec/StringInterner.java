@@ -0,0 +1,119 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.codec;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.google.api.client.util.Data;
+
+/**
+ * Bounded table of canonical {@code String} instances, used by a {@link JsonFactoryCodec} to share the values that
+ * repeat across the parsed results (languages, MIME types, site names, locales, Twitter accounts, etc.).
+ * <p>
+ * The table is direct-mapped: each value has a single slot chosen from its hash code and a value colliding with
+ * another one replaces it. Lookups and updates are lock-free, the memory used by the table never grows beyond its
+ * capacity, and the values longer than the maximum length (such as the text of an article) are never retained.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public final class StringInterner {
+
+	/** Default number of slots of the table. */
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	/** Default maximum length of the interned values. */
+	public static final int DEFAULT_MAX_LENGTH = 64;
+
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	private final AtomicReferenceArray<String> table;
+	private final int mask;
+	private final int maxLength;
+
+	/**
+	 * Creates a {@code StringInterner} with {@value #DEFAULT_CAPACITY} slots retaining values up to
+	 * {@value #DEFAULT_MAX_LENGTH} characters.
+	 */
+	public StringInterner() {
+		this(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+	}
+
+	/**
+	 * Creates a {@code StringInterner}.
+	 * 
+	 * @param capacity the number of slots of the table, rounded up to a power of two
+	 * @param maxLength the maximum length of the values to intern
+	 */
+	public StringInterner(final int capacity, final int maxLength) {
+		super();
+		if (capacity <= 0 || capacity > MAXIMUM_CAPACITY) {
+			throw new IllegalArgumentException("capacity must be between 1 and " + MAXIMUM_CAPACITY);
+		}
+		if (maxLength < 0) {
+			throw new IllegalArgumentException("maxLength cannot be negative");
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		this.table = new AtomicReferenceArray<String>(size);
+		this.mask = size - 1;
+		this.maxLength = maxLength;
+	}
+
+	/**
+	 * @return the number of slots of the table
+	 */
+	public int getCapacity() {
+		return table.length();
+	}
+
+	/**
+	 * @return the maximum length of the interned values
+	 */
+	public int getMaxLength() {
+		return maxLength;
+	}
+
+	/**
+	 * Returns the canonical instance of a value.
+	 * 
+	 * @param value the value to intern
+	 * @return an instance equal to {@code value}, shared with the previous calls when it is still in the table, or
+	 *         {@code value} itself if it is the sentinel of a JSON {@code null}, which equals {@code ""}
+	 */
+	public String intern(final String value) {
+		if (value == null || value.length() > maxLength || Data.isNull(value)) {
+			return value;
+		}
+		int h = value.hashCode();
+		int index = (h ^ (h >>> 16)) & mask;
+		String cached = table.get(index);
+		if (value.equals(cached)) {
+			return cached;
+		}
+		table.lazySet(index, value);
+		return value;
+	}
+
+}
@@ -0,0 +1,102 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.converter;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Conversion of the dates returned by Diffbot.
+ * <p>
+ * The {@code SimpleDateFormat} instances are created once per thread and reused, since they are not thread-safe.
+ * The dates are parsed with the RFC 1123 format used by Diffbot (e.g. "Sat, 11 Jan 2014 00:00:00 GMT"), then with the
+ * ISO 8601 formats.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public final class DateConverter {
+
+	/** Value returned by {@link #parseTime(String)} for a missing or invalid date. */
+	public static final long NO_DATE = Long.MIN_VALUE;
+
+	private static final String RFC_1123 = "EEE, dd MMM yyyy HH:mm:ss zzz";
+	private static final String[] PATTERNS = { RFC_1123, "yyyy-MM-dd'T'HH:mm:ssXXX", "yyyy-MM-dd'T'HH:mm:ss.SSSXXX",
+			"yyyy-MM-dd" };
+
+	private static final ThreadLocal<SimpleDateFormat[]> FORMATS = new ThreadLocal<SimpleDateFormat[]>() {
+		@Override
+		protected SimpleDateFormat[] initialValue() {
+			SimpleDateFormat[] formats = new SimpleDateFormat[PATTERNS.length];
+			for (int i = 0; i < PATTERNS.length; i++) {
+				formats[i] = new SimpleDateFormat(PATTERNS[i], Locale.US);
+				formats[i].setTimeZone(TimeZone.getTimeZone("GMT"));
+			}
+			return formats;
+		}
+	};
+
+	private DateConverter() {
+		super();
+	}
+
+	/**
+	 * @param date a date returned by Diffbot
+	 * @return the number of milliseconds since January 1, 1970, 00:00:00 GMT of {@code date}, or {@link #NO_DATE} if
+	 *         {@code date} is {@code null} or cannot be parsed
+	 */
+	public static long parseTime(final String date) {
+		if (date == null) {
+			return NO_DATE;
+		}
+		String value = date.trim();
+		for (SimpleDateFormat format : FORMATS.get()) {
+			ParsePosition position = new ParsePosition(0);
+			Date result = format.parse(value, position);
+			if (result != null && position.getIndex() == value.length()) {
+				return result.getTime();
+			}
+		}
+		return NO_DATE;
+	}
+
+	/**
+	 * @param date a date returned by Diffbot
+	 * @return the parsed date, or {@code null} if {@code date} is {@code null} or cannot be parsed
+	 */
+	public static Date parse(final String date) {
+		long time = parseTime(date);
+		return time == NO_DATE ? null : new Date(time);
+	}
+
+	/**
+	 * @param date a date
+	 * @return {@code date} in the RFC 1123 format used by Diffbot
+	 */
+	public static String format(final Date date) {
+		return FORMATS.get()[0].format(date);
+	}
+
+}
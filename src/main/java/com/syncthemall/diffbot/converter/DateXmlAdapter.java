@@ -23,27 +23,29 @@
 package com.syncthemall.diffbot.converter;
 
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 
 import javax.xml.bind.annotation.adapters.XmlAdapter;
 
 /**
- * {@code XmlAdapter} to convert {@code String} from Diffbot Frontpage results to {@code Date}.
+ * {@code XmlAdapter} to convert {@code String} from Diffbot Frontpage results to {@code Date}, with the formats of
+ * {@link DateConverter}.
  * 
  * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
  */
 public class DateXmlAdapter extends XmlAdapter<String, Date> {
-	
-	private static final String DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
-	
+
 	@Override
 	public final String marshal(final Date v) {
-		return new SimpleDateFormat(DATE_FORMAT).format(new Date(v.getTime()));
+		return DateConverter.format(v);
 	}
 
 	@Override
 	public final Date unmarshal(final String v) throws ParseException {
-		return new SimpleDateFormat(DATE_FORMAT).parse(v);
+		Date date = DateConverter.parse(v);
+		if (date == null) {
+			throw new ParseException("Unparseable date: \"" + v + "\"", 0);
+		}
+		return date;
 	}
 }
@@ -0,0 +1,294 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.converter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Canonicalization of the URLs submitted to Diffbot, so the variants of the same page are requested, cached and
+ * de-duplicated as one URL.
+ * <p>
+ * In addition to the normalization of {@link UrlNormalizer} (lower-case scheme and host, no fragment), the canonical
+ * URL:
+ * <ul>
+ * <li>has no default port (80 for HTTP, 443 for HTTPS) and a {@code /} path if it has none</li>
+ * <li>has no trailing slash in its path, unless {@link #setRemoveTrailingSlash(boolean)} is {@code false}</li>
+ * <li>uses HTTPS instead of HTTP if {@link #setForceHttps(boolean)} is {@code true}</li>
+ * <li>has no tracking query parameter: {@code utm_*}, {@code gclid}, {@code fbclid} and {@code ref} by default, plus
+ * the parameters added with {@link #addParameters(String...)} for all the domains or with
+ * {@link #addDomainParameters(String, String...)} for a domain and its sub-domains</li>
+ * <li>has its query parameters sorted by name if {@link #setSortParameters(boolean)} is {@code true}</li>
+ * </ul>
+ * A parameter name ending with {@code *} matches all the parameters starting with the rest of the name. The URL is read
+ * in a single pass, without regular expressions.
+ * <p>
+ * The configuration methods are meant to be called before the canonicalizer is used. {@link #canonicalize(String)} is
+ * thread-safe.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public final class UrlCanonicalizer {
+
+	private static final String HTTP = "http";
+	private static final String HTTPS = "https";
+	private static final String WILDCARD = "*";
+
+	/**
+	 * Compares the query parameters by name, keeping the order of the parameters with the same name.
+	 */
+	private static final Comparator<String> BY_NAME = new Comparator<String>() {
+		@Override
+		public int compare(final String a, final String b) {
+			return name(a).compareTo(name(b));
+		}
+
+		private String name(final String parameter) {
+			int equals = parameter.indexOf('=');
+			return equals < 0 ? parameter : parameter.substring(0, equals);
+		}
+	};
+
+	private volatile boolean forceHttps;
+	private volatile boolean removeTrailingSlash = true;
+	private volatile boolean sortParameters;
+	private volatile Parameters parameters = new Parameters().with("utm_*", "gclid", "fbclid", "ref");
+	private volatile Map<String, Parameters> domainParameters = Collections.emptyMap();
+
+	/**
+	 * @param forceHttps {@code true} to replace the HTTP scheme by HTTPS (default {@code false})
+	 */
+	public void setForceHttps(final boolean forceHttps) {
+		this.forceHttps = forceHttps;
+	}
+
+	/**
+	 * @param removeTrailingSlash {@code true} to remove the trailing slashes of the paths (default {@code true})
+	 */
+	public void setRemoveTrailingSlash(final boolean removeTrailingSlash) {
+		this.removeTrailingSlash = removeTrailingSlash;
+	}
+
+	/**
+	 * @param sortParameters {@code true} to sort the query parameters by name (default {@code false})
+	 */
+	public void setSortParameters(final boolean sortParameters) {
+		this.sortParameters = sortParameters;
+	}
+
+	/**
+	 * Adds query parameters to remove from the URLs of all the domains.
+	 * 
+	 * @param names the names of the parameters, ending with {@code *} to match a prefix
+	 */
+	public synchronized void addParameters(final String... names) {
+		parameters = parameters.with(names);
+	}
+
+	/**
+	 * Adds query parameters to remove from the URLs of a domain and its sub-domains.
+	 * 
+	 * @param domain a domain, e.g. {@code amazon.com}
+	 * @param names the names of the parameters, ending with {@code *} to match a prefix
+	 */
+	public synchronized void addDomainParameters(final String domain, final String... names) {
+		String key = domain.toLowerCase(Locale.ENGLISH);
+		Map<String, Parameters> copy = new HashMap<String, Parameters>(domainParameters);
+		Parameters current = copy.get(key);
+		copy.put(key, (current == null ? new Parameters() : current).with(names));
+		domainParameters = copy;
+	}
+
+	/**
+	 * Canonicalizes a URL.
+	 * 
+	 * @param url a URL
+	 * @return the canonical URL, or {@code null} if {@code url} is {@code null}
+	 */
+	public String canonicalize(final String url) {
+		if (url == null) {
+			return null;
+		}
+		String value = url.trim();
+		int end = value.indexOf('#');
+		if (end < 0) {
+			end = value.length();
+		}
+		int schemeEnd = value.indexOf("://");
+		if (schemeEnd <= 0 || schemeEnd > end) {
+			return value.substring(0, end);
+		}
+		String scheme = value.substring(0, schemeEnd).toLowerCase(Locale.ENGLISH);
+		int authorityStart = schemeEnd + 3;
+		int authorityEnd = authorityStart;
+		while (authorityEnd < end && value.charAt(authorityEnd) != '/' && value.charAt(authorityEnd) != '?') {
+			authorityEnd++;
+		}
+		String authority = value.substring(authorityStart, authorityEnd).toLowerCase(Locale.ENGLISH);
+		int hostStart = authority.lastIndexOf('@') + 1;
+		int port = authority.lastIndexOf(':');
+		String host;
+		if (port >= hostStart && port > authority.lastIndexOf(']')) {
+			host = authority.substring(hostStart, port);
+			if (port == authority.length() - 1 || authority.substring(port + 1).equals(defaultPort(scheme))) {
+				authority = authority.substring(0, port);
+			}
+		} else {
+			host = authority.substring(hostStart);
+		}
+		if (forceHttps && scheme.equals(HTTP)) {
+			scheme = HTTPS;
+		}
+
+		StringBuilder result = new StringBuilder(end + 8).append(scheme).append("://").append(authority);
+		int query = value.indexOf('?', authorityEnd);
+		int pathEnd = query < 0 || query > end ? end : query;
+		int path = pathEnd;
+		if (removeTrailingSlash) {
+			while (path - authorityEnd > 1 && value.charAt(path - 1) == '/') {
+				path--;
+			}
+		}
+		if (path == authorityEnd) {
+			result.append('/');
+		} else {
+			result.append(value, authorityEnd, path);
+		}
+		if (pathEnd < end) {
+			appendQuery(result, value, pathEnd + 1, end, host);
+		}
+		return result.toString();
+	}
+
+	private void appendQuery(final StringBuilder result, final String value, final int start, final int end,
+			final String host) {
+		Parameters global = parameters;
+		Parameters domain = domainParameters(host);
+		List<String> sorted = sortParameters ? new ArrayList<String>() : null;
+		int length = result.length();
+		for (int i = start; i < end;) {
+			int next = value.indexOf('&', i);
+			if (next < 0 || next > end) {
+				next = end;
+			}
+			if (next > i) {
+				int equals = value.indexOf('=', i);
+				String name = value.substring(i, equals < 0 || equals > next ? next : equals);
+				if (!global.matches(name) && (domain == null || !domain.matches(name))) {
+					if (sorted != null) {
+						sorted.add(value.substring(i, next));
+					} else {
+						result.append(result.length() == length ? '?' : '&').append(value, i, next);
+					}
+				}
+			}
+			i = next + 1;
+		}
+		if (sorted != null) {
+			Collections.sort(sorted, BY_NAME);
+			for (String parameter : sorted) {
+				result.append(result.length() == length ? '?' : '&').append(parameter);
+			}
+		}
+	}
+
+	private Parameters domainParameters(final String host) {
+		Map<String, Parameters> domains = domainParameters;
+		if (domains.isEmpty()) {
+			return null;
+		}
+		String domain = host;
+		while (true) {
+			Parameters result = domains.get(domain);
+			if (result != null) {
+				return result;
+			}
+			int dot = domain.indexOf('.');
+			if (dot < 0) {
+				return null;
+			}
+			domain = domain.substring(dot + 1);
+		}
+	}
+
+	private static String defaultPort(final String scheme) {
+		if (scheme.equals(HTTP)) {
+			return "80";
+		} else if (scheme.equals(HTTPS)) {
+			return "443";
+		}
+		return null;
+	}
+
+	/**
+	 * Immutable set of parameter names and prefixes.
+	 */
+	private static final class Parameters {
+
+		private final Set<String> names;
+		private final String[] prefixes;
+
+		private Parameters() {
+			this(Collections.<String> emptySet(), new String[0]);
+		}
+
+		private Parameters(final Set<String> names, final String[] prefixes) {
+			this.names = names;
+			this.prefixes = prefixes;
+		}
+
+		private Parameters with(final String... added) {
+			Set<String> newNames = new HashSet<String>(names);
+			List<String> newPrefixes = new ArrayList<String>(Arrays.asList(prefixes));
+			for (String name : added) {
+				if (name.endsWith(WILDCARD)) {
+					newPrefixes.add(name.substring(0, name.length() - 1));
+				} else {
+					newNames.add(name);
+				}
+			}
+			return new Parameters(newNames, newPrefixes.toArray(new String[newPrefixes.size()]));
+		}
+
+		private boolean matches(final String name) {
+			if (names.contains(name)) {
+				return true;
+			}
+			for (String prefix : prefixes) {
+				if (name.startsWith(prefix)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,68 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.converter;
+
+import java.util.Locale;
+
+/**
+ * Normalization of the URLs submitted to Diffbot, used to compare the results and the requests.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public final class UrlNormalizer {
+
+	private UrlNormalizer() {
+		super();
+	}
+
+	/**
+	 * Normalizes a URL by lower-casing its scheme and host and removing its fragment.
+	 * 
+	 * @param url a URL
+	 * @return the normalized URL, or {@code null} if {@code url} is {@code null}
+	 */
+	public static String normalize(final String url) {
+		if (url == null) {
+			return null;
+		}
+		String result = url.trim();
+		int fragment = result.indexOf('#');
+		if (fragment >= 0) {
+			result = result.substring(0, fragment);
+		}
+		int scheme = result.indexOf("://");
+		if (scheme > 0) {
+			int authorityEnd = scheme + 3;
+			while (authorityEnd < result.length() && "/?".indexOf(result.charAt(authorityEnd)) < 0) {
+				authorityEnd++;
+			}
+			String authority = result.substring(0, authorityEnd);
+			String lowerAuthority = authority.toLowerCase(Locale.ENGLISH);
+			if (!authority.equals(lowerAuthority)) {
+				result = lowerAuthority + result.substring(authorityEnd);
+			}
+		}
+		return result;
+	}
+
+}
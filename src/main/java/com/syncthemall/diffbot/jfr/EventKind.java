@@ -0,0 +1,46 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.jfr;
+
+/**
+ * The stages of the requests recorded as Flight Recorder events. Each stage is a distinct event type, named
+ * {@code com.syncthemall.diffbot.<name>}, that can be enabled and given a threshold in the JFR settings.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public enum EventKind {
+
+	/** The time a request waited in the batch queue, from {@code queue()} to its dispatch in a batch call. */
+	QUEUE,
+	/** The building of the query of a batch call. */
+	BATCH_BUILD,
+	/** The HTTP round trip of a batch call, including the reading of its response. */
+	BATCH_REQUEST,
+	/** The HTTP round trip of a direct call ({@code execute()}), including the reading of its response. */
+	REQUEST,
+	/** The parsing of a JSON response or batch sub-response. */
+	PARSE,
+	/** The unmarshalling of a Frontpage DML response or batch sub-response. */
+	UNMARSHAL;
+
+}
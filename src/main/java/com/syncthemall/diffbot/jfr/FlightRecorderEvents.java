@@ -0,0 +1,81 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.jfr;
+
+import com.syncthemall.diffbot.DiffbotRequest.ApiType;
+
+/**
+ * Records the stages of the requests as JDK Flight Recorder events, when the JVM provides it ({@code jdk.jfr}, since
+ * Java 8u262). On older JVMs, or when the events are disabled in the recording settings, the returned {@link Span}s do
+ * nothing and nothing is allocated.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public final class FlightRecorderEvents {
+
+	/** The {@code Span} of the stages that are not recorded. */
+	public static final Span NOOP = new Span() {
+		@Override
+		public void end(final ApiType apiType, final int batchSize, final long bytes, final Throwable error) {
+			return;
+		}
+	};
+
+	private static final String JFR_EVENT = "jdk.jfr.Event";
+	private static final String JFR_EVENTS = "com.syncthemall.diffbot.jfr.JfrEvents";
+	private static final SpanFactory FACTORY = load();
+
+	private FlightRecorderEvents() {
+		super();
+	}
+
+	/**
+	 * @return {@code true} if the JVM provides the Flight Recorder and the events are registered
+	 */
+	public static boolean isAvailable() {
+		return FACTORY != null;
+	}
+
+	/**
+	 * Starts the recording of a stage.
+	 * 
+	 * @param kind the stage to record
+	 * @return the started {@code Span}, to end when the stage is over
+	 */
+	public static Span begin(final EventKind kind) {
+		return FACTORY == null ? NOOP : FACTORY.begin(kind);
+	}
+
+	/**
+	 * The event classes are only loaded if {@code jdk.jfr} is in the JVM.
+	 */
+	private static SpanFactory load() {
+		try {
+			Class.forName(JFR_EVENT);
+			return (SpanFactory) Class.forName(JFR_EVENTS).getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,163 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.jfr;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import com.syncthemall.diffbot.DiffbotRequest.ApiType;
+
+/**
+ * The Flight Recorder events of the SDK. This class references {@code jdk.jfr} and is only loaded by
+ * {@link FlightRecorderEvents} if it is in the JVM.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+final class JfrEvents implements SpanFactory {
+
+	private static final String SUCCESS = "success";
+
+	private final Map<EventKind, EventType> types = new EnumMap<EventKind, EventType>(EventKind.class);
+
+	JfrEvents() {
+		super();
+		types.put(EventKind.QUEUE, EventType.getEventType(QueueEvent.class));
+		types.put(EventKind.BATCH_BUILD, EventType.getEventType(BatchBuildEvent.class));
+		types.put(EventKind.BATCH_REQUEST, EventType.getEventType(BatchRequestEvent.class));
+		types.put(EventKind.REQUEST, EventType.getEventType(RequestEvent.class));
+		types.put(EventKind.PARSE, EventType.getEventType(ParseEvent.class));
+		types.put(EventKind.UNMARSHAL, EventType.getEventType(UnmarshalEvent.class));
+	}
+
+	@Override
+	public Span begin(final EventKind kind) {
+		if (!types.get(kind).isEnabled()) {
+			return FlightRecorderEvents.NOOP;
+		}
+		DiffbotEvent event;
+		switch (kind) {
+		case QUEUE:
+			event = new QueueEvent();
+			break;
+		case BATCH_BUILD:
+			event = new BatchBuildEvent();
+			break;
+		case BATCH_REQUEST:
+			event = new BatchRequestEvent();
+			break;
+		case REQUEST:
+			event = new RequestEvent();
+			break;
+		case PARSE:
+			event = new ParseEvent();
+			break;
+		default:
+			event = new UnmarshalEvent();
+			break;
+		}
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * The fields shared by all the events. They are not private, as the Flight Recorder ignores the private fields of
+	 * the event super classes.
+	 */
+	@Category("Diffbot")
+	@StackTrace(false)
+	abstract static class DiffbotEvent extends Event implements Span {
+
+		@Label("API")
+		String api;
+
+		@Label("Batch Size")
+		int batchSize;
+
+		@Label("Bytes")
+		@DataAmount
+		long bytes;
+
+		@Label("Outcome")
+		@Description("success, or the simple name of the exception")
+		String outcome;
+
+		@Override
+		public final void end(final ApiType apiType, final int size, final long length, final Throwable error) {
+			end();
+			if (shouldCommit()) {
+				this.api = apiType == null ? null : apiType.name().toLowerCase(Locale.ENGLISH);
+				this.batchSize = size;
+				this.bytes = length;
+				this.outcome = error == null ? SUCCESS : error.getClass().getSimpleName();
+				commit();
+			}
+		}
+	}
+
+	@Name("com.syncthemall.diffbot.Queue")
+	@Label("Diffbot Queue Wait")
+	@Description("Time a request waited in the batch queue")
+	static final class QueueEvent extends DiffbotEvent {
+	}
+
+	@Name("com.syncthemall.diffbot.BatchBuild")
+	@Label("Diffbot Batch Build")
+	@Description("Building of the query of a batch call")
+	static final class BatchBuildEvent extends DiffbotEvent {
+	}
+
+	@Name("com.syncthemall.diffbot.BatchRequest")
+	@Label("Diffbot Batch Request")
+	@Description("HTTP round trip of a batch call")
+	static final class BatchRequestEvent extends DiffbotEvent {
+	}
+
+	@Name("com.syncthemall.diffbot.Request")
+	@Label("Diffbot Request")
+	@Description("HTTP round trip of a direct call")
+	static final class RequestEvent extends DiffbotEvent {
+	}
+
+	@Name("com.syncthemall.diffbot.Parse")
+	@Label("Diffbot Parse")
+	@Description("Parsing of a JSON response or batch sub-response")
+	static final class ParseEvent extends DiffbotEvent {
+	}
+
+	@Name("com.syncthemall.diffbot.Unmarshal")
+	@Label("Diffbot Frontpage Unmarshal")
+	@Description("Unmarshalling of a Frontpage DML response or batch sub-response")
+	static final class UnmarshalEvent extends DiffbotEvent {
+	}
+
+}
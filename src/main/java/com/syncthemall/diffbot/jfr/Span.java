@@ -0,0 +1,44 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.jfr;
+
+import com.syncthemall.diffbot.DiffbotRequest.ApiType;
+
+/**
+ * A stage of a request being recorded, started by {@link FlightRecorderEvents#begin(EventKind)}.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public interface Span {
+
+	/**
+	 * Ends this stage and commits its event if it is enabled and above its threshold.
+	 * 
+	 * @param apiType the API of the request, or {@code null} for a batch call
+	 * @param batchSize the number of requests of the batch call, or 1 for a direct call
+	 * @param bytes the size of the response or query, or 0 if it doesn't apply
+	 * @param error the error that ended this stage, or {@code null} if it succeeded
+	 */
+	void end(ApiType apiType, int batchSize, long bytes, Throwable error);
+
+}
@@ -0,0 +1,94 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.metrics;
+
+import com.syncthemall.diffbot.DiffbotRequest.ApiType;
+import com.syncthemall.diffbot.Future;
+import com.syncthemall.diffbot.exception.DiffbotException;
+import com.syncthemall.diffbot.model.Model;
+
+/**
+ * Listener of the requests made by a {@code Diffbot} client, to measure their latency, size and errors. The durations
+ * are in nanoseconds, measured with {@code System.nanoTime()}.
+ * <p>
+ * The methods are called by the threads executing the requests: the implementations have to be thread-safe and should
+ * return quickly. {@link HistogramMetrics} is the built-in implementation.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public interface DiffbotMetrics {
+
+	/**
+	 * Called when a direct call ({@code execute()}) received its response.
+	 * 
+	 * @param apiType the API called
+	 * @param roundTripNanos the time from the sending of the request to the reception of the response headers
+	 * @param bytes the size of the response body
+	 */
+	void requestCompleted(ApiType apiType, long roundTripNanos, long bytes);
+
+	/**
+	 * Called when the response of a batch call has been parsed.
+	 * 
+	 * @param size the number of sub-requests of the batch
+	 * @param maxSize the maximum number of sub-requests of a batch
+	 * @param roundTripNanos the time from the sending of the batch request to the reception of the response headers,
+	 *            without the parsing of the response
+	 * @param bytes the size of the response body
+	 */
+	void batchCompleted(int size, int maxSize, long roundTripNanos, long bytes);
+
+	/**
+	 * Called when a response or a batch sub-response has been parsed in a {@code Model}.
+	 * 
+	 * @param apiType the API called
+	 * @param parseNanos the time to read and parse the response
+	 */
+	void responseParsed(ApiType apiType, long parseNanos);
+
+	/**
+	 * Called when a queued request is sent in a batch.
+	 * 
+	 * @param apiType the API of the request
+	 * @param waitNanos the time the request waited in the batch queue
+	 */
+	void queueWaited(ApiType apiType, long waitNanos);
+
+	/**
+	 * Called when the result or error of a queued request has been set from its batch sub-response. The
+	 * {@code Future} holds the times at which the request was queued, sent, answered and parsed.
+	 * 
+	 * @param apiType the API of the request
+	 * @param future the completed {@code Future}
+	 */
+	void futureCompleted(ApiType apiType, Future<? extends Model> future);
+
+	/**
+	 * Called when a request or a batch sub-request failed.
+	 * 
+	 * @param apiType the API of the request
+	 * @param error the error thrown or set on the {@code Future} of the request
+	 */
+	void failed(ApiType apiType, DiffbotException error);
+
+}
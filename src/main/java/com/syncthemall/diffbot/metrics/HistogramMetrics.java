@@ -0,0 +1,248 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.metrics;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.syncthemall.diffbot.DiffbotRequest.ApiType;
+import com.syncthemall.diffbot.Future;
+import com.syncthemall.diffbot.exception.DiffbotException;
+import com.syncthemall.diffbot.model.Model;
+
+/**
+ * Built-in {@link DiffbotMetrics}, recording the durations in {@link LatencyHistogram} and the sizes and errors in
+ * atomic counters. Recording is lock-free and does not allocate.
+ * <p>
+ * The values are read with the getters, or all at once with {@link #snapshot()} in a flat map suitable for a metrics
+ * scraper.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public final class HistogramMetrics implements DiffbotMetrics {
+
+	private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+	private final Map<ApiType, ApiMetrics> apis = new EnumMap<ApiType, ApiMetrics>(ApiType.class);
+	private final LatencyHistogram batchRoundTrip = new LatencyHistogram();
+	private final AtomicLong batchBytes = new AtomicLong();
+	private final AtomicLong batchRequests = new AtomicLong();
+	private final AtomicLong batchCapacity = new AtomicLong();
+	private final ConcurrentMap<String, AtomicLong> errors = new ConcurrentHashMap<String, AtomicLong>();
+
+	/**
+	 * Creates an empty {@code HistogramMetrics}.
+	 */
+	public HistogramMetrics() {
+		super();
+		for (ApiType apiType : ApiType.values()) {
+			apis.put(apiType, new ApiMetrics());
+		}
+	}
+
+	@Override
+	public void requestCompleted(final ApiType apiType, final long roundTripNanos, final long bytes) {
+		ApiMetrics api = apis.get(apiType);
+		api.roundTrip.record(roundTripNanos);
+		api.bytes.addAndGet(bytes);
+	}
+
+	@Override
+	public void batchCompleted(final int size, final int maxSize, final long roundTripNanos, final long bytes) {
+		batchRoundTrip.record(roundTripNanos);
+		batchBytes.addAndGet(bytes);
+		batchRequests.addAndGet(size);
+		batchCapacity.addAndGet(maxSize);
+	}
+
+	@Override
+	public void responseParsed(final ApiType apiType, final long parseNanos) {
+		apis.get(apiType).parse.record(parseNanos);
+	}
+
+	@Override
+	public void queueWaited(final ApiType apiType, final long waitNanos) {
+		apis.get(apiType).queueWait.record(waitNanos);
+	}
+
+	@Override
+	public void futureCompleted(final ApiType apiType, final Future<? extends Model> future) {
+		apis.get(apiType).endToEnd.record(future.getLatencyNanos());
+	}
+
+	@Override
+	public void failed(final ApiType apiType, final DiffbotException error) {
+		if (apiType != null) {
+			apis.get(apiType).errors.incrementAndGet();
+		}
+		String type = error.getClass().getSimpleName();
+		AtomicLong count = errors.get(type);
+		if (count == null) {
+			AtomicLong created = new AtomicLong();
+			count = errors.putIfAbsent(type, created);
+			if (count == null) {
+				count = created;
+			}
+		}
+		count.incrementAndGet();
+	}
+
+	/**
+	 * @param apiType an API
+	 * @return the round trip durations of the direct calls to {@code apiType}
+	 */
+	public HistogramSnapshot getRoundTrip(final ApiType apiType) {
+		return apis.get(apiType).roundTrip.snapshot();
+	}
+
+	/**
+	 * @param apiType an API
+	 * @return the parse durations of the responses and sub-responses of {@code apiType}
+	 */
+	public HistogramSnapshot getParseTime(final ApiType apiType) {
+		return apis.get(apiType).parse.snapshot();
+	}
+
+	/**
+	 * @param apiType an API
+	 * @return the durations the requests to {@code apiType} waited in the batch queue
+	 */
+	public HistogramSnapshot getQueueWait(final ApiType apiType) {
+		return apis.get(apiType).queueWait.snapshot();
+	}
+
+	/**
+	 * @param apiType an API
+	 * @return the durations from the queuing of the requests to {@code apiType} to their result from a batch call
+	 */
+	public HistogramSnapshot getEndToEnd(final ApiType apiType) {
+		return apis.get(apiType).endToEnd.snapshot();
+	}
+
+	/**
+	 * @param apiType an API
+	 * @return the size of the responses of the direct calls to {@code apiType}
+	 */
+	public long getBytes(final ApiType apiType) {
+		return apis.get(apiType).bytes.get();
+	}
+
+	/**
+	 * @param apiType an API
+	 * @return the number of failed requests to {@code apiType}
+	 */
+	public long getErrorCount(final ApiType apiType) {
+		return apis.get(apiType).errors.get();
+	}
+
+	/**
+	 * @param type a type of error
+	 * @return the number of requests failed with this type of error
+	 */
+	public long getErrorCount(final Class<? extends DiffbotException> type) {
+		AtomicLong count = errors.get(type.getSimpleName());
+		return count == null ? 0 : count.get();
+	}
+
+	/**
+	 * @return the round trip durations of the batch calls
+	 */
+	public HistogramSnapshot getBatchRoundTrip() {
+		return batchRoundTrip.snapshot();
+	}
+
+	/**
+	 * @return the average ratio of sub-requests to the maximum number of sub-requests of the batch calls, or 0 if
+	 *         there was none
+	 */
+	public double getBatchFillRatio() {
+		long capacity = batchCapacity.get();
+		return capacity == 0 ? 0 : (double) batchRequests.get() / capacity;
+	}
+
+	/**
+	 * Returns all the values, by name. The names are made of the API (e.g. {@code article}) or {@code batch}, the
+	 * measure and the statistic, e.g. {@code article.round_trip_ns.p99}, {@code batch.fill_ratio} or
+	 * {@code errors.DiffbotAPIException}.
+	 * 
+	 * @return the values sorted by name
+	 */
+	public SortedMap<String, Number> snapshot() {
+		SortedMap<String, Number> result = new TreeMap<String, Number>();
+		for (Entry<ApiType, ApiMetrics> entry : apis.entrySet()) {
+			String api = entry.getKey().name().toLowerCase(Locale.ENGLISH);
+			ApiMetrics metrics = entry.getValue();
+			put(result, api + ".round_trip_ns", metrics.roundTrip.snapshot());
+			put(result, api + ".parse_ns", metrics.parse.snapshot());
+			put(result, api + ".queue_wait_ns", metrics.queueWait.snapshot());
+			put(result, api + ".end_to_end_ns", metrics.endToEnd.snapshot());
+			result.put(api + ".bytes", metrics.bytes.get());
+			result.put(api + ".errors", metrics.errors.get());
+		}
+		put(result, "batch.round_trip_ns", batchRoundTrip.snapshot());
+		result.put("batch.bytes", batchBytes.get());
+		result.put("batch.requests", batchRequests.get());
+		result.put("batch.fill_ratio", getBatchFillRatio());
+		for (Entry<String, AtomicLong> entry : errors.entrySet()) {
+			result.put("errors." + entry.getKey(), entry.getValue().get());
+		}
+		return result;
+	}
+
+	private static void put(final Map<String, Number> result, final String name, final HistogramSnapshot histogram) {
+		result.put(name + ".count", histogram.getCount());
+		result.put(name + ".mean", histogram.getMean());
+		result.put(name + ".max", histogram.getMax());
+		for (double percentile : PERCENTILES) {
+			String suffix = percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String
+					.valueOf(percentile).replace(".", "");
+			result.put(name + ".p" + suffix, histogram.getPercentile(percentile));
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("HistogramMetrics %s", snapshot());
+	}
+
+	/**
+	 * Measures of an API.
+	 */
+	private static final class ApiMetrics {
+
+		private final LatencyHistogram roundTrip = new LatencyHistogram();
+		private final LatencyHistogram parse = new LatencyHistogram();
+		private final LatencyHistogram queueWait = new LatencyHistogram();
+		private final LatencyHistogram endToEnd = new LatencyHistogram();
+		private final AtomicLong bytes = new AtomicLong();
+		private final AtomicLong errors = new AtomicLong();
+	}
+
+}
@@ -0,0 +1,105 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.metrics;
+
+/**
+ * Immutable copy of the values recorded by a {@link LatencyHistogram}.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public final class HistogramSnapshot {
+
+	private final long[] counts;
+	private final long count;
+	private final long sum;
+	private final long max;
+
+	HistogramSnapshot(final long[] counts, final long sum, final long max) {
+		super();
+		this.counts = counts;
+		long total = 0;
+		for (long c : counts) {
+			total += c;
+		}
+		this.count = total;
+		this.sum = sum;
+		this.max = max;
+	}
+
+	/**
+	 * @return the number of recorded values
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the sum of the recorded values
+	 */
+	public long getSum() {
+		return sum;
+	}
+
+	/**
+	 * @return the mean of the recorded values, or 0 if there is none
+	 */
+	public double getMean() {
+		return count == 0 ? 0 : (double) sum / count;
+	}
+
+	/**
+	 * @return the maximum recorded value, or 0 if there is none
+	 */
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * @param percentile a percentile between 0 and 100
+	 * @return the value under which {@code percentile}% of the recorded values are, or 0 if there is none
+	 */
+	public long getPercentile(final double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("percentile must be between 0 and 100");
+		}
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(LatencyHistogram.highestValue(i), max);
+			}
+		}
+		return max;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("HistogramSnapshot [count=%s, mean=%.1f, p50=%s, p99=%s, max=%s]", count, getMean(),
+				getPercentile(50), getPercentile(99), max);
+	}
+
+}
@@ -31,6 +31,9 @@ import com.google.api.client.json.GenericJson;
  */
 public abstract class Model extends GenericJson {
 
+	private transient ModelIdentity identity;
+	private transient String requestedUrl;
+
 	/**
 	 * @return the submitted URL
 	 */
@@ -41,13 +44,42 @@ public abstract class Model extends GenericJson {
 	 */
 	public abstract PageType getType();
 
+	/**
+	 * @return the URL passed to the request that returned this result, before its canonicalization, or {@code null}
+	 *         if this result was not returned by a request
+	 */
+	public final String getRequestedUrl() {
+		return requestedUrl;
+	}
+
+	/**
+	 * Sets the URL passed to the request that returned this result. This method is called by the client before the
+	 * result is returned.
+	 * 
+	 * @param requestedUrl the URL passed to the request, before its canonicalization
+	 */
+	public final void setRequestedUrl(final String requestedUrl) {
+		this.requestedUrl = requestedUrl;
+	}
+
+	/**
+	 * Returns the identity of this result, computed on first use from its {@link #getType()} and {@link #getUrl()}.
+	 * Two {@code Model} are equal if they have the same identity.
+	 * 
+	 * @return the identity of this result
+	 */
+	public final ModelIdentity getIdentity() {
+		ModelIdentity result = identity;
+		if (result == null) {
+			result = new ModelIdentity(getType(), getUrl());
+			identity = result;
+		}
+		return result;
+	}
+
 	@Override
 	public final int hashCode() {
-		final int prime = 31;
-		int result = super.hashCode();
-		result = prime * result + ((getType() == null) ? 0 : getType().hashCode());
-		result = prime * result + ((getUrl() == null) ? 0 : getUrl().hashCode());
-		return result;
+		return getIdentity().hashCode();
 	}
 
 	@Override
@@ -55,24 +87,10 @@ public abstract class Model extends GenericJson {
 		if (this == obj) {
 			return true;
 		}
-		if (obj == null) {
-			return false;
-		}
 		if (!(obj instanceof Model)) {
 			return false;
 		}
-		Model other = (Model) obj;
-		if (getType() != other.getType()) {
-			return false;
-		}
-		if (getUrl() == null) {
-			if (other.getUrl() != null) {
-				return false;
-			}
-		} else if (!getUrl().equals(other.getUrl())) {
-			return false;
-		}
-		return true;
+		return getIdentity().equals(((Model) obj).getIdentity());
 	}
 
 }
@@ -0,0 +1,123 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.model;
+
+import java.io.Serializable;
+
+import com.syncthemall.diffbot.converter.UrlNormalizer;
+
+/**
+ * Compact identity of a {@link Model}: its {@link PageType}, its normalized URL and a 64-bit hash of both.
+ * <p>
+ * The hash is computed once, so comparing or hashing two identities never touches the body of the results. The URL is
+ * normalized with {@link UrlNormalizer}.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public final class ModelIdentity implements Serializable {
+
+	/** Serial code version <code>serialVersionUID</code>. **/
+	private static final long serialVersionUID = 3358915069851371587L;
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final PageType type;
+	private final String url;
+	private final long hash;
+
+	/**
+	 * Creates the identity of a result.
+	 * 
+	 * @param type the type of page of the result
+	 * @param url the submitted URL of the result
+	 */
+	public ModelIdentity(final PageType type, final String url) {
+		super();
+		this.type = type;
+		this.url = UrlNormalizer.normalize(url);
+		this.hash = hash(type, this.url);
+	}
+
+	/**
+	 * @return the type of page
+	 */
+	public PageType getType() {
+		return type;
+	}
+
+	/**
+	 * @return the normalized URL
+	 */
+	public String getUrl() {
+		return url;
+	}
+
+	/**
+	 * @return the 64-bit FNV-1a hash of the type and normalized URL
+	 */
+	public long getHash() {
+		return hash;
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ModelIdentity)) {
+			return false;
+		}
+		ModelIdentity other = (ModelIdentity) obj;
+		if (hash != other.hash || type != other.type) {
+			return false;
+		}
+		return url == null ? other.url == null : url.equals(other.url);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ModelIdentity [type=%s, url=%s]", type, url);
+	}
+
+	private static long hash(final PageType type, final String url) {
+		long result = FNV_OFFSET_BASIS;
+		if (type != null) {
+			result = (result ^ (type.ordinal() + 1)) * FNV_PRIME;
+		}
+		if (url != null) {
+			for (int i = 0; i < url.length(); i++) {
+				char c = url.charAt(i);
+				result = (result ^ (c & 0xff)) * FNV_PRIME;
+				result = (result ^ (c >>> 8)) * FNV_PRIME;
+			}
+		}
+		return result;
+	}
+
+}
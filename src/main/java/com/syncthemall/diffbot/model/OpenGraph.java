@@ -22,76 +22,77 @@
  */
 package com.syncthemall.diffbot.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 import com.google.api.client.json.GenericJson;
-import com.google.api.client.util.Key;
+import com.google.api.client.util.Data;
 import com.syncthemall.diffbot.model.article.Article;
 
 /**
  * Open Graph {@link Meta} information extracted from an {@link Article} by Diffbot (Article API).
+ * <p>
+ * Only the tags present in the page are stored, in the key/value array of the {@code GenericJson}.
  * 
  * @see <a href="http://ogp.me">OpenGraph tags</a>
  * 
  * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
  */
-public final class OpenGraph extends GenericJson implements Serializable {
+public final class OpenGraph extends GenericJson implements DynamicKeys, Serializable {
 
 	/** Serial code version <code>serialVersionUID</code>. **/
 	private static final long serialVersionUID = 5858650905042339573L;
 
-	@Key(value = "og:title")
-	private String title;
-	@Key(value = "og:type")
-	private String type;
-	@Key(value = "og:image")
-	private String image;
-	@Key(value = "og:url")
-	private String url;
-	@Key(value = "og:audio")
-	private String audio;
-	@Key(value = "og:description")
-	private String description;
-	@Key(value = "og:determiner")
-	private String determiner;
-	@Key(value = "og:locale")
-	private String locale;
-	@Key(value = "og:site_name")
-	private String siteName;
-	@Key(value = "og:locale:alternate")
-	private String localeAlternate;
-	@Key(value = "og:video")
-	private String video;
-	@Key(value = "og:longitude")
-	private String longitude;
-	@Key(value = "og:latitude")
-	private String latitude;
-	@Key(value = "og:region")
-	private String region;
-	@Key(value = "og:locality")
-	private String locality;
-	@Key(value = "og:street-address")
-	private String streetAddress;
+	private static final String TITLE = "og:title";
+	private static final String TYPE = "og:type";
+	private static final String IMAGE = "og:image";
+	private static final String URL = "og:url";
+	private static final String AUDIO = "og:audio";
+	private static final String DESCRIPTION = "og:description";
+	private static final String DETERMINER = "og:determiner";
+	private static final String LOCALE = "og:locale";
+	private static final String SITE_NAME = "og:site_name";
+	private static final String LOCALE_ALTERNATE = "og:locale:alternate";
+	private static final String VIDEO = "og:video";
+	private static final String LONGITUDE = "og:longitude";
+	private static final String LATITUDE = "og:latitude";
+	private static final String REGION = "og:region";
+	private static final String LOCALITY = "og:locality";
+	private static final String STREET_ADDRESS = "og:street-address";
+	private static final Map<String, String> KEYS = new HashMap<String, String>();
+
+	static {
+		for (String key : Arrays.asList(
+				TITLE, TYPE, IMAGE, URL, AUDIO, DESCRIPTION, DETERMINER, LOCALE, SITE_NAME, LOCALE_ALTERNATE, VIDEO,
+				LONGITUDE, LATITUDE, REGION, LOCALITY, STREET_ADDRESS)) {
+			KEYS.put(key, key);
+		}
+	}
 
 	/**
 	 * @return the title of your object as it should appear within the graph, e.g., "The Rock"
 	 */
 	public String getTitle() {
-		return title;
+		return value(TITLE);
 	}
 
 	/**
 	 * @return the type of your object, e.g., "video.movie"
 	 */
 	public String getType() {
-		return type;
+		return value(TYPE);
 	}
 
 	/**
 	 * @return an image URL which should represent your object within the graph
 	 */
 	public String getImage() {
-		return image;
+		return value(IMAGE);
 	}
 
 	/**
@@ -99,21 +100,21 @@ public final class OpenGraph extends GenericJson implements Serializable {
 	 *         "http://www.imdb.com/title/tt0117500/"
 	 */
 	public String getUrl() {
-		return url;
+		return value(URL);
 	}
 
 	/**
 	 * @return a URL to an audio file to accompany this object
 	 */
 	public String getAudio() {
-		return audio;
+		return value(AUDIO);
 	}
 
 	/**
 	 * @return a one to two sentence description of your object
 	 */
 	public String getDescription() {
-		return description;
+		return value(DESCRIPTION);
 	}
 
 	/**
@@ -121,70 +122,126 @@ public final class OpenGraph extends GenericJson implements Serializable {
 	 *         auto is chosen, the consumer of your data should chose between "a" or "an". Default is "" (blank)
 	 */
 	public String getDeterminer() {
-		return determiner;
+		return value(DETERMINER);
 	}
 
 	/**
 	 * @return the locale these tags are marked up in. Of the format language_TERRITORY. Default is en_US
 	 */
 	public String getLocale() {
-		return locale;
+		return value(LOCALE);
 	}
 
 	/**
 	 * @return if your object is part of a larger web site, the name which should be displayed for the overall site. e.g., "IMDb"
 	 */
 	public String getSiteName() {
-		return siteName;
+		return value(SITE_NAME);
 	}
 
 	/**
 	 * @return an array of other locales this page is available in
 	 */
 	public String getLocaleAlternate() {
-		return localeAlternate;
+		return value(LOCALE_ALTERNATE);
 	}
 
 	/**
 	 * @return a URL to a video file that complements this object
 	 */
 	public String getVideo() {
-		return video;
+		return value(VIDEO);
 	}
 
 	/**
 	 * @return the og:longitude value
 	 */
 	public String getLongitude() {
-		return longitude;
+		return value(LONGITUDE);
 	}
 
 	/**
 	 * @return the og:latitude value
 	 */
 	public String getLatitude() {
-		return latitude;
+		return value(LATITUDE);
 	}
 
 	/**
 	 * @return the og:region value
 	 */
 	public String getRegion() {
-		return region;
+		return value(REGION);
 	}
 
 	/**
 	 * @return the og:locality value
 	 */
 	public String getLocality() {
-		return locality;
+		return value(LOCALITY);
 	}
 
 	/**
 	 * @return the og:street-address value
 	 */
 	public String getStreetAddress() {
-		return streetAddress;
+		return value(STREET_ADDRESS);
+	}
+
+	/**
+	 * @return {@code true} for the tags exposed by the getters of this class
+	 */
+	@Override
+	public boolean isDynamicKey(final String name) {
+		return KEYS.containsKey(name);
+	}
+
+	/**
+	 * Stores the value of a tag, sharing the name of the tags exposed by the getters of this class.
+	 */
+	@Override
+	public OpenGraph set(final String fieldName, final Object value) {
+		String key = KEYS.get(fieldName);
+		return (OpenGraph) super.set(key == null ? fieldName : key, value);
+	}
+
+	/**
+	 * A tag sent as a JSON {@code null} is returned as {@code Data.NULL_STRING}, as by a {@code String} field.
+	 */
+	private String value(final String key) {
+		Object value = get(key);
+		if (value == null) {
+			return null;
+		}
+		return Data.isNull(value) ? Data.NULL_STRING : value.toString();
+	}
+
+	/**
+	 * Writes the tags, which are not serialized with the {@code GenericJson}: the number of tags then the name and
+	 * value of each.
+	 */
+	private void writeObject(final ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(getUnknownKeys().size());
+		for (Map.Entry<String, Object> tag : getUnknownKeys().entrySet()) {
+			Object value = tag.getValue();
+			if (Data.isNull(value)) {
+				value = null;
+			} else if (value != null && !(value instanceof Serializable)) {
+				value = value.toString();
+			}
+			out.writeUTF(tag.getKey());
+			out.writeObject(value);
+		}
+	}
+
+	private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		for (int i = in.readInt(); i > 0; i--) {
+			String key = in.readUTF();
+			Object value = in.readObject();
+			set(key, value == null ? Data.NULL_STRING : value);
+		}
 	}
 
 	@Override
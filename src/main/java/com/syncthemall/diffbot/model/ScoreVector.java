@@ -0,0 +1,251 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.model;
+
+import java.io.Serializable;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.util.FieldInfo;
+
+/**
+ * Base class for the elements made of a score per value of an enum, such as the categories of an article or the page
+ * types of a classified page.
+ * <p>
+ * The scores are stored in a {@code float} array indexed by the ordinal of the enum values. The JSON key of each score
+ * is the {@code @Value} of the enum constant. The array is returned without copy by {@link #scores()} so the scores
+ * can be processed as a vector.
+ * 
+ * @param <E> the enum of the dimensions of the vector
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public abstract class ScoreVector<E extends Enum<E>> extends GenericJson implements DynamicKeys, Serializable {
+
+	/** Serial code version <code>serialVersionUID</code>. **/
+	private static final long serialVersionUID = -1489530744316092946L;
+
+	private static final int MAX_DIMENSIONS = Long.SIZE;
+	private static final ConcurrentMap<Class<?>, Dimensions> DIMENSIONS = new ConcurrentHashMap<Class<?>, Dimensions>();
+
+	private final Class<E> dimensionType;
+	private float[] scores;
+	private long present;
+
+	/**
+	 * @param dimensionType the enum of the dimensions of the vector
+	 */
+	protected ScoreVector(final Class<E> dimensionType) {
+		super();
+		this.dimensionType = dimensionType;
+		this.scores = new float[dimensions().values.length];
+	}
+
+	/**
+	 * Returns the scores of this element, indexed by the ordinal of the enum values. The array is not copied: it must
+	 * not be modified.
+	 * 
+	 * @return the scores of this element
+	 */
+	public final float[] scores() {
+		return scores;
+	}
+
+	/**
+	 * @param dimension a value of the enum
+	 * @return the score for {@code dimension}, or 0 if it is not in the response
+	 */
+	public final float score(final E dimension) {
+		return scores[dimension.ordinal()];
+	}
+
+	/**
+	 * Copies the scores of this element in an array, indexed by the ordinal of the enum values.
+	 * 
+	 * @param destination the array to copy the scores into
+	 * @param offset the index in {@code destination} of the score of the first enum value
+	 */
+	public final void copyTo(final float[] destination, final int offset) {
+		System.arraycopy(scores, 0, destination, offset, scores.length);
+	}
+
+	/**
+	 * @return the enum value with the highest score (the first in the enum order for equal scores), or {@code null} if
+	 *         no score is in the response
+	 */
+	public final E argmax() {
+		if (present == 0) {
+			return null;
+		}
+		int max = 0;
+		for (int i = 1; i < scores.length; i++) {
+			if (scores[i] > scores[max]) {
+				max = i;
+			}
+		}
+		return dimensionType.cast(dimensions().values[max]);
+	}
+
+	/**
+	 * @param n the maximum number of enum values to return
+	 * @return the {@code n} enum values with the highest scores in the response, by decreasing score
+	 */
+	public final List<E> topK(final int n) {
+		int size = Math.min(n, Long.bitCount(present));
+		if (size <= 0) {
+			return new ArrayList<E>(0);
+		}
+		int[] top = new int[size];
+		int count = 0;
+		for (int i = 0; i < scores.length; i++) {
+			if ((present & (1L << i)) == 0) {
+				continue;
+			}
+			int position;
+			if (count < size) {
+				position = count++;
+			} else if (scores[i] > scores[top[size - 1]]) {
+				position = size - 1;
+			} else {
+				continue;
+			}
+			while (position > 0 && scores[top[position - 1]] < scores[i]) {
+				top[position] = top[position - 1];
+				position--;
+			}
+			top[position] = i;
+		}
+		List<E> result = new ArrayList<E>(size);
+		Enum<?>[] values = dimensions().values;
+		for (int i = 0; i < size; i++) {
+			result.add(dimensionType.cast(values[top[i]]));
+		}
+		return result;
+	}
+
+	/**
+	 * @return {@code true} for the keys of the enum values
+	 */
+	@Override
+	public final boolean isDynamicKey(final String name) {
+		return dimensions().byKey.containsKey(name);
+	}
+
+	/**
+	 * Stores the numeric values of the keys of the enum values in the scores array.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public ScoreVector<E> set(final String fieldName, final Object value) {
+		Enum<?> dimension = dimensions().byKey.get(fieldName);
+		if (dimension != null && value instanceof Number) {
+			scores[dimension.ordinal()] = ((Number) value).floatValue();
+			present |= 1L << dimension.ordinal();
+			return this;
+		}
+		return (ScoreVector<E>) super.set(fieldName, value);
+	}
+
+	@Override
+	public Set<Map.Entry<String, Object>> entrySet() {
+		Set<Map.Entry<String, Object>> entries = new LinkedHashSet<Map.Entry<String, Object>>();
+		Enum<?>[] values = dimensions().values;
+		for (int i = 0; i < values.length; i++) {
+			if ((present & (1L << i)) != 0) {
+				entries.add(new SimpleImmutableEntry<String, Object>(dimensions().keys[i], scores[i]));
+			}
+		}
+		entries.addAll(super.entrySet());
+		return Collections.unmodifiableSet(entries);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * Arrays.hashCode(scores) + getUnknownKeys().hashCode();
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+		ScoreVector<?> other = (ScoreVector<?>) obj;
+		return present == other.present && Arrays.equals(scores, other.scores)
+				&& getUnknownKeys().equals(other.getUnknownKeys());
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public ScoreVector<E> clone() {
+		ScoreVector<E> result = (ScoreVector<E>) super.clone();
+		result.scores = scores.clone();
+		return result;
+	}
+
+	private Dimensions dimensions() {
+		Dimensions dimensions = DIMENSIONS.get(dimensionType);
+		if (dimensions == null) {
+			dimensions = new Dimensions(dimensionType.getEnumConstants());
+			DIMENSIONS.putIfAbsent(dimensionType, dimensions);
+		}
+		return dimensions;
+	}
+
+	/**
+	 * Values and JSON keys of an enum, shared by all the vectors of the same enum.
+	 */
+	private static final class Dimensions {
+
+		private final Enum<?>[] values;
+		private final String[] keys;
+		private final Map<String, Enum<?>> byKey;
+
+		private Dimensions(final Enum<?>[] values) {
+			if (values.length > MAX_DIMENSIONS) {
+				throw new IllegalArgumentException("A ScoreVector cannot have more than " + MAX_DIMENSIONS
+						+ " dimensions");
+			}
+			this.values = values;
+			this.keys = new String[values.length];
+			this.byKey = new HashMap<String, Enum<?>>();
+			for (Enum<?> value : values) {
+				keys[value.ordinal()] = FieldInfo.of(value).getName();
+				byKey.put(keys[value.ordinal()], value);
+			}
+		}
+	}
+
+}
@@ -22,329 +22,370 @@
  */
 package com.syncthemall.diffbot.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 import com.google.api.client.json.GenericJson;
-import com.google.api.client.util.Key;
+import com.google.api.client.util.Data;
 import com.syncthemall.diffbot.model.article.Article;
 
 /**
  * Twitter {@link Meta} information extracted from an {@link Article} by Diffbot (Article API).
+ * <p>
+ * Only the tags present in the page are stored, in the key/value array of the {@code GenericJson}.
  * 
  * @see <a href="https://dev.twitter.com/docs/cards/markup-reference">Twitter Card metadata</a>
  * 
  * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
  */
-public final class Twitter extends GenericJson implements Serializable {
+public final class Twitter extends GenericJson implements DynamicKeys, Serializable {
 
 	/** Serial code version <code>serialVersionUID</code>. **/
 	private static final long serialVersionUID = -2053689342457455549L;
 
-	@Key(value = "twitter:card")
-	private String card;
-	@Key(value = "twitter:site")
-	private String site;
-	@Key(value = "twitter:site:id")
-	private String siteId;
-	@Key(value = "twitter:creator")
-	private String creator;
-	@Key(value = "twitter:creator:id")
-	private String creatorId;
-	@Key(value = "twitter:description")
-	private String description;
-	@Key(value = "twitter:title")
-	private String title;
-	@Key(value = "twitter:image:src")
-	private String imageSrc;
-	@Key(value = "twitter:image:width")
-	private String imageWidth;
-	@Key(value = "twitter:image:height")
-	private String imageHeight;
-	@Key(value = "twitter:image")
-	private String image;
-	@Key(value = "twitter:image0")
-	private String image0;
-	@Key(value = "twitter:image1")
-	private String image1;
-	@Key(value = "twitter:image2")
-	private String image2;
-	@Key(value = "twitter:image3")
-	private String image3;
-	@Key(value = "twitter:player")
-	private String player;
-	@Key(value = "twitter:player:width")
-	private String playerWidth;
-	@Key(value = "twitter:player:height")
-	private String playerHeight;
-	@Key(value = "twitter:player:stream")
-	private String playerStream;
-	@Key(value = "twitter:data1")
-	private String data1;
-	@Key(value = "twitter:label1")
-	private String label1;
-	@Key(value = "twitter:data2")
-	private String data2;
-	@Key(value = "twitter:label2")
-	private String label2;
-	@Key(value = "twitter:app:name:iphone")
-	private String appNameIphone;
-	@Key(value = "twitter:app:id:iphone")
-	private String appIdIphone;
-	@Key(value = "twitter:app:url:iphone")
-	private String appUrlIphone;
-	@Key(value = "twitter:app:name:ipad")
-	private String appNameIpad;
-	@Key(value = "twitter:app:id:ipad")
-	private String appIdIpad;
-	@Key(value = "twitter:app:url:ipad")
-	private String appUrlIpad;
-	@Key(value = "twitter:app:name:googleplay")
-	private String appNameGoogleplay;
-	@Key(value = "twitter:app:id:googleplay")
-	private String appIdGoogeplay;
-	@Key(value = "twitter:app:url:googleplay")
-	private String appUrlGoogleplay;
-	@Key(value = "twitter:account_id")
-	private String accountId;
-	@Key(value = "twitter:user_id")
-	private String userId;
+	private static final String CARD = "twitter:card";
+	private static final String SITE = "twitter:site";
+	private static final String SITE_ID = "twitter:site:id";
+	private static final String CREATOR = "twitter:creator";
+	private static final String CREATOR_ID = "twitter:creator:id";
+	private static final String DESCRIPTION = "twitter:description";
+	private static final String TITLE = "twitter:title";
+	private static final String IMAGE_SRC = "twitter:image:src";
+	private static final String IMAGE_WIDTH = "twitter:image:width";
+	private static final String IMAGE_HEIGHT = "twitter:image:height";
+	private static final String IMAGE = "twitter:image";
+	private static final String IMAGE0 = "twitter:image0";
+	private static final String IMAGE1 = "twitter:image1";
+	private static final String IMAGE2 = "twitter:image2";
+	private static final String IMAGE3 = "twitter:image3";
+	private static final String PLAYER = "twitter:player";
+	private static final String PLAYER_WIDTH = "twitter:player:width";
+	private static final String PLAYER_HEIGHT = "twitter:player:height";
+	private static final String PLAYER_STREAM = "twitter:player:stream";
+	private static final String DATA1 = "twitter:data1";
+	private static final String LABEL1 = "twitter:label1";
+	private static final String DATA2 = "twitter:data2";
+	private static final String LABEL2 = "twitter:label2";
+	private static final String APP_NAME_IPHONE = "twitter:app:name:iphone";
+	private static final String APP_ID_IPHONE = "twitter:app:id:iphone";
+	private static final String APP_URL_IPHONE = "twitter:app:url:iphone";
+	private static final String APP_NAME_IPAD = "twitter:app:name:ipad";
+	private static final String APP_ID_IPAD = "twitter:app:id:ipad";
+	private static final String APP_URL_IPAD = "twitter:app:url:ipad";
+	private static final String APP_NAME_GOOGLEPLAY = "twitter:app:name:googleplay";
+	private static final String APP_ID_GOOGEPLAY = "twitter:app:id:googleplay";
+	private static final String APP_URL_GOOGLEPLAY = "twitter:app:url:googleplay";
+	private static final String ACCOUNT_ID = "twitter:account_id";
+	private static final String USER_ID = "twitter:user_id";
+	private static final Map<String, String> KEYS = new HashMap<String, String>();
+
+	static {
+		for (String key : Arrays.asList(
+				CARD, SITE, SITE_ID, CREATOR, CREATOR_ID, DESCRIPTION, TITLE, IMAGE_SRC, IMAGE_WIDTH, IMAGE_HEIGHT,
+				IMAGE, IMAGE0, IMAGE1, IMAGE2, IMAGE3, PLAYER, PLAYER_WIDTH, PLAYER_HEIGHT, PLAYER_STREAM, DATA1,
+				LABEL1, DATA2, LABEL2, APP_NAME_IPHONE, APP_ID_IPHONE, APP_URL_IPHONE, APP_NAME_IPAD, APP_ID_IPAD,
+				APP_URL_IPAD, APP_NAME_GOOGLEPLAY, APP_ID_GOOGEPLAY, APP_URL_GOOGLEPLAY, ACCOUNT_ID, USER_ID)) {
+			KEYS.put(key, key);
+		}
+	}
 
 	/**
 	 * @return summary, summary_large_image, photo, gallery, product, app or player
 	 */
 	public String getCard() {
-		return card;
+		return value(CARD);
 	}
 
 	/**
 	 * @return '@username' of website
 	 */
 	public String getSite() {
-		return site;
+		return value(SITE);
 	}
 
 	/**
 	 * @return same as twitter:site, but the user's Twitter ID
 	 */
 	public String getSiteId() {
-		return siteId;
+		return value(SITE_ID);
 	}
 
 	/**
 	 * @return '@username' of content creator
 	 */
 	public String getCreator() {
-		return creator;
+		return value(CREATOR);
 	}
 
 	/**
 	 * @return Twitter user ID of content creator
 	 */
 	public String getCreatorId() {
-		return creatorId;
+		return value(CREATOR_ID);
 	}
 
 	/**
 	 * @return description of content (maximum 200 characters)
 	 */
 	public String getDescription() {
-		return description;
+		return value(DESCRIPTION);
 	}
 
 	/**
 	 * @return title of content (max 70 characters)
 	 */
 	public String getTitle() {
-		return title;
+		return value(TITLE);
 	}
 
 	/**
 	 * @return URL of image to use in the card. Image must be less than 1MB in size.
 	 */
 	public String getImageSrc() {
-		return imageSrc;
+		return value(IMAGE_SRC);
 	}
 
 	/**
 	 * @return width of image in pixels
 	 */
 	public String getImageWidth() {
-		return imageWidth;
+		return value(IMAGE_WIDTH);
 	}
 
 	/**
 	 * @return height of image in pixels
 	 */
 	public String getImageHeight() {
-		return imageHeight;
+		return value(IMAGE_HEIGHT);
 	}
 
 	/**
 	 * @return 1st image in the gallery. Images must be less than 1MB in size.
 	 */
 	public String getImage0() {
-		return image0;
+		return value(IMAGE0);
 	}
 
 	/**
 	 * @return 2nd image in the gallery. Images must be less than 1MB in size.
 	 */
 	public String getImage1() {
-		return image1;
+		return value(IMAGE1);
 	}
 
 	/**
 	 * @return 3rd image in the gallery. Images must be less than 1MB in size.
 	 */
 	public String getImage2() {
-		return image2;
+		return value(IMAGE2);
 	}
 
 	/**
 	 * @return 4th image in the gallery. Images must be less than 1MB in size.
 	 */
 	public String getImage3() {
-		return image3;
+		return value(IMAGE3);
 	}
 
 	/**
 	 * @return HTTPS URL of player iframe
 	 */
 	public String getPlayer() {
-		return player;
+		return value(PLAYER);
 	}
 
 	/**
 	 * @return width of iframe in pixels
 	 */
 	public String getPlayerWidth() {
-		return playerWidth;
+		return value(PLAYER_WIDTH);
 	}
 
 	/**
 	 * @return height of iframe in pixels
 	 */
 	public String getPlayerHeight() {
-		return playerHeight;
+		return value(PLAYER_HEIGHT);
 	}
 
 	/**
 	 * @return URL to raw video or audio stream
 	 */
 	public String getPlayerStream() {
-		return playerStream;
+		return value(PLAYER_STREAM);
 	}
 
 	/**
 	 * @return top customizable data field, can be a relatively short string (ie "$3.99")
 	 */
 	public String getData1() {
-		return data1;
+		return value(DATA1);
 	}
 
 	/**
 	 * @return customizable label or units for the information in twitter:data1 (best practice: use all caps)
 	 */
 	public String getLabel1() {
-		return label1;
+		return value(LABEL1);
 	}
 
 	/**
 	 * @return bottom customizable data field, can be a relatively short string (ie "Seattle, WA")
 	 */
 	public String getData2() {
-		return data2;
+		return value(DATA2);
 	}
 
 	/**
 	 * @return customizable label or units for the information in twitter:data1 (best practice: use all caps)
 	 */
 	public String getLabel2() {
-		return label2;
+		return value(LABEL2);
 	}
 
 	/**
 	 * @return name of your iPhone app
 	 */
 	public String getAppNameIphone() {
-		return appNameIphone;
+		return value(APP_NAME_IPHONE);
 	}
 
 	/**
 	 * @return your app ID in the iTunes App Store (Note: NOT your bundle ID)
 	 */
 	public String getAppIdIphone() {
-		return appIdIphone;
+		return value(APP_ID_IPHONE);
 	}
 
 	/**
 	 * @return your app's custom URL scheme (you must include "://" after your scheme name)
 	 */
 	public String getAppUrlIphone() {
-		return appUrlIphone;
+		return value(APP_URL_IPHONE);
 	}
 
 	/**
 	 * @return name of your iPad optimized app
 	 */
 	public String getAppNameIpad() {
-		return appNameIpad;
+		return value(APP_NAME_IPAD);
 	}
 
 	/**
 	 * @return your app ID in the iTunes App Store
 	 */
 	public String getAppIdIpad() {
-		return appIdIpad;
+		return value(APP_ID_IPAD);
 	}
 
 	/**
 	 * @return your app's custom URL scheme
 	 */
 	public String getAppUrlIpad() {
-		return appUrlIpad;
+		return value(APP_URL_IPAD);
 	}
 
 	/**
 	 * @return name of your Android app
 	 */
 	public String getAppNameGoogleplay() {
-		return appNameGoogleplay;
+		return value(APP_NAME_GOOGLEPLAY);
 	}
 
 	/**
 	 * @return your app ID in the Google Play Store
 	 */
 	public String getAppIdGoogeplay() {
-		return appIdGoogeplay;
+		return value(APP_ID_GOOGEPLAY);
 	}
 
 	/**
 	 * @return your app's custom URL scheme
 	 */
 	public String getAppUrlGoogleplay() {
-		return appUrlGoogleplay;
+		return value(APP_URL_GOOGLEPLAY);
 	}
 
 	/**
 	 * @return image in the gallery
 	 */
 	public String getImage() {
-		return image;
+		return value(IMAGE);
 	}
 
 	/**
 	 * @return account id
 	 */
 	public String getAccountId() {
-		return accountId;
+		return value(ACCOUNT_ID);
 	}
 
 	/**
 	 * @return user id
 	 */
 	public String getUserId() {
-		return userId;
+		return value(USER_ID);
+	}
+
+	/**
+	 * @return {@code true} for the tags exposed by the getters of this class
+	 */
+	@Override
+	public boolean isDynamicKey(final String name) {
+		return KEYS.containsKey(name);
+	}
+
+	/**
+	 * Stores the value of a tag, sharing the name of the tags exposed by the getters of this class.
+	 */
+	@Override
+	public Twitter set(final String fieldName, final Object value) {
+		String key = KEYS.get(fieldName);
+		return (Twitter) super.set(key == null ? fieldName : key, value);
+	}
+
+	/**
+	 * A tag sent as a JSON {@code null} is returned as {@code Data.NULL_STRING}, as by a {@code String} field.
+	 */
+	private String value(final String key) {
+		Object value = get(key);
+		if (value == null) {
+			return null;
+		}
+		return Data.isNull(value) ? Data.NULL_STRING : value.toString();
+	}
+
+	/**
+	 * Writes the tags, which are not serialized with the {@code GenericJson}: the number of tags then the name and
+	 * value of each.
+	 */
+	private void writeObject(final ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(getUnknownKeys().size());
+		for (Map.Entry<String, Object> tag : getUnknownKeys().entrySet()) {
+			Object value = tag.getValue();
+			if (Data.isNull(value)) {
+				value = null;
+			} else if (value != null && !(value instanceof Serializable)) {
+				value = value.toString();
+			}
+			out.writeUTF(tag.getKey());
+			out.writeObject(value);
+		}
+	}
+
+	private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		for (int i = in.readInt(); i > 0; i--) {
+			String key = in.readUTF();
+			Object value = in.readObject();
+			set(key, value == null ? Data.NULL_STRING : value);
+		}
 	}
 
 	@Override
@@ -23,11 +23,22 @@
 package com.syncthemall.diffbot.model.article;
 
 import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import com.google.api.client.json.GenericJson;
+import com.google.api.client.util.Data;
 import com.google.api.client.util.Key;
 import com.syncthemall.diffbot.Diffbot.Article.Analyze;
+import com.syncthemall.diffbot.converter.DateConverter;
+import com.syncthemall.diffbot.model.Compactable;
 import com.syncthemall.diffbot.model.Meta;
 import com.syncthemall.diffbot.model.Model;
 import com.syncthemall.diffbot.model.PageType;
@@ -37,16 +48,18 @@ import com.syncthemall.diffbot.model.PageType;
  * 
  * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
  */
-public final class Article extends Model implements Serializable {
+public final class Article extends Model implements Compactable, Serializable {
 
 	/** Serial code version <code>serialVersionUID</code>. **/
 	private static final long serialVersionUID = 7531133216091403402L;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
 	@Key
-	private String text;
+	private Object text;
 	@Key
 	private String title;
 	@Key
 	private String date;
+	private transient volatile Long parsedDate;
 	@Key
 	private String author;
 	@Key
@@ -60,7 +73,7 @@ public final class Article extends Model implements Serializable {
 	@Key
 	private String icon;
 	@Key
-	private String html;
+	private Object html;
 	@Key
 	private String[] tags;
 	@Key
@@ -92,6 +105,42 @@ public final class Article extends Model implements Serializable {
 		return url;
 	}
 
+	/**
+	 * Stores the text and the HTML of this article as UTF-8 bytes. They are decoded on each call to
+	 * {@link #getText()} and {@link #getHtml()}, and restored when this article is serialized to JSON. As the
+	 * {@code get} method of {@code GenericData} reads the fields directly, {@code get("text")} and {@code get("html")}
+	 * return a {@code CharSequence} in the compact form.
+	 */
+	@Override
+	public void compact() {
+		text = CompactText.of(text);
+		html = CompactText.of(html);
+	}
+
+	@Override
+	public boolean isCompact() {
+		return text instanceof CompactText || html instanceof CompactText;
+	}
+
+	@Override
+	public Set<Map.Entry<String, Object>> entrySet() {
+		if (!isCompact()) {
+			return super.entrySet();
+		}
+		Set<Map.Entry<String, Object>> entries = new LinkedHashSet<Map.Entry<String, Object>>();
+		for (String name : getClassInfo().getNames()) {
+			Object value = getClassInfo().getFieldInfo(name).getValue(this);
+			if (value instanceof CompactText) {
+				value = value.toString();
+			}
+			if (value != null) {
+				entries.add(new SimpleImmutableEntry<String, Object>(name, value));
+			}
+		}
+		entries.addAll(getUnknownKeys().entrySet());
+		return Collections.unmodifiableSet(entries);
+	}
+
 	@Override
 	public String toString() {
 		return String.format("Article [url=%s]", url);
@@ -101,7 +150,7 @@ public final class Article extends Model implements Serializable {
 	 * @return the plain-text content of the extracted article
 	 */
 	public String getText() {
-		return text;
+		return CompactText.decode(text);
 	}
 
 	/**
@@ -118,6 +167,19 @@ public final class Article extends Model implements Serializable {
 		return date;
 	}
 
+	/**
+	 * @return the article date parsed with {@link DateConverter}, or {@code null} if not detected or not parseable. The
+	 *         date is parsed once, on the first call.
+	 */
+	public Date getParsedDate() {
+		Long result = parsedDate;
+		if (result == null) {
+			result = DateConverter.parseTime(date);
+			parsedDate = result;
+		}
+		return result == DateConverter.NO_DATE ? null : new Date(result);
+	}
+
 	/**
 	 * @return the article author, if detected
 	 */
@@ -157,7 +219,7 @@ public final class Article extends Model implements Serializable {
 	 * @return the HTML of the extracted article
 	 */
 	public String getHtml() {
-		return html;
+		return CompactText.decode(html);
 	}
 
 	/**
@@ -237,4 +299,68 @@ public final class Article extends Model implements Serializable {
 		return comments;
 	}
 
+	/**
+	 * A text value kept as UTF-8 bytes and decoded on each access.
+	 */
+	private static final class CompactText implements CharSequence, Serializable {
+
+		/** Serial code version <code>serialVersionUID</code>. **/
+		private static final long serialVersionUID = -2394164811462734130L;
+		private final byte[] bytes;
+
+		private CompactText(final byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		/**
+		 * The {@code null} values and the JSON {@code null} sentinel are kept as they are.
+		 */
+		private static Object of(final Object value) {
+			if (value instanceof String && !Data.isNull(value)) {
+				return new CompactText(((String) value).getBytes(UTF8));
+			}
+			return value;
+		}
+
+		private static String decode(final Object value) {
+			if (value == null || value instanceof String) {
+				return (String) value;
+			}
+			if (Data.isNull(value)) {
+				return Data.NULL_STRING;
+			}
+			return value.toString();
+		}
+
+		@Override
+		public int length() {
+			return toString().length();
+		}
+
+		@Override
+		public char charAt(final int index) {
+			return toString().charAt(index);
+		}
+
+		@Override
+		public CharSequence subSequence(final int start, final int end) {
+			return toString().subSequence(start, end);
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			return obj instanceof CompactText && Arrays.equals(bytes, ((CompactText) obj).bytes);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(bytes);
+		}
+
+		@Override
+		public String toString() {
+			return new String(bytes, UTF8);
+		}
+	}
+
 }
\ No newline at end of file
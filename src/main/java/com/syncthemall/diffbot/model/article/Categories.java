@@ -24,168 +24,138 @@ package com.syncthemall.diffbot.model.article;
 
 import java.io.Serializable;
 
-import com.google.api.client.json.GenericJson;
-import com.google.api.client.util.Key;
+import com.syncthemall.diffbot.model.ScoreVector;
 
 /**
- * Categories element extracted from an {@link Article} by Diffbot (Article API).
+ * Categories element extracted from an {@link Article} by Diffbot (Article API). The scores are indexed by
+ * {@link Category}.
  * 
  * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
  */
-public final class Categories extends GenericJson implements Serializable {
+public final class Categories extends ScoreVector<Category> implements Serializable {
 
 	/** Serial code version <code>serialVersionUID</code>. **/
 	private static final long serialVersionUID = 2507981859510362861L;
 
-	@Key(value = "entertainment_culture")
-	private float entertainmentCulture;
-	@Key(value = "hospitality_recreation")
-	private float hospitalityRecreation;
-	@Key
-	private float other;
-	@Key(value = "business_finance")
-	private float businessFinance;
-	@Key(value = "technology_internet")
-	private float technologyInternet;
-	@Key(value = "socialissues")
-	private float socialIssues;
-	@Key
-	private float sports;
-	@Key(value = "humaninterest")
-	private float humanInterest;
-	@Key(value = "religion_belief")
-	private float religionBelief;
-	@Key(value = "war_conflict")
-	private float warConflict;
-	@Key
-	private float education;
-	@Key(value = "health_medical_pharma")
-	private float healthMedicalPharma;
-	@Key
-	private float labor;
-	@Key(value = "law_crime")
-	private float lawCrime;
-	@Key
-	private float politics;
-	@Key
-	private float environment;
-	@Key
-	private float weather;
-	@Key(value = "disaster_accident")
-	private float disasterAccident;
+	/**
+	 * Creates an empty {@code Categories}.
+	 */
+	public Categories() {
+		super(Category.class);
+	}
 
 	/**
 	 * @return score for entertainment_culture
 	 */
 	public float getEntertainmentCulture() {
-		return entertainmentCulture;
+		return score(Category.ENTERTAINMENT_CULTURE);
 	}
 
 	/**
 	 * @return score for hospitality_recreation
 	 */
 	public float getHospitalityRecreation() {
-		return hospitalityRecreation;
+		return score(Category.HOSPITALITY_RECREATION);
 	}
 
 	/**
 	 * @return score for other
 	 */
 	public float getOther() {
-		return other;
+		return score(Category.OTHER);
 	}
 
 	/**
 	 * @return score for business_finance
 	 */
 	public float getBusinessFinance() {
-		return businessFinance;
+		return score(Category.BUSINESS_FINANCE);
 	}
 
 	/**
 	 * @return score for technology_internet
 	 */
 	public float getTechnologyInternet() {
-		return technologyInternet;
+		return score(Category.TECHNOLOGY_INTERNET);
 	}
 
 	/**
 	 * @return score for socialissues
 	 */
 	public float getSocialIssues() {
-		return socialIssues;
+		return score(Category.SOCIAL_ISSUES);
 	}
 	/**
 	 * @return score for sports
 	 */
 	public float getSports() {
-		return sports;
+		return score(Category.SPORTS);
 	}
 	/**
 	 * @return score for humaninterest
 	 */
 	public float getHumanInterest() {
-		return humanInterest;
+		return score(Category.HUMAN_INTEREST);
 	}
 	/**
 	 * @return score for religion_belief
 	 */
 	public float getReligionBelief() {
-		return religionBelief;
+		return score(Category.RELIGION_BELIEF);
 	}
 	/**
 	 * @return score for war_conflict
 	 */
 	public float getWarConflict() {
-		return warConflict;
+		return score(Category.WAR_CONFLICT);
 	}
 	/**
 	 * @return score for education
 	 */
 	public float getEducation() {
-		return education;
+		return score(Category.EDUCATION);
 	}
 	/**
 	 * @return score for health_medical_pharma
 	 */
 	public float getHealthMedicalPharma() {
-		return healthMedicalPharma;
+		return score(Category.HEALTH_MEDICAL_PHARMA);
 	}
 	/**
 	 * @return score for labor
 	 */
 	public float getLabor() {
-		return labor;
+		return score(Category.LABOR);
 	}
 	/**
 	 * @return score for law_crime
 	 */
 	public float getLawCrime() {
-		return lawCrime;
+		return score(Category.LAW_CRIME);
 	}
 	/**
 	 * @return score for politics
 	 */
 	public float getPolitics() {
-		return politics;
+		return score(Category.POLITICS);
 	}
 	/**
 	 * @return score for environment
 	 */
 	public float getEnvironment() {
-		return environment;
+		return score(Category.ENVIRONMENT);
 	}
 	/**
 	 * @return score for weather
 	 */
 	public float getWeather() {
-		return weather;
+		return score(Category.WEATHER);
 	}
 	/**
 	 * @return score for disaster_accident
 	 */
 	public float getDisasterAccident() {
-		return disasterAccident;
+		return score(Category.DISASTER_ACCIDENT);
 	}
 
 	@Override
@@ -0,0 +1,101 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.model.article;
+
+import com.google.api.client.util.Value;
+
+/**
+ * Category of an {@link Article}, scored in its {@link Categories}.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public enum Category {
+	/** Business and finance */
+	@Value("business_finance")
+	BUSINESS_FINANCE("business_finance"),
+	/** Disasters and accidents */
+	@Value("disaster_accident")
+	DISASTER_ACCIDENT("disaster_accident"),
+	/** Education */
+	@Value("education")
+	EDUCATION("education"),
+	/** Entertainment and culture */
+	@Value("entertainment_culture")
+	ENTERTAINMENT_CULTURE("entertainment_culture"),
+	/** Environment */
+	@Value("environment")
+	ENVIRONMENT("environment"),
+	/** Health, medical and pharma */
+	@Value("health_medical_pharma")
+	HEALTH_MEDICAL_PHARMA("health_medical_pharma"),
+	/** Hospitality and recreation */
+	@Value("hospitality_recreation")
+	HOSPITALITY_RECREATION("hospitality_recreation"),
+	/** Human interest */
+	@Value("humaninterest")
+	HUMAN_INTEREST("humaninterest"),
+	/** Labor */
+	@Value("labor")
+	LABOR("labor"),
+	/** Law and crime */
+	@Value("law_crime")
+	LAW_CRIME("law_crime"),
+	/** Other */
+	@Value("other")
+	OTHER("other"),
+	/** Politics */
+	@Value("politics")
+	POLITICS("politics"),
+	/** Religion and belief */
+	@Value("religion_belief")
+	RELIGION_BELIEF("religion_belief"),
+	/** Social issues */
+	@Value("socialissues")
+	SOCIAL_ISSUES("socialissues"),
+	/** Sports */
+	@Value("sports")
+	SPORTS("sports"),
+	/** Technology and internet */
+	@Value("technology_internet")
+	TECHNOLOGY_INTERNET("technology_internet"),
+	/** War and conflict */
+	@Value("war_conflict")
+	WAR_CONFLICT("war_conflict"),
+	/** Weather */
+	@Value("weather")
+	WEATHER("weather");
+
+	private String key;
+
+	Category(final String key) {
+		this.key = key;
+	}
+
+	/**
+	 * @return the key of the {@code Category}
+	 */
+	public String getKey() {
+		return this.key;
+	}
+
+}
@@ -28,6 +28,7 @@ import java.io.Serializable;
 import com.google.api.client.util.Key;
 import com.syncthemall.diffbot.Diffbot.Article.Analyze;
 import com.syncthemall.diffbot.exception.DiffbotParseException;
+import com.syncthemall.diffbot.model.DynamicKeys;
 import com.syncthemall.diffbot.model.Model;
 import com.syncthemall.diffbot.model.PageType;
 import com.syncthemall.diffbot.model.article.Article;
@@ -39,7 +40,7 @@ import com.syncthemall.diffbot.model.products.Products;
  * 
  * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
  */
-public final class Classified extends Model implements Serializable {
+public final class Classified extends Model implements Serializable, DynamicKeys {
 
 	/** Serial code version <code>serialVersionUID</code>. **/
 	private static final long serialVersionUID = 7502076031673451491L;
@@ -71,6 +72,18 @@ public final class Classified extends Model implements Serializable {
 	public String toString() {
 		return String.format("Classified [url=%s]", url);
 	}
+
+	/**
+	 * The content extracted from the page is kept in the unknown keys so it can be parsed with {@link #asArticle()},
+	 * {@link #asImages()} or {@link #asProducts()}.
+	 * 
+	 * @param name a JSON key without {@code @Key} field
+	 * @return always {@code true}
+	 */
+	@Override
+	public boolean isDynamicKey(final String name) {
+		return true;
+	}
 	
 	/**
 	 * The Page Classifier API will fully extract pages that match an existing <a
@@ -0,0 +1,354 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.model.classifier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.syncthemall.diffbot.model.PageType;
+
+/**
+ * Columnar store of {@link Classified} results, for the analysis of a large number of classified URLs without keeping
+ * the {@code Classified} objects in memory.
+ * <p>
+ * Each row holds the URL, the {@link PageType} and the {@link Stats} of a result: the confidence and the score of each
+ * {@code PageType} are stored in a {@code float} column, and the URLs are dictionary-encoded. The selections return a
+ * {@code BitSet} of rows that can be combined with {@link BitSet#and(BitSet)}, {@link BitSet#or(BitSet)} or
+ * {@link BitSet#andNot(BitSet)}. For example the URLs where product &gt; 0.8 and article &lt; 0.2:
+ * 
+ * <pre>
+ * BitSet rows = table.greaterThan(PageType.PRODUCT, 0.8f);
+ * rows.and(table.lessThan(PageType.ARTICLE, 0.2f));
+ * List&lt;String&gt; urls = table.getUrls(rows);
+ * </pre>
+ * <p>
+ * This class is not thread-safe.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public final class ClassifiedTable {
+
+	private static final int DEFAULT_CAPACITY = 1024;
+	private static final PageType[] PAGE_TYPES = PageType.values();
+	private static final byte NO_TYPE = -1;
+
+	private final float[][] scores = new float[PAGE_TYPES.length][];
+	private float[] confidence;
+	private byte[] types;
+	private int[] urlIds;
+	private final Map<String, Integer> dictionary = new HashMap<String, Integer>();
+	private final List<String> urls = new ArrayList<String>();
+	private int size;
+
+	/**
+	 * Creates an empty {@code ClassifiedTable}.
+	 */
+	public ClassifiedTable() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates an empty {@code ClassifiedTable}.
+	 * 
+	 * @param initialCapacity the number of rows to allocate
+	 */
+	public ClassifiedTable(final int initialCapacity) {
+		super();
+		if (initialCapacity < 0) {
+			throw new IllegalArgumentException("initialCapacity cannot be negative");
+		}
+		for (int i = 0; i < scores.length; i++) {
+			scores[i] = new float[initialCapacity];
+		}
+		confidence = new float[initialCapacity];
+		types = new byte[initialCapacity];
+		urlIds = new int[initialCapacity];
+	}
+
+	/**
+	 * Appends a {@code Classified} result. The statistics are only returned by Diffbot if requested with
+	 * {@code withStats()}, without them the confidence and the scores of the row are 0.
+	 * 
+	 * @param classified the result to append
+	 * @return the index of the new row
+	 */
+	public int append(final Classified classified) {
+		return append(classified.getUrl(), classified.getType(), classified.getStats());
+	}
+
+	/**
+	 * Appends a row.
+	 * 
+	 * @param url the URL of the classified page
+	 * @param type the type of the classified page, can be {@code null}
+	 * @param stats the statistics of the classification, can be {@code null}
+	 * @return the index of the new row
+	 */
+	public int append(final String url, final PageType type, final Stats stats) {
+		if (size == confidence.length) {
+			grow();
+		}
+		int row = size;
+		Integer id = dictionary.get(url);
+		if (id == null) {
+			id = urls.size();
+			dictionary.put(url, id);
+			urls.add(url);
+		}
+		urlIds[row] = id;
+		types[row] = type == null ? NO_TYPE : (byte) type.ordinal();
+		if (stats != null) {
+			confidence[row] = stats.getConfidence();
+			if (stats.getTypes() != null) {
+				float[] vector = stats.getTypes().scores();
+				for (int i = 0; i < vector.length; i++) {
+					scores[i][row] = vector[i];
+				}
+			}
+		}
+		size++;
+		return row;
+	}
+
+	/**
+	 * @return the number of rows
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of distinct URLs
+	 */
+	public int getDistinctUrls() {
+		return urls.size();
+	}
+
+	/**
+	 * @param row the index of a row
+	 * @return the URL of the row
+	 */
+	public String getUrl(final int row) {
+		checkRow(row);
+		return urls.get(urlIds[row]);
+	}
+
+	/**
+	 * @param row the index of a row
+	 * @return the type of page of the row, or {@code null} if unknown
+	 */
+	public PageType getType(final int row) {
+		checkRow(row);
+		return types[row] == NO_TYPE ? null : PAGE_TYPES[types[row]];
+	}
+
+	/**
+	 * @param row the index of a row
+	 * @return the confidence of the classification of the row
+	 */
+	public float getConfidence(final int row) {
+		checkRow(row);
+		return confidence[row];
+	}
+
+	/**
+	 * @param row the index of a row
+	 * @param type a type of page
+	 * @return the score of {@code type} for the row
+	 */
+	public float getScore(final int row, final PageType type) {
+		checkRow(row);
+		return scores[type.ordinal()][row];
+	}
+
+	/**
+	 * @param type a type of page
+	 * @return a copy of the scores of {@code type}, indexed by row
+	 */
+	public float[] getColumn(final PageType type) {
+		return Arrays.copyOf(scores[type.ordinal()], size);
+	}
+
+	/**
+	 * @param rows a selection of rows
+	 * @return the URLs of the selected rows, in the order of the rows
+	 */
+	public List<String> getUrls(final BitSet rows) {
+		List<String> result = new ArrayList<String>(rows.cardinality());
+		for (int row = rows.nextSetBit(0); row >= 0 && row < size; row = rows.nextSetBit(row + 1)) {
+			result.add(urls.get(urlIds[row]));
+		}
+		return result;
+	}
+
+	/**
+	 * @param type a type of page
+	 * @param threshold the exclusive lower bound of the score
+	 * @return the rows where the score of {@code type} is greater than {@code threshold}
+	 */
+	public BitSet greaterThan(final PageType type, final float threshold) {
+		float[] column = scores[type.ordinal()];
+		long[] words = new long[(size + Long.SIZE - 1) / Long.SIZE];
+		for (int w = 0; w < words.length; w++) {
+			int base = w * Long.SIZE;
+			int end = Math.min(base + Long.SIZE, size);
+			long word = 0;
+			for (int i = base; i < end; i++) {
+				word |= (column[i] > threshold ? 1L : 0L) << (i - base);
+			}
+			words[w] = word;
+		}
+		return BitSet.valueOf(words);
+	}
+
+	/**
+	 * @param type a type of page
+	 * @param threshold the exclusive upper bound of the score
+	 * @return the rows where the score of {@code type} is lower than {@code threshold}
+	 */
+	public BitSet lessThan(final PageType type, final float threshold) {
+		float[] column = scores[type.ordinal()];
+		long[] words = new long[(size + Long.SIZE - 1) / Long.SIZE];
+		for (int w = 0; w < words.length; w++) {
+			int base = w * Long.SIZE;
+			int end = Math.min(base + Long.SIZE, size);
+			long word = 0;
+			for (int i = base; i < end; i++) {
+				word |= (column[i] < threshold ? 1L : 0L) << (i - base);
+			}
+			words[w] = word;
+		}
+		return BitSet.valueOf(words);
+	}
+
+	/**
+	 * @param type a type of page
+	 * @return the rows classified as {@code type}
+	 */
+	public BitSet ofType(final PageType type) {
+		BitSet result = new BitSet(size);
+		byte ordinal = (byte) type.ordinal();
+		for (int i = 0; i < size; i++) {
+			if (types[i] == ordinal) {
+				result.set(i);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param type a type of page
+	 * @param k the maximum number of rows to return
+	 * @return the {@code k} rows with the highest scores of {@code type}, by decreasing score
+	 */
+	public int[] topK(final PageType type, final int k) {
+		int count = Math.max(0, Math.min(k, size));
+		if (count == 0) {
+			return new int[0];
+		}
+		float[] column = scores[type.ordinal()];
+		// min-heap of the best rows seen so far, the lowest score at the root
+		int[] heap = new int[count];
+		for (int i = 0; i < count; i++) {
+			heap[i] = i;
+			siftUp(heap, i, column);
+		}
+		for (int i = count; i < size; i++) {
+			if (column[i] > column[heap[0]]) {
+				heap[0] = i;
+				siftDown(heap, count, column);
+			}
+		}
+		int[] result = new int[count];
+		for (int n = count; n > 0; n--) {
+			result[n - 1] = heap[0];
+			heap[0] = heap[n - 1];
+			siftDown(heap, n - 1, column);
+		}
+		return result;
+	}
+
+	private static void siftUp(final int[] heap, final int index, final float[] column) {
+		int child = index;
+		while (child > 0) {
+			int parent = (child - 1) >>> 1;
+			if (!lower(heap[child], heap[parent], column)) {
+				break;
+			}
+			swap(heap, child, parent);
+			child = parent;
+		}
+	}
+
+	private static void siftDown(final int[] heap, final int length, final float[] column) {
+		int parent = 0;
+		while (true) {
+			int child = 2 * parent + 1;
+			if (child >= length) {
+				break;
+			}
+			if (child + 1 < length && lower(heap[child + 1], heap[child], column)) {
+				child++;
+			}
+			if (!lower(heap[child], heap[parent], column)) {
+				break;
+			}
+			swap(heap, child, parent);
+			parent = child;
+		}
+	}
+
+	/**
+	 * Orders the rows by score, and by decreasing index for equal scores so the first rows are kept.
+	 */
+	private static boolean lower(final int row, final int other, final float[] column) {
+		return column[row] < column[other] || column[row] == column[other] && row > other;
+	}
+
+	private static void swap(final int[] heap, final int i, final int j) {
+		int tmp = heap[i];
+		heap[i] = heap[j];
+		heap[j] = tmp;
+	}
+
+	private void grow() {
+		int capacity = Math.max(DEFAULT_CAPACITY, confidence.length + (confidence.length >> 1));
+		for (int i = 0; i < scores.length; i++) {
+			scores[i] = Arrays.copyOf(scores[i], capacity);
+		}
+		confidence = Arrays.copyOf(confidence, capacity);
+		types = Arrays.copyOf(types, capacity);
+		urlIds = Arrays.copyOf(urlIds, capacity);
+	}
+
+	private void checkRow(final int row) {
+		if (row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException("Row: " + row + ", Size: " + size);
+		}
+	}
+
+}
@@ -24,179 +24,146 @@ package com.syncthemall.diffbot.model.classifier;
 
 import java.io.Serializable;
 
-import com.google.api.client.json.GenericJson;
-import com.google.api.client.util.Key;
+import com.syncthemall.diffbot.model.PageType;
+import com.syncthemall.diffbot.model.ScoreVector;
 
 /**
- * Types elements extracted from a {@link Stats} by Diffbot (Classifier API).
+ * Types elements extracted from a {@link Stats} by Diffbot (Classifier API). The scores are indexed by
+ * {@link PageType}.
  * 
  * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
  */
-public final class Types extends GenericJson implements Serializable {
+public final class Types extends ScoreVector<PageType> implements Serializable {
 
 	/** Serial code version <code>serialVersionUID</code>. **/
 	private static final long serialVersionUID = -4604447877717933892L;
 
-	@Key
-	private float recipe;
-	@Key
-	private float discussion;
-	@Key
-	private float audio;
-	@Key
-	private float error;
-	@Key
-	private float location;
-	@Key
-	private float faq;
-	@Key
-	private float image;
-	@Key
-	private float job;
-	@Key
-	private float download;
-	@Key
-	private float game;
-	@Key
-	private float product;
-	@Key
-	private float frontpage;
-	@Key
-	private float document;
-	@Key
-	private float article;
-	@Key
-	private float event;
-	@Key
-	private float chart;
-	@Key
-	private float serp;
-	@Key
-	private float reviewslist;
-	@Key
-	private float video;
-	@Key
-	private float profile;
+	/**
+	 * Creates an empty {@code Types}.
+	 */
+	public Types() {
+		super(PageType.class);
+	}
 
 	/**
 	 * @return Diffbot-determined score (likelihood) of page detailing recipe instructions and ingredients
 	 */
 	public float getRecipe() {
-		return recipe;
+		return score(PageType.RECIPE);
 	}
 	/**
 	 * @return Diffbot-determined score (likelihood) of specific forum, group or discussion topic
 	 */
 	public float getDiscussion() {
-		return discussion;
+		return score(PageType.DISCUSSION);
 	}
 	/**
 	 * @return Diffbot-determined score (likelihood) of a music or audio player
 	 */
 	public float getAudio() {
-		return audio;
+		return score(PageType.AUDIO);
 	}
 	/**
 	 * @return Diffbot-determined score (likelihood) of an error page
 	 */
 	public float getError() {
-		return error;
+		return score(PageType.ERROR);
 	}
 	/**
 	 * @return Diffbot-determined score (likelihood) of a page detailing location information, typically including an address and/or map
 	 */
 	public float getLocation() {
-		return location;
+		return score(PageType.LOCATION);
 	}
 	/**
 	 * @return Diffbot-determined score (likelihood) of a page of multiple frequently asked questions, or a single FAQ entry
 	 */
 	public float getFaq() {
-		return faq;
+		return score(PageType.FAQ);
 	}
 	/**
 	 * @return Diffbot-determined score (likelihood) of an image or photo page
 	 */
 	public float getImage() {
-		return image;
+		return score(PageType.IMAGE);
 	}
 	/**
 	 * @return Diffbot-determined score (likelihood) of a job posting
 	 */
 	public float getJob() {
-		return job;
+		return score(PageType.JOB);
 	}
 	/**
 	 * @return Diffbot-determined score (likelihood) of a downloadable file
 	 */
 	public float getDownload() {
-		return download;
+		return score(PageType.DOWNLOAD);
 	}
 	/**
 	 * @return Diffbot-determined score (likelihood) of a playable game
 	 */
 	public float getGame() {
-		return game;
+		return score(PageType.GAME);
 	}
 	/**
 	 * @return Diffbot-determined score (likelihood) of a product page, typically of a product for purchase
 	 */
 	public float getProduct() {
-		return product;
+		return score(PageType.PRODUCT);
 	}
 	/**
 	 * @return Diffbot-determined score (likelihood) of a news- or blog-style home page, with links to myriad sections and items
 	 */
 	public float getFrontpage() {
-		return frontpage;
+		return score(PageType.FRONTPAGE);
 	}
 	/**
 	 * @return Diffbot-determined score (likelihood) of an embedded or downloadable document or slideshow
 	 */
 	public float getDocument() {
-		return document;
+		return score(PageType.DOCUMENT);
 	}
 	/**
 	 * @return Diffbot-determined score (likelihood) of a news article, blog post or other primarily-text page
 	 */
 	public float getArticle() {
-		return article;
+		return score(PageType.ARTICLE);
 	}
 	/**
 	 * @return Diffbot-determined score (likelihood) of a page detailing specific event information, e.g. time/date/location
 	 */
 	public float getEvent() {
-		return event;
+		return score(PageType.EVENT);
 	}
 	/**
 	 * @return Diffbot-determined score (likelihood) of a graph or chart, typically financial
 	 */
 	public float getChart() {
-		return chart;
+		return score(PageType.CHART);
 	}
 	/**
 	 * @return Diffbot-determined score (likelihood) of a Search Engine Results Page
 	 */
 	public float getSerp() {
-		return serp;
+		return score(PageType.SERP);
 	}
 	/**
 	 * @return Diffbot-determined score (likelihood) of a list of user reviews
 	 */
 	public float getReviewslist() {
-		return reviewslist;
+		return score(PageType.REVIEWLIST);
 	}
 	/**
 	 * @return Diffbot-determined score (likelihood) of an individual video
 	 */
 	public float getVideo() {
-		return video;
+		return score(PageType.VIDEO);
 	}
 	/**
 	 * @return Diffbot-determined score (likelihood) of a person or user profile page
 	 */
 	public float getProfile() {
-		return profile;
+		return score(PageType.PROFILE);
 	}
 
 	@Override
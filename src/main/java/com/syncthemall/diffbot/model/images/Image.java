@@ -23,11 +23,13 @@
 package com.syncthemall.diffbot.model.images;
 
 import java.io.Serializable;
+import java.util.Date;
 import java.util.List;
 
 import com.google.api.client.json.GenericJson;
 import com.google.api.client.util.Key;
 import com.syncthemall.diffbot.Diffbot.Images.Analyze;
+import com.syncthemall.diffbot.converter.DateConverter;
 
 /**
  * Image element extracted from an {@link Images} by Diffbot (Image API).
@@ -53,6 +55,7 @@ public final class Image extends GenericJson implements Serializable {
 	private String attrTitle;
 	@Key
 	private String date;
+	private transient volatile Long parsedDate;
 	@Key
 	private int size;
 	@Key
@@ -140,6 +143,19 @@ public final class Image extends GenericJson implements Serializable {
 		return date;
 	}
 
+	/**
+	 * @return the date of image upload or creation parsed with {@link DateConverter}, or {@code null} if not detected
+	 *         or not parseable. The date is parsed once, on the first call.
+	 */
+	public Date getParsedDate() {
+		Long result = parsedDate;
+		if (result == null) {
+			result = DateConverter.parseTime(date);
+			parsedDate = result;
+		}
+		return result == DateConverter.NO_DATE ? null : new Date(result);
+	}
+
 	/**
 	 * @return size in bytes of image file
 	 */
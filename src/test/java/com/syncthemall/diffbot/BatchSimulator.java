@@ -0,0 +1,424 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.syncthemall.diffbot.DiffbotRequest.ApiType;
+import com.syncthemall.diffbot.metrics.HistogramSnapshot;
+import com.syncthemall.diffbot.metrics.LatencyHistogram;
+import com.syncthemall.diffbot.test.LatencyDistribution;
+
+/**
+ * Discrete-event simulation of the batch engine of a client, to compare batching policies without calling Diffbot.
+ * The requests arrive at a Poisson rate, and the get of their future is called after the linger of the policy. The
+ * batch calls are planned by the {@link BatchPlanner} of the client, and like {@link Future#get()} a single thread at
+ * a time can run them: a get on a request still queued waits until the calls of the previous one are answered. A
+ * batch call is answered after the longest latency of its requests, drawn from the distribution of their API.
+ * <p>
+ * The simulation runs on a virtual clock, so thousands of simulated seconds take a few real seconds.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public final class BatchSimulator {
+
+	private static final double NANOS_PER_SECOND = 1e9;
+	private static final double NANOS_PER_MILLI = 1e6;
+
+	private final Map<ApiType, LatencyDistribution> latencies = new EnumMap<ApiType, LatencyDistribution>(
+			ApiType.class);
+	private final Map<ApiType, Double> weights = new EnumMap<ApiType, Double>(ApiType.class);
+	private final long seed;
+	private double arrivalRate = 10;
+
+	/**
+	 * A batching policy: the settings of the client and the linger of the application between the queueing of a
+	 * request and the get of its future.
+	 */
+	public static final class Policy {
+
+		private final int maxBatchRequest;
+		private final int concurrentBatchRequest;
+		private final long lingerNanos;
+
+		/**
+		 * @param maxBatchRequest the maximum number of requests per batch call, as {@link Diffbot#setMaxBatchRequest}
+		 * @param concurrentBatchRequest the batch calls made in parallel, as
+		 *            {@link Diffbot#setConcurrentBatchRequest}
+		 * @param linger the time between the queueing of a request and the get of its future
+		 * @param unit the unit of {@code linger}
+		 */
+		public Policy(final int maxBatchRequest, final int concurrentBatchRequest, final long linger,
+				final TimeUnit unit) {
+			this.maxBatchRequest = maxBatchRequest;
+			this.concurrentBatchRequest = concurrentBatchRequest;
+			this.lingerNanos = unit.toNanos(linger);
+		}
+
+		@Override
+		public String toString() {
+			return "max=" + maxBatchRequest + " concurrent=" + concurrentBatchRequest + " linger="
+					+ TimeUnit.NANOSECONDS.toMillis(lingerNanos) + "ms";
+		}
+	}
+
+	/**
+	 * The results of the simulation of a policy.
+	 */
+	public static final class Report {
+
+		private final Policy policy;
+		private final int requests;
+		private final int calls;
+		private final long durationNanos;
+		private final HistogramSnapshot queueTime;
+		private final HistogramSnapshot completion;
+
+		private Report(final Policy policy, final int requests, final int calls, final long durationNanos,
+				final HistogramSnapshot queueTime, final HistogramSnapshot completion) {
+			this.policy = policy;
+			this.requests = requests;
+			this.calls = calls;
+			this.durationNanos = durationNanos;
+			this.queueTime = queueTime;
+			this.completion = completion;
+		}
+
+		/**
+		 * @return the number of requests completed
+		 */
+		public int getRequests() {
+			return requests;
+		}
+
+		/**
+		 * @return the number of batch calls made
+		 */
+		public int getCalls() {
+			return calls;
+		}
+
+		/**
+		 * @return the simulated time from the first arrival to the last completion, in seconds
+		 */
+		public double getSimulatedSeconds() {
+			return durationNanos / NANOS_PER_SECOND;
+		}
+
+		/**
+		 * @return the requests completed per simulated second
+		 */
+		public double getThroughput() {
+			return requests / getSimulatedSeconds();
+		}
+
+		/**
+		 * @return the simulated times between the queueing of the requests and the sending of their batch call
+		 */
+		public HistogramSnapshot getQueueTime() {
+			return queueTime;
+		}
+
+		/**
+		 * @return the simulated times between the queueing of the requests and the return of the get of their future
+		 */
+		public HistogramSnapshot getCompletion() {
+			return completion;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%-36s %8.1f req/s %7d calls %6.1f req/call  queue p50 %8.1f ms p99 %8.1f ms"
+					+ "  completion p50 %8.1f ms p99 %8.1f ms", policy, getThroughput(), calls, (double) requests
+					/ calls, queueTime.getPercentile(50) / NANOS_PER_MILLI, queueTime.getPercentile(99)
+					/ NANOS_PER_MILLI, completion.getPercentile(50) / NANOS_PER_MILLI, completion.getPercentile(99)
+					/ NANOS_PER_MILLI);
+		}
+	}
+
+	/**
+	 * @param seed the seed of the arrivals and of the mix of APIs, for reproducible simulations
+	 */
+	public BatchSimulator(final long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * @param requestsPerSecond the mean rate of arrival of the requests, in requests per simulated second
+	 * @return this {@code BatchSimulator}
+	 */
+	public BatchSimulator setArrivalRate(final double requestsPerSecond) {
+		this.arrivalRate = requestsPerSecond;
+		return this;
+	}
+
+	/**
+	 * Adds an API to the simulated requests.
+	 * 
+	 * @param apiType an API
+	 * @param weight the share of the requests to {@code apiType}, relative to the weights of the other APIs
+	 * @param latency the distribution of the time Diffbot takes to answer a request to {@code apiType}
+	 * @return this {@code BatchSimulator}
+	 */
+	public BatchSimulator setApi(final ApiType apiType, final double weight, final LatencyDistribution latency) {
+		weights.put(apiType, weight);
+		latencies.put(apiType, latency);
+		return this;
+	}
+
+	/**
+	 * Simulates {@code requests} requests with a policy. The same seed gives the same arrivals for every policy.
+	 * 
+	 * @param policy the batching policy
+	 * @param requests the number of requests to simulate
+	 * @return the results of the simulation
+	 */
+	public Report run(final Policy policy, final int requests) {
+		if (weights.isEmpty()) {
+			throw new IllegalStateException("No API to simulate");
+		}
+		return new Run(policy, requests).run();
+	}
+
+	private ApiType nextApi(final Random random) {
+		double total = 0;
+		for (double weight : weights.values()) {
+			total += weight;
+		}
+		double draw = random.nextDouble() * total;
+		ApiType last = null;
+		for (Map.Entry<ApiType, Double> entry : weights.entrySet()) {
+			last = entry.getKey();
+			draw -= entry.getValue();
+			if (draw < 0) {
+				break;
+			}
+		}
+		return last;
+	}
+
+	/**
+	 * A simulated request and the times of its life cycle.
+	 */
+	private static final class Request {
+
+		private final ApiType apiType;
+		private final long queuedAt;
+		private long dispatchedAt = -1;
+		private long respondedAt = -1;
+
+		private Request(final ApiType apiType, final long queuedAt) {
+			this.apiType = apiType;
+			this.queuedAt = queuedAt;
+		}
+	}
+
+	/**
+	 * An event of the simulation, fired at its time on the virtual clock.
+	 */
+	private abstract static class Event implements Comparable<Event> {
+
+		private final long time;
+		private final long sequence;
+
+		Event(final long time, final long sequence) {
+			this.time = time;
+			this.sequence = sequence;
+		}
+
+		abstract void fire();
+
+		@Override
+		public int compareTo(final Event other) {
+			if (time != other.time) {
+				return time < other.time ? -1 : 1;
+			}
+			return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+		}
+	}
+
+	/**
+	 * The state of the simulation of a policy.
+	 */
+	private final class Run {
+
+		private final Policy policy;
+		private final int requests;
+		private final Random random = new Random(seed);
+		private final PriorityQueue<Event> events = new PriorityQueue<Event>();
+		private final List<Request> queue = new ArrayList<Request>();
+		private final Deque<Request> waiting = new ArrayDeque<Request>();
+		private final LatencyHistogram queueTime = new LatencyHistogram();
+		private final LatencyHistogram completion = new LatencyHistogram();
+		private long now;
+		private long sequence;
+		private int arrived;
+		private int completed;
+		private int calls;
+		private boolean locked;
+
+		Run(final Policy policy, final int requests) {
+			this.policy = policy;
+			this.requests = requests;
+		}
+
+		Report run() {
+			schedule(0, new Arrival());
+			while (!events.isEmpty()) {
+				Event event = events.poll();
+				now = event.time;
+				event.fire();
+			}
+			return new Report(policy, completed, calls, now, queueTime.snapshot(), completion.snapshot());
+		}
+
+		private void schedule(final long delay, final Runnable action) {
+			events.add(new Event(now + delay, sequence++) {
+				@Override
+				void fire() {
+					action.run();
+				}
+			});
+		}
+
+		private void get(final Request request) {
+			if (request.respondedAt >= 0 && request.respondedAt <= now) {
+				complete(request);
+			} else if (locked) {
+				waiting.add(request);
+			} else {
+				dispatch(request);
+			}
+		}
+
+		private void dispatch(final Request initiator) {
+			locked = true;
+			long roundTrip = 0;
+			for (List<Request> call : BatchPlanner.plan(queue, initiator, policy.maxBatchRequest,
+					policy.concurrentBatchRequest > 1 ? policy.concurrentBatchRequest : 1)) {
+				calls++;
+				long latency = 0;
+				for (Request request : call) {
+					latency = Math.max(latency, TimeUnit.MILLISECONDS.toNanos(latencies.get(request.apiType)
+							.nextMillis()));
+				}
+				for (Request request : call) {
+					request.dispatchedAt = now;
+					request.respondedAt = now + latency;
+					queueTime.record(now - request.queuedAt);
+				}
+				roundTrip = Math.max(roundTrip, latency);
+			}
+			schedule(roundTrip, new Release(initiator));
+		}
+
+		private void complete(final Request request) {
+			completion.record(now - request.queuedAt);
+			completed++;
+		}
+
+		/**
+		 * The arrival of a request, queued then got after the linger of the policy.
+		 */
+		private final class Arrival implements Runnable {
+			@Override
+			public void run() {
+				final Request request = new Request(nextApi(random), now);
+				queue.add(request);
+				schedule(policy.lingerNanos, new Runnable() {
+					@Override
+					public void run() {
+						get(request);
+					}
+				});
+				if (++arrived < requests) {
+					schedule((long) (-Math.log(1 - random.nextDouble()) / arrivalRate * NANOS_PER_SECOND),
+							new Arrival());
+				}
+			}
+		}
+
+		/**
+		 * The end of the batch calls of a get: the lock is released, the waiting gets of the answered requests return
+		 * and the first waiting get of a request still queued makes the next calls.
+		 */
+		private final class Release implements Runnable {
+
+			private final Request initiator;
+
+			Release(final Request initiator) {
+				this.initiator = initiator;
+			}
+
+			@Override
+			public void run() {
+				locked = false;
+				complete(initiator);
+				for (Iterator<Request> i = waiting.iterator(); i.hasNext();) {
+					Request request = i.next();
+					if (request.respondedAt >= 0) {
+						i.remove();
+						complete(request);
+					}
+				}
+				if (!waiting.isEmpty()) {
+					dispatch(waiting.poll());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Compares policies under a load of requests to the Article, Image and Product APIs.
+	 * 
+	 * @param args the arrival rate in requests per second (default 10) and the number of requests (default 50000)
+	 */
+	public static void main(final String[] args) {
+		double rate = args.length > 0 ? Double.parseDouble(args[0]) : 10;
+		int requests = args.length > 1 ? Integer.parseInt(args[1]) : 50000;
+		BatchSimulator simulator = new BatchSimulator(42).setArrivalRate(rate);
+		simulator.setApi(ApiType.ARTICLE, 6, LatencyDistribution.logNormal(1200, TimeUnit.MILLISECONDS, 0.5, 1));
+		simulator.setApi(ApiType.IMAGE, 2, LatencyDistribution.logNormal(800, TimeUnit.MILLISECONDS, 0.4, 2));
+		simulator.setApi(ApiType.PRODUCT, 2, LatencyDistribution.logNormal(1500, TimeUnit.MILLISECONDS, 0.6, 3));
+		long start = System.nanoTime();
+		for (int maxBatchRequest : new int[] { 10, 25, 50 }) {
+			for (int concurrent : new int[] { 1, 2, 4 }) {
+				for (long linger : new long[] { 0, 500 }) {
+					System.out.println(simulator.run(new Policy(maxBatchRequest, concurrent, linger,
+							TimeUnit.MILLISECONDS), requests));
+				}
+			}
+		}
+		System.out.printf("Simulated in %.1f s%n", (System.nanoTime() - start) / NANOS_PER_SECOND);
+	}
+
+}
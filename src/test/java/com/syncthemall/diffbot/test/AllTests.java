@@ -36,7 +36,10 @@ import org.junit.runners.Suite.SuiteClasses;
  */
 @RunWith(Suite.class)
 @SuiteClasses({ InitializeTest.class, ArticleTest.class, FrontpageTest.class, ImagesTest.class, ProdutcsTest.class,
-		ClassifierTest.class, BatchTest.class })
+		ClassifierTest.class, BatchTest.class, CodecTest.class, IdentityTest.class, ScoreVectorTest.class,
+		ClassifiedTableTest.class, ConverterTest.class, CacheTest.class, DiskStoreTest.class, MetricsTest.class,
+		FlightRecorderTest.class, ReplayTest.class, StandInTest.class, FaultInjectionTest.class,
+		SimulatorTest.class, VirtualThreadTest.class })
 public final class AllTests {
 
 	private AllTests() {
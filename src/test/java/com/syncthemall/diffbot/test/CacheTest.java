@@ -0,0 +1,419 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.test;
+
+import static com.syncthemall.diffbot.Constants.BATCH_URL;
+import static com.syncthemall.diffbot.Constants.HTTP_OK;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.bind.JAXBException;
+
+import org.junit.Test;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.syncthemall.diffbot.Diffbot;
+import com.syncthemall.diffbot.DiffbotRequest.ApiType;
+import com.syncthemall.diffbot.Future;
+import com.syncthemall.diffbot.cache.CacheKey;
+import com.syncthemall.diffbot.cache.CacheStats;
+import com.syncthemall.diffbot.cache.ErrorCache;
+import com.syncthemall.diffbot.cache.ResultCache;
+import com.syncthemall.diffbot.exception.DiffbotAPIException;
+import com.syncthemall.diffbot.exception.DiffbotException;
+import com.syncthemall.diffbot.model.PageType;
+import com.syncthemall.diffbot.model.article.Article;
+
+/**
+ * Test for the {@code ResultCache}, the {@code ErrorCache} and the de-duplication of the concurrent requests.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public class CacheTest extends OfflineTest {
+
+	/**
+	 * Test that a request already answered is served from the cache, by {@code execute} and {@code queue}.
+	 * 
+	 * @throws IOException means the test is failed
+	 * @throws JAXBException means the test is failed
+	 * @throws DiffbotException means the test is failed
+	 */
+	@Test
+	public final void testClientUsesCache() throws IOException, JAXBException, DiffbotException {
+		AtomicInteger calls = new AtomicInteger();
+		Diffbot diffbot = mockDiffbot(fixture("article.json"), calls);
+		diffbot.setResultCache(new ResultCache(1024 * 1024));
+
+		Article article = diffbot.article().analyze(articleTestURL).execute();
+		String variant = articleTestURL.replace("www.huffingtonpost.com", "WWW.HUFFINGTONPOST.COM");
+		Article cached = diffbot.article().analyze(variant).execute();
+		assertEquals(article, cached);
+		assertEquals(variant, cached.getRequestedUrl());
+		assertSame(article, diffbot.article().analyze(articleTestURL).execute());
+		assertEquals(1, calls.get());
+
+		Future<Article> future = diffbot.article().analyze(articleTestURL).queue();
+		assertTrue("A cached result should not be queued", diffbot.getFutures().isEmpty());
+		assertSame(article, future.get());
+		assertEquals(1, calls.get());
+
+		diffbot.article().analyze(articleTestURL).withFields("title").execute();
+		assertEquals("Other fields should not be served from the cache", 2, calls.get());
+
+		CacheStats stats = diffbot.getResultCache().stats();
+		assertEquals(3, stats.getHitCount());
+		assertEquals(2, stats.getMissCount());
+		assertEquals(2, stats.getSize());
+		assertEquals(2 * fixture("article.json").getBytes("UTF-8").length, stats.getWeight());
+	}
+
+	/**
+	 * Test the time to live of the results.
+	 * 
+	 * @throws IOException means the test is failed
+	 * @throws JAXBException means the test is failed
+	 * @throws DiffbotException means the test is failed
+	 * @throws InterruptedException means the test is failed
+	 */
+	@Test
+	public final void testTtl() throws IOException, JAXBException, DiffbotException, InterruptedException {
+		AtomicInteger calls = new AtomicInteger();
+		Diffbot diffbot = mockDiffbot(fixture("article.json"), calls);
+		ResultCache cache = new ResultCache(1024 * 1024);
+		cache.setTtl(PageType.ARTICLE, 0, TimeUnit.SECONDS);
+		diffbot.setResultCache(cache);
+
+		diffbot.article().analyze(articleTestURL).execute();
+		diffbot.article().analyze(articleTestURL).execute();
+		assertEquals("Articles should not be cached", 2, calls.get());
+
+		CacheKey key = new CacheKey(ApiType.ARTICLE, articleTestURL, null, null);
+		cache.setTtl(ApiType.ARTICLE, 1, TimeUnit.MILLISECONDS);
+		cache.put(key, new Article(), 100);
+		Thread.sleep(10);
+		assertNull(cache.get(key));
+		assertEquals(1, cache.stats().getExpirationCount());
+	}
+
+	/**
+	 * Test that the frequently requested results are kept when the cache is full.
+	 */
+	@Test
+	public final void testFrequencyAdmission() {
+		ResultCache cache = new ResultCache(10000);
+		CacheKey hot = new CacheKey(ApiType.ARTICLE, "http://example.com/hot", null, null);
+		cache.put(hot, new Article(), 1000);
+		for (int i = 0; i < 5; i++) {
+			cache.get(hot);
+		}
+		for (int i = 0; i < 100; i++) {
+			CacheKey cold = new CacheKey(ApiType.ARTICLE, "http://example.com/" + i, null, null);
+			cache.put(cold, new Article(), 1000);
+		}
+
+		assertNotNull("The frequently requested result should be kept", cache.get(hot));
+		CacheStats stats = cache.stats();
+		assertTrue(stats.getWeight() <= cache.getMaximumWeight());
+		assertTrue(stats.getRejectionCount() + stats.getEvictionCount() >= 90);
+	}
+
+	/**
+	 * Test that an expired result is served while it is refreshed by a single background batch request.
+	 * 
+	 * @throws IOException means the test is failed
+	 * @throws JAXBException means the test is failed
+	 * @throws DiffbotException means the test is failed
+	 * @throws InterruptedException means the test is failed
+	 */
+	@Test
+	public final void testStaleWhileRevalidate() throws IOException, JAXBException, DiffbotException,
+			InterruptedException {
+		final AtomicInteger calls = new AtomicInteger();
+		final CountDownLatch gate = new CountDownLatch(1);
+		final String content = fixture("article.json");
+		MockHttpTransport transport = new MockHttpTransport() {
+			@Override
+			public LowLevelHttpRequest buildRequest(final String method, final String url) throws IOException {
+				calls.incrementAndGet();
+				MockLowLevelHttpResponse response = new MockLowLevelHttpResponse()
+						.setContentType("application/json; charset=UTF-8");
+				if (url.startsWith(BATCH_URL)) {
+					try {
+						gate.await();
+					} catch (InterruptedException e) {
+						throw new IOException(e);
+					}
+					response.setContent(batchContent(url, content, HTTP_OK));
+				} else {
+					response.setContent(content);
+				}
+				return new MockLowLevelHttpRequest(url).setResponse(response);
+			}
+		};
+		Diffbot diffbot = new Diffbot(transport, new GsonFactory(), "token");
+		ResultCache cache = new ResultCache(1024 * 1024);
+		cache.setTtl(ApiType.ARTICLE, 1, TimeUnit.MILLISECONDS);
+		cache.setMaxStale(1, TimeUnit.HOURS);
+		diffbot.setResultCache(cache);
+
+		Article article = diffbot.article().analyze(articleTestURL).execute();
+		Thread.sleep(10);
+		cache.setTtl(ApiType.ARTICLE, 1, TimeUnit.HOURS);
+		// the refresh cannot complete until the gate is opened
+		assertSame(article, diffbot.article().analyze(articleTestURL).execute());
+		assertSame(article, diffbot.article().analyze(articleTestURL).queue().get());
+		assertTrue("The refreshes should be collapsed", diffbot.getFutures().size() <= 1);
+		gate.countDown();
+		CacheKey key = new CacheKey(ApiType.ARTICLE, articleTestURL, null, null);
+		for (int i = 0; i < 100 && cache.get(key) == null; i++) {
+			Thread.sleep(10);
+		}
+		Article refreshed = diffbot.article().analyze(articleTestURL).execute();
+		assertTrue("The result should be refreshed", refreshed != article);
+		assertEquals(article, refreshed);
+		assertEquals(2, calls.get());
+		assertEquals(2, cache.stats().getStaleHitCount());
+	}
+
+	/**
+	 * Test that a refresh whose batch call fails is not left in the batch queue, where it would be sent again with the
+	 * next refresh of the same result.
+	 * 
+	 * @throws IOException means the test is failed
+	 * @throws JAXBException means the test is failed
+	 * @throws DiffbotException means the test is failed
+	 * @throws InterruptedException means the test is failed
+	 */
+	@Test
+	public final void testFailedRefresh() throws IOException, JAXBException, DiffbotException, InterruptedException {
+		final List<Integer> batchSizes = new CopyOnWriteArrayList<Integer>();
+		final String content = fixture("article.json");
+		MockHttpTransport transport = new MockHttpTransport() {
+			@Override
+			public LowLevelHttpRequest buildRequest(final String method, final String url) throws IOException {
+				MockLowLevelHttpResponse response = new MockLowLevelHttpResponse()
+						.setContentType("application/json; charset=UTF-8");
+				if (url.startsWith(BATCH_URL)) {
+					String batch = new GenericUrl(url).getFirst("batch").toString();
+					batchSizes.add(batch.split("relative_url").length - 1);
+					response.setStatusCode(500).setContent("{\"error\":\"Internal error\",\"errorCode\":500}");
+				} else {
+					response.setContent(content);
+				}
+				return new MockLowLevelHttpRequest(url).setResponse(response);
+			}
+		};
+		Diffbot diffbot = new Diffbot(transport, new GsonFactory(), "token");
+		ResultCache cache = new ResultCache(1024 * 1024);
+		cache.setTtl(ApiType.ARTICLE, 1, TimeUnit.MILLISECONDS);
+		cache.setMaxStale(1, TimeUnit.HOURS);
+		diffbot.setResultCache(cache);
+
+		Article article = diffbot.article().analyze(articleTestURL).execute();
+		Thread.sleep(10);
+		// every stale hit after the end of the first refresh starts a new one
+		for (int i = 0; i < 200 && batchSizes.size() < 2; i++) {
+			assertSame(article, diffbot.article().analyze(articleTestURL).execute());
+			Thread.sleep(10);
+		}
+		assertTrue(batchSizes.size() >= 2);
+		assertEquals("The failed refresh should not be sent again", Arrays.asList(1, 1), batchSizes.subList(0, 2));
+	}
+
+	/**
+	 * Test that a URL that failed with an API error fails again without being sent, for {@code execute} and
+	 * {@code queue}.
+	 * 
+	 * @throws JAXBException means the test is failed
+	 * @throws DiffbotException means the test is failed
+	 * @throws InterruptedException means the test is failed
+	 */
+	@Test
+	public final void testErrorCache() throws JAXBException, DiffbotException, InterruptedException {
+		AtomicInteger calls = new AtomicInteger();
+		Diffbot diffbot = mockDiffbot("{\"error\":\"Could not download page (404)\",\"errorCode\":404}", 404, calls);
+		ErrorCache errors = new ErrorCache();
+		diffbot.setErrorCache(errors);
+
+		for (int i = 0; i < 3; i++) {
+			try {
+				diffbot.article().analyze(articleTestURL).execute();
+				fail("A DiffbotAPIException should be thrown");
+			} catch (DiffbotAPIException e) {
+				assertEquals(404, e.getErrorCode());
+				assertEquals("Could not download page (404)", e.getMessage());
+			}
+		}
+		assertEquals("The error should be cached", 1, calls.get());
+		Future<Article> future = diffbot.article().analyze(articleTestURL).queue();
+		assertTrue("A cached error should not be queued", diffbot.getFutures().isEmpty());
+		try {
+			future.get();
+			fail("A DiffbotAPIException should be thrown");
+		} catch (DiffbotAPIException e) {
+			assertEquals(404, e.getErrorCode());
+		}
+
+		String other = "http://www.example.com/missing";
+		diffbot.images().analyze(other).queue();
+		try {
+			diffbot.article().analyze(other).queue().get();
+			fail("A DiffbotAPIException should be thrown");
+		} catch (DiffbotAPIException e) {
+			assertEquals(404, e.getErrorCode());
+		}
+		assertEquals(2, calls.get());
+		assertNotNull("The batch sub-response errors should be cached", errors.get(ApiType.IMAGE, other));
+
+		errors.setClassTtl(4, 1, TimeUnit.MILLISECONDS);
+		errors.put(ApiType.PRODUCT, other, new DiffbotAPIException(404, "Not found"));
+		errors.setTtl(500, 0, TimeUnit.SECONDS);
+		errors.put(ApiType.FRONTPAGE, other, new DiffbotAPIException(500, "Server error"));
+		assertNull(errors.get(ApiType.FRONTPAGE, other));
+		Thread.sleep(10);
+		assertNull(errors.get(ApiType.PRODUCT, other));
+	}
+
+	/**
+	 * Test that the 401 and transient errors of the batch sub-responses are not cached, unlike the 404 errors.
+	 * 
+	 * @throws IOException means the test is failed
+	 * @throws JAXBException means the test is failed
+	 * @throws DiffbotException means the test is failed
+	 */
+	@Test
+	public final void testErrorCachePolicy() throws IOException, JAXBException, DiffbotException {
+		ReplayTransport transport = ReplayTransport.fromFixtures();
+		Diffbot diffbot = new Diffbot(transport, new GsonFactory(), "token");
+		ErrorCache errors = new ErrorCache();
+		diffbot.setErrorCache(errors);
+		int[] codes = { 401, 429, 500, 503, 404 };
+		List<Future<Article>> futures = new ArrayList<Future<Article>>();
+		for (int code : codes) {
+			String url = "http://www.example.com/" + code;
+			GenericUrl relativeUrl = new GenericUrl("http://api.diffbot.com" + ReplayTransport.ARTICLE_PATH);
+			relativeUrl.set("url", url);
+			transport.record(relativeUrl.buildRelativeUrl(), code, "{\"error\":\"Error " + code + "\",\"errorCode\":"
+					+ code + "}");
+			futures.add(diffbot.article().analyze(url).queue());
+		}
+		for (int i = 0; i < codes.length; i++) {
+			try {
+				futures.get(i).get();
+				fail("A DiffbotAPIException should be thrown");
+			} catch (DiffbotAPIException e) {
+				assertEquals(codes[i], e.getErrorCode());
+			}
+		}
+		assertEquals(1, transport.getRequestCount());
+		for (int i = 0; i < codes.length - 1; i++) {
+			assertNull(errors.get(ApiType.ARTICLE, "http://www.example.com/" + codes[i]));
+		}
+		assertNotNull(errors.get(ApiType.ARTICLE, "http://www.example.com/404"));
+		assertEquals(1, errors.size());
+
+		errors.setClassTtl(5, 1, TimeUnit.MINUTES);
+		errors.setTtl(401, 1, TimeUnit.MINUTES);
+		errors.put(ApiType.ARTICLE, "http://www.example.com/500", new DiffbotAPIException(500, "Error 500"));
+		errors.put(ApiType.ARTICLE, "http://www.example.com/401", new DiffbotAPIException(401, "Error 401"));
+		assertNotNull("A 5xx error should be cached once a time to live is set",
+				errors.get(ApiType.ARTICLE, "http://www.example.com/500"));
+		assertNull("A 401 error should never be cached", errors.get(ApiType.ARTICLE, "http://www.example.com/401"));
+	}
+
+	/**
+	 * Test that the concurrent executions of the same request make only one call and get the same result.
+	 * 
+	 * @throws Exception means the test is failed
+	 */
+	@Test
+	public final void testSingleFlight() throws Exception {
+		final AtomicInteger calls = new AtomicInteger();
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch gate = new CountDownLatch(1);
+		final String content = fixture("article.json");
+		MockHttpTransport transport = new MockHttpTransport() {
+			@Override
+			public LowLevelHttpRequest buildRequest(final String method, final String url) throws IOException {
+				calls.incrementAndGet();
+				started.countDown();
+				try {
+					gate.await();
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+				return new MockLowLevelHttpRequest(url).setResponse(new MockLowLevelHttpResponse().setContent(content)
+						.setContentType("application/json; charset=UTF-8"));
+			}
+		};
+		final Diffbot diffbot = new Diffbot(transport, new GsonFactory(), "token");
+		Callable<Article> execute = new Callable<Article>() {
+			@Override
+			public Article call() throws DiffbotException {
+				return diffbot.article().analyze(articleTestURL).execute();
+			}
+		};
+		ExecutorService executor = Executors.newFixedThreadPool(5);
+		try {
+			List<java.util.concurrent.Future<Article>> results = new ArrayList<java.util.concurrent.Future<Article>>();
+			results.add(executor.submit(execute));
+			started.await();
+			for (int i = 0; i < 4; i++) {
+				results.add(executor.submit(execute));
+			}
+			Thread.sleep(200);
+			gate.countDown();
+			Article article = results.get(0).get();
+			for (java.util.concurrent.Future<Article> result : results) {
+				assertSame(article, result.get());
+			}
+			assertEquals(1, calls.get());
+		} finally {
+			executor.shutdown();
+		}
+		diffbot.article().analyze(articleTestURL).execute();
+		assertEquals("A request done should be executed again", 2, calls.get());
+	}
+
+}
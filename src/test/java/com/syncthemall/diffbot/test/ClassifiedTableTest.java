@@ -0,0 +1,102 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.junit.Test;
+
+import com.google.api.client.json.gson.GsonFactory;
+import com.syncthemall.diffbot.codec.JsonFactoryCodec;
+import com.syncthemall.diffbot.codec.Projection;
+import com.syncthemall.diffbot.model.PageType;
+import com.syncthemall.diffbot.model.classifier.Classified;
+import com.syncthemall.diffbot.model.classifier.ClassifiedTable;
+
+/**
+ * Test for the {@code ClassifiedTable}.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public class ClassifiedTableTest extends OfflineTest {
+
+	private static Classified classified(final String url, final String type, final float product, final float article)
+			throws IOException {
+		String json = String.format("{\"url\":\"%s\",\"type\":\"%s\",\"stats\":{\"confidence\":0.9,\"types\":"
+				+ "{\"product\":%s,\"article\":%s}}}", url, type, product, article);
+		return new JsonFactoryCodec(new GsonFactory()).parse(json, Classified.class, Projection.ALL);
+	}
+
+	/**
+	 * Test the selections and the top-k rows of a {@code ClassifiedTable}.
+	 * 
+	 * @throws IOException means the test is failed
+	 */
+	@Test
+	public final void testSelections() throws IOException {
+		ClassifiedTable table = new ClassifiedTable(2);
+		table.append(classified("http://a.com", "product", 0.9f, 0.1f));
+		table.append(classified("http://b.com", "article", 0.1f, 0.9f));
+		table.append(classified("http://c.com", "product", 0.85f, 0.3f));
+		table.append(classified("http://a.com", "product", 0.95f, 0.05f));
+		table.append("http://d.com", null, null);
+
+		assertEquals(5, table.size());
+		assertEquals(4, table.getDistinctUrls());
+		assertEquals(PageType.ARTICLE, table.getType(1));
+		assertNull(table.getType(4));
+		assertEquals(0.9f, table.getConfidence(0), 0f);
+		assertEquals(0.85f, table.getScore(2, PageType.PRODUCT), 0f);
+		assertArrayEquals(new float[] { 0.1f, 0.9f, 0.3f, 0.05f, 0f }, table.getColumn(PageType.ARTICLE), 0f);
+
+		BitSet rows = table.greaterThan(PageType.PRODUCT, 0.8f);
+		rows.and(table.lessThan(PageType.ARTICLE, 0.2f));
+		assertEquals(Arrays.asList("http://a.com", "http://a.com"), table.getUrls(rows));
+		assertEquals(3, table.ofType(PageType.PRODUCT).cardinality());
+
+		assertArrayEquals(new int[] { 3, 0, 2 }, table.topK(PageType.PRODUCT, 3));
+		assertArrayEquals(new int[] { 1 }, table.topK(PageType.ARTICLE, 1));
+		assertEquals(5, table.topK(PageType.ARTICLE, 10).length);
+	}
+
+	/**
+	 * Test the selections over more rows than a word of the {@code BitSet}.
+	 */
+	@Test
+	public final void testLargeSelection() {
+		ClassifiedTable table = new ClassifiedTable();
+		for (int i = 0; i < 200; i++) {
+			table.append("http://example.com/" + i, PageType.ARTICLE, null);
+		}
+		assertEquals(200, table.lessThan(PageType.PRODUCT, 0.5f).cardinality());
+		assertEquals(0, table.greaterThan(PageType.PRODUCT, 0.5f).cardinality());
+		assertArrayEquals(new int[] { 0, 1 }, table.topK(PageType.PRODUCT, 2));
+	}
+
+}
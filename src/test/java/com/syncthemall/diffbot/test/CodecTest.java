@@ -0,0 +1,457 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StringReader;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+
+import org.junit.Test;
+
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.client.util.Data;
+import com.syncthemall.diffbot.Diffbot;
+import com.syncthemall.diffbot.codec.JacksonCodec;
+import com.syncthemall.diffbot.codec.JsonFactoryCodec;
+import com.syncthemall.diffbot.codec.ModelCodec;
+import com.syncthemall.diffbot.codec.Projection;
+import com.syncthemall.diffbot.codec.StringInterner;
+import com.syncthemall.diffbot.codec.UnknownKeys;
+import com.syncthemall.diffbot.exception.DiffbotException;
+import com.syncthemall.diffbot.model.Meta;
+import com.syncthemall.diffbot.model.PageType;
+import com.syncthemall.diffbot.model.article.Article;
+import com.syncthemall.diffbot.model.batch.BatchResponse;
+import com.syncthemall.diffbot.model.classifier.Classified;
+import com.syncthemall.diffbot.model.frontpage.Frontpage;
+import com.syncthemall.diffbot.model.frontpage.Item;
+import com.syncthemall.diffbot.model.images.Images;
+import com.syncthemall.diffbot.model.products.Products;
+
+/**
+ * Test for the {@code ModelCodec} implementations.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public class CodecTest extends OfflineTest {
+
+	/**
+	 * Test that the Gson and Jackson codecs bind the same {@code Article}.
+	 * 
+	 * @throws IOException means the test is failed
+	 */
+	@Test
+	public final void testCodecsBindSameArticle() throws IOException {
+		String json = fixture("article.json");
+		Article gson = new JsonFactoryCodec(new GsonFactory()).parse(json, Article.class, Projection.ALL);
+		Article jackson = new JacksonCodec().parse(json, Article.class, Projection.ALL);
+
+		assertEquals("Both codecs should bind the same Article", gson, jackson);
+		assertEquals(PageType.ARTICLE, jackson.getType());
+		assertEquals(gson.getTitle(), jackson.getTitle());
+		assertEquals(gson.getText(), jackson.getText());
+		assertEquals(gson.getCategories().getPolitics(), jackson.getCategories().getPolitics(), 0f);
+		assertEquals(gson.getMeta().getOg().getSiteName(), jackson.getMeta().getOg().getSiteName());
+		assertEquals(gson.getImages().size(), jackson.getImages().size());
+	}
+
+	/**
+	 * Test that a client parses the API responses with the {@code ModelCodec} it is configured with.
+	 * 
+	 * @throws DiffbotException means the test is failed
+	 * @throws JAXBException means the test is failed
+	 * @throws IOException means the test is failed
+	 */
+	@Test
+	public final void testClientUsesModelCodec() throws DiffbotException, JAXBException, IOException {
+		Diffbot client = mockDiffbot(fixture("article.json"));
+		ModelCodec codec = new JsonFactoryCodec(new JacksonFactory());
+		client.setModelCodec(codec);
+		assertSame(codec, client.getModelCodec());
+
+		Article article = client.article().analyze(articleTestURL).execute();
+		assertEquals("Fast-Track Trade Bill Faces Opposition From Democrats", article.getTitle());
+		assertEquals(articleTestURL, article.getUrl());
+	}
+
+	/**
+	 * Test that a {@code null} {@code ModelCodec} is refused.
+	 * 
+	 * @throws JAXBException means the test is failed
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public final void testNullModelCodec() throws JAXBException {
+		mockDiffbot("{}").setModelCodec(null);
+	}
+
+	/**
+	 * Test that the keys outside of a {@code Projection} are not bound, with both codecs.
+	 * 
+	 * @throws IOException means the test is failed
+	 */
+	@Test
+	public final void testProjection() throws IOException {
+		String json = fixture("article.json");
+		Projection projection = Projection.parse("title, date, images(url)");
+		for (ModelCodec codec : new ModelCodec[] { new JsonFactoryCodec(new GsonFactory()), new JacksonCodec() }) {
+			Article article = codec.parse(json, Article.class, projection);
+			assertEquals("Fast-Track Trade Bill Faces Opposition From Democrats", article.getTitle());
+			assertEquals("Sat, 11 Jan 2014 00:00:00 GMT", article.getDate());
+			assertEquals("The url should always be kept", articleTestURL, article.getUrl());
+			assertEquals("The type should always be kept", PageType.ARTICLE, article.getType());
+			assertNull("The text was not requested", article.getText());
+			assertNull("The meta were not requested", article.getMeta());
+			assertNull("The querystring was not requested", article.getQuerystring());
+			assertFalse("The unknown keys were not requested", article.containsKey("nextPages"));
+			assertNotNull(article.getImages().get(0).getUrl());
+			assertNull("The image caption was not requested", article.getImages().get(0).getCaption());
+		}
+	}
+
+	/**
+	 * Test that a {@code Projection} keeping every key binds the same values as the reflective binding.
+	 * 
+	 * @throws IOException means the test is failed
+	 */
+	@Test
+	public final void testProjectionBindsSameValues() throws IOException {
+		String json = fixture("article.json");
+		JsonFactoryCodec codec = new JsonFactoryCodec(new GsonFactory());
+		Article expected = codec.parse(json, Article.class, Projection.ALL);
+		Article article = codec.parse(json, Article.class, Projection.parse("resolved_url,icon,title,author,date,"
+				+ "humanLanguage,numPages,text,html,summary,tags,links,images,videos,categories,meta,querystring,"
+				+ "comments,nextPages,supertags"));
+		assertEquals(expected.toPrettyString(), article.toPrettyString());
+	}
+
+	/**
+	 * Test that the fields requested with {@code withFields} are used as a {@code Projection} if the client is
+	 * configured to.
+	 * 
+	 * @throws DiffbotException means the test is failed
+	 * @throws JAXBException means the test is failed
+	 * @throws IOException means the test is failed
+	 */
+	@Test
+	public final void testFieldsProjection() throws DiffbotException, JAXBException, IOException {
+		Diffbot client = mockDiffbot(fixture("article.json"));
+		assertNotNull(client.article().analyze(articleTestURL).withFields("title").execute().getText());
+
+		client.setFieldsProjection(true);
+		Article article = client.article().analyze(articleTestURL).withFields("title").execute();
+		assertEquals("Fast-Track Trade Bill Faces Opposition From Democrats", article.getTitle());
+		assertNull("The text was not requested", article.getText());
+
+		assertNotNull("Every key should be kept with *", client.article().analyze(articleTestURL).withFields("*")
+				.execute().getText());
+	}
+
+	/**
+	 * Test the parsing of the {@code fields} syntax.
+	 */
+	@Test
+	public final void testProjectionSyntax() {
+		assertSame(Projection.ALL, Projection.parse(null));
+		assertSame(Projection.ALL, Projection.parse("*"));
+		assertSame(Projection.ALL, Projection.parse("title,*"));
+		Projection projection = Projection.parse("meta,links,images(*),videos(url,caption(text))");
+		assertSame(Projection.ALL, projection.child("meta"));
+		assertSame(Projection.ALL, projection.child("images"));
+		assertSame(Projection.ALL, projection.child("url"));
+		assertNull(projection.child("html"));
+		assertNull(projection.child("videos").child("pixelHeight"));
+		assertNotNull(projection.child("videos").child("caption").child("text"));
+	}
+
+	/**
+	 * Test that unbalanced parentheses are refused.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public final void testUnbalancedProjection() {
+		Projection.parse("images(url");
+	}
+
+	/**
+	 * Test that the unknown keys are skipped with {@link UnknownKeys#DISCARD} and only named with
+	 * {@link UnknownKeys#NAMES}.
+	 * 
+	 * @throws IOException means the test is failed
+	 */
+	@Test
+	public final void testUnknownKeys() throws IOException {
+		String json = fixture("article.json");
+		JsonFactoryCodec codec = new JsonFactoryCodec(new GsonFactory());
+		assertEquals(UnknownKeys.RETAIN, codec.getUnknownKeys());
+		Article retained = codec.parse(json, Article.class, Projection.ALL);
+		assertNotNull(retained.get("supertags"));
+		assertNotNull(retained.getMeta().get("keywords"));
+
+		codec.setUnknownKeys(UnknownKeys.DISCARD);
+		Article article = codec.parse(json, Article.class, Projection.ALL);
+		assertTrue("The unknown keys should be discarded", article.getUnknownKeys().isEmpty());
+		assertTrue("The unknown keys should be discarded", article.getMeta().getUnknownKeys().isEmpty());
+		assertEquals("The free-form maps should be retained", "true", article.getQuerystring().get("ref"));
+		assertEquals(retained.getText(), article.getText());
+		assertEquals(retained.getMeta().getOg().getSiteName(), article.getMeta().getOg().getSiteName());
+
+		codec.setUnknownKeys(UnknownKeys.NAMES);
+		article = codec.parse(json, Article.class, Projection.ALL);
+		assertTrue("The unknown keys names should be kept", article.getUnknownKeys().containsKey("supertags"));
+		assertNull("The unknown keys values should be discarded", article.get("supertags"));
+	}
+
+	/**
+	 * Test that the content of a {@code Classified} is retained whatever the {@code UnknownKeys} policy.
+	 * 
+	 * @throws IOException means the test is failed
+	 * @throws DiffbotException means the test is failed
+	 */
+	@Test
+	public final void testClassifiedKeepsDynamicKeys() throws IOException, DiffbotException {
+		JsonFactoryCodec codec = new JsonFactoryCodec(new GsonFactory());
+		codec.setUnknownKeys(UnknownKeys.DISCARD);
+		Classified classified = codec.parse(fixture("classified.json"), Classified.class, Projection.ALL);
+		assertEquals("Zach Carter", classified.asArticle().getAuthor());
+	}
+
+	/**
+	 * Test that the recorded responses of every API bind to their model.
+	 * 
+	 * @throws IOException means the test is failed
+	 * @throws JAXBException means the test is failed
+	 */
+	@Test
+	public final void testRecordedResponsesBind() throws IOException, JAXBException {
+		ModelCodec codec = new JsonFactoryCodec(new GsonFactory());
+		Images images = codec.parse(fixture("images.json"), Images.class, Projection.ALL);
+		assertEquals(2, images.getImages().size());
+		assertEquals(PageType.IMAGE, images.getType());
+		Products products = codec.parse(fixture("products.json"), Products.class, Projection.ALL);
+		assertEquals(119.0f, products.getProducts().get(0).getOfferPriceDetails().getAmount(), 0);
+		Frontpage frontpage = (Frontpage) JAXBContext.newInstance(Frontpage.class).createUnmarshaller()
+				.unmarshal(new StringReader(fixture("frontpage.xml")));
+		assertEquals(3, frontpage.getItems().size());
+		assertNotNull(frontpage.getItems().get(0).getPubDate());
+		assertEquals(Item.Type.IMAGE, frontpage.getItems().get(2).getType());
+	}
+
+	/**
+	 * Test that a compact {@code Article} returns and serializes the same text and HTML.
+	 * 
+	 * @throws IOException means the test is failed
+	 */
+	@Test
+	public final void testCompactText() throws IOException {
+		String json = fixture("article.json");
+		JsonFactoryCodec codec = new JsonFactoryCodec(new GsonFactory());
+		Article article = codec.parse(json, Article.class, Projection.ALL);
+		codec.setCompactText(true);
+		Article compact = codec.parse(json, Article.class, Projection.ALL);
+
+		assertFalse(article.isCompact());
+		assertTrue(compact.isCompact());
+		assertEquals(article.getText(), compact.getText());
+		assertEquals(article.getHtml(), compact.getHtml());
+		assertEquals(article.getText(), compact.get("text").toString());
+		assertEquals(article.getHtml(), compact.get("html").toString());
+		assertEquals(article.toPrettyString(), compact.toPrettyString());
+	}
+
+	/**
+	 * Test that a JSON {@code null} text is kept as {@code null} by a compact {@code Article}.
+	 * 
+	 * @throws IOException means the test is failed
+	 */
+	@Test
+	public final void testCompactNull() throws IOException {
+		String json = "{\"text\":\"Some text\",\"html\":null}";
+		JsonFactoryCodec codec = new JsonFactoryCodec(new GsonFactory());
+		Article reference = codec.parse(json, Article.class, Projection.ALL);
+		codec.setCompactText(true);
+		Article article = codec.parse(json, Article.class, Projection.ALL);
+
+		assertTrue(article.isCompact());
+		assertEquals("Some text", article.getText());
+		assertTrue(Data.isNull(article.getHtml()));
+		assertTrue(Data.isNull(article.get("html")));
+		assertEquals(new GsonFactory().toString(reference), new GsonFactory().toString(article));
+		assertTrue(new GsonFactory().toString(article).contains("\"html\":null"));
+	}
+
+	/**
+	 * Test that the short values repeated across results share the same instance when a {@code StringInterner} is set.
+	 * 
+	 * @throws IOException means the test is failed
+	 */
+	@Test
+	public final void testInterner() throws IOException {
+		String json = fixture("article.json");
+		JsonFactoryCodec codec = new JsonFactoryCodec(new GsonFactory());
+		Article reference = codec.parse(json, Article.class, Projection.ALL);
+		codec.setInterner(new StringInterner(1000, 64));
+		Article first = codec.parse(json, Article.class, Projection.ALL);
+		Article second = codec.parse(json, Article.class, Projection.ALL);
+
+		assertEquals(1024, codec.getInterner().getCapacity());
+		assertSame(first.getHumanLanguage(), second.getHumanLanguage());
+		assertSame(first.getMeta().getOg().getSiteName(), second.getMeta().getOg().getSiteName());
+		assertSame(first.getMeta().getTwitter().getSite(), second.getMeta().getTwitter().getSite());
+		assertSame(first.getTags()[0], second.getTags()[0]);
+		assertNotSame("Long values should not be interned", first.getText(), second.getText());
+		assertEquals(reference.toPrettyString(), second.toPrettyString());
+	}
+
+	/**
+	 * Test that only the tags present in the page are stored in the {@code OpenGraph} and {@code Twitter} elements.
+	 * 
+	 * @throws IOException means the test is failed
+	 */
+	@Test
+	public final void testSparseMeta() throws IOException {
+		String json = "{\"og\":{\"og:site_name\":\"Site\",\"og:locale\":\"en_US\"},"
+				+ "\"twitter\":{\"twitter:site\":\"@site\",\"twitter:custom\":\"value\"}}";
+		JsonFactoryCodec codec = new JsonFactoryCodec(new GsonFactory());
+		Meta meta = codec.parse(json, Meta.class, Projection.ALL);
+
+		assertEquals(2, meta.getOg().size());
+		assertEquals("Site", meta.getOg().getSiteName());
+		assertEquals("en_US", meta.getOg().getLocale());
+		assertNull(meta.getOg().getTitle());
+		assertEquals("@site", meta.getTwitter().getSite());
+		assertEquals("value", meta.getTwitter().get("twitter:custom"));
+
+		codec.setUnknownKeys(UnknownKeys.DISCARD);
+		meta = codec.parse(json, Meta.class, Projection.ALL);
+		assertEquals("@site", meta.getTwitter().getSite());
+		assertEquals(1, meta.getTwitter().size());
+	}
+
+	/**
+	 * Test that an Open Graph or Twitter tag sent as a JSON {@code null} is returned by its getter as the {@code null}
+	 * sentinel of a {@code String}.
+	 * 
+	 * @throws IOException means the test is failed
+	 */
+	@Test
+	public final void testNullMeta() throws IOException {
+		String json = "{\"og\":{\"og:title\":null},\"twitter\":{\"twitter:site\":null}}";
+		Meta meta = new JsonFactoryCodec(new GsonFactory()).parse(json, Meta.class, Projection.ALL);
+
+		assertSame(Data.NULL_STRING, meta.getOg().getTitle());
+		assertSame(Data.NULL_STRING, meta.getTwitter().getSite());
+		assertNull(meta.getOg().getImage());
+		assertNull(meta.getTwitter().getCard());
+		String written = new GsonFactory().toString(meta);
+		assertTrue(written, written.contains("\"og:title\":null"));
+		assertTrue(written, written.contains("\"twitter:site\":null"));
+	}
+
+	/**
+	 * Test that the Open Graph and Twitter tags survive the Java serialization of a {@code Meta}.
+	 * 
+	 * @throws IOException means the test is failed
+	 * @throws ClassNotFoundException means the test is failed
+	 */
+	@Test
+	public final void testMetaSerialization() throws IOException, ClassNotFoundException {
+		String json = "{\"title\":\"Page\",\"og\":{\"og:title\":\"Fast-Track\",\"og:image\":null},"
+				+ "\"twitter\":{\"twitter:site\":\"@HuffingtonPost\",\"twitter:custom\":\"value\"}}";
+		Meta meta = new JsonFactoryCodec(new GsonFactory()).parse(json, Meta.class, Projection.ALL);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(meta);
+		out.close();
+		Meta copy = (Meta) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+
+		assertEquals("Page", copy.getTitle());
+		assertEquals("Fast-Track", copy.getOg().getTitle());
+		assertTrue(copy.getOg().containsKey("og:image"));
+		assertTrue(Data.isNull(copy.getOg().get("og:image")));
+		assertEquals("@HuffingtonPost", copy.getTwitter().getSite());
+		assertEquals("value", copy.getTwitter().get("twitter:custom"));
+		assertEquals(new GsonFactory().toString(meta), new GsonFactory().toString(copy));
+	}
+
+	/**
+	 * Test that the interner keeps a JSON {@code null} and an empty string apart, in both orders.
+	 * 
+	 * @throws IOException means the test is failed
+	 */
+	@Test
+	public final void testInternNullAndEmpty() throws IOException {
+		for (String json : new String[] { "{\"author\":null,\"title\":\"\"}", "{\"title\":\"\",\"author\":null}" }) {
+			JsonFactoryCodec codec = new JsonFactoryCodec(new GsonFactory());
+			codec.setInterner(new StringInterner(1000, 64));
+			Article article = codec.parse(json, Article.class, Projection.ALL);
+			assertTrue(Data.isNull(article.getAuthor()));
+			assertFalse(Data.isNull(article.getTitle()));
+			assertEquals("", article.getTitle());
+			String written = new GsonFactory().toString(article);
+			assertTrue(written, written.contains("\"author\":null"));
+			assertTrue(written, written.contains("\"title\":\"\""));
+		}
+	}
+
+	/**
+	 * Test that a batch response truncated at any position fails with an {@code IOException}, as when the connection
+	 * is closed in the middle of the response.
+	 * 
+	 * @throws IOException means the test is failed
+	 */
+	@Test
+	public final void testTruncatedContent() throws IOException {
+		GenericJson response = new GenericJson();
+		response.set("code", 200).set("body", fixture("article.json")).set("relative_url", "/api/article");
+		String json = new GsonFactory().toString(new GenericJson[] { response });
+		for (ModelCodec codec : new ModelCodec[] { new JsonFactoryCodec(new GsonFactory()),
+				new JsonFactoryCodec(new JacksonFactory()), new JacksonCodec() }) {
+			assertEquals(1, codec.parse(json, BatchResponse[].class, Projection.ALL).length);
+			for (int length = 1; length < json.length(); length++) {
+				try {
+					codec.parse(json.substring(0, length), BatchResponse[].class, Projection.ALL);
+					fail("Content truncated at " + length + " should not be parsed by " + codec);
+				} catch (IOException e) {
+					assertNotNull(e.getMessage());
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,146 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.bind.JAXBException;
+
+import org.junit.Test;
+
+import com.google.api.client.json.gson.GsonFactory;
+import com.syncthemall.diffbot.Diffbot;
+import com.syncthemall.diffbot.cache.ResultCache;
+import com.syncthemall.diffbot.codec.JsonFactoryCodec;
+import com.syncthemall.diffbot.codec.Projection;
+import com.syncthemall.diffbot.converter.DateConverter;
+import com.syncthemall.diffbot.converter.DateXmlAdapter;
+import com.syncthemall.diffbot.converter.UrlCanonicalizer;
+import com.syncthemall.diffbot.exception.DiffbotException;
+import com.syncthemall.diffbot.model.article.Article;
+
+/**
+ * Test for the conversion of the dates returned by Diffbot and of the URLs submitted to Diffbot.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public class ConverterTest extends OfflineTest {
+
+	/** Sat, 11 Jan 2014 00:00:00 GMT. */
+	private static final long JANUARY_11_2014 = 1389398400000L;
+
+	/**
+	 * Test the formats supported by the {@code DateConverter}.
+	 * 
+	 * @throws ParseException means the test is failed
+	 */
+	@Test
+	public final void testDateConverter() throws ParseException {
+		assertEquals(JANUARY_11_2014, DateConverter.parseTime("Sat, 11 Jan 2014 00:00:00 GMT"));
+		assertEquals(JANUARY_11_2014, DateConverter.parseTime("2014-01-11T01:00:00+01:00"));
+		assertEquals(JANUARY_11_2014, DateConverter.parseTime("2014-01-11"));
+		assertEquals(DateConverter.NO_DATE, DateConverter.parseTime("yesterday"));
+		assertNull(DateConverter.parse(null));
+
+		DateXmlAdapter adapter = new DateXmlAdapter();
+		assertEquals("Sat, 11 Jan 2014 00:00:00 GMT", adapter.marshal(new Date(JANUARY_11_2014)));
+		assertEquals(new Date(JANUARY_11_2014), adapter.unmarshal("Sat, 11 Jan 2014 00:00:00 GMT"));
+	}
+
+	/**
+	 * Test that the date of an {@code Article} is parsed and returned as a copy.
+	 * 
+	 * @throws IOException means the test is failed
+	 */
+	@Test
+	public final void testArticleParsedDate() throws IOException {
+		Article article = new JsonFactoryCodec(new GsonFactory()).parse(fixture("article.json"), Article.class,
+				Projection.ALL);
+		Date date = article.getParsedDate();
+
+		assertEquals(JANUARY_11_2014, date.getTime());
+		date.setTime(0);
+		assertEquals(JANUARY_11_2014, article.getParsedDate().getTime());
+		assertNotSame(article.getParsedDate(), article.getParsedDate());
+		assertNull(new Article().getParsedDate());
+	}
+
+	/**
+	 * Test the rules of the {@code UrlCanonicalizer}.
+	 */
+	@Test
+	public final void testUrlCanonicalizer() {
+		UrlCanonicalizer canonicalizer = new UrlCanonicalizer();
+		assertNull(canonicalizer.canonicalize(null));
+		assertEquals("http://www.example.com/", canonicalizer.canonicalize(" HTTP://WWW.Example.com:80 "));
+		assertEquals("https://www.example.com/Path?id=1",
+				canonicalizer.canonicalize("https://www.example.com:443/Path/?id=1&utm_source=news&utm_medium=x#top"));
+		assertEquals("http://www.example.com:8080/a?b=2&a=1",
+				canonicalizer.canonicalize("http://www.example.com:8080/a?b=2&gclid=x&a=1&ref=home&ref"));
+		assertEquals("http://user@[::1]:8080/", canonicalizer.canonicalize("http://user@[::1]:8080"));
+
+		canonicalizer.setForceHttps(true);
+		canonicalizer.setSortParameters(true);
+		canonicalizer.setRemoveTrailingSlash(false);
+		canonicalizer.addParameters("session*");
+		canonicalizer.addDomainParameters("Amazon.com", "qid", "sr");
+		assertEquals("https://www.amazon.com/dp/B00/?keywords=kindle",
+				canonicalizer.canonicalize("http://www.amazon.com/dp/B00/?sr=8-1&qid=13&keywords=kindle&sessionid=1"));
+		assertEquals("https://example.com/?a=1&a=0&b=2", canonicalizer.canonicalize("http://example.com?b=2&a=1&a=0"));
+	}
+
+	/**
+	 * Test that the variants of a URL share one call and one cached result, and keep their requested URL.
+	 * 
+	 * @throws IOException means the test is failed
+	 * @throws JAXBException means the test is failed
+	 * @throws DiffbotException means the test is failed
+	 */
+	@Test
+	public final void testCanonicalRequests() throws IOException, JAXBException, DiffbotException {
+		AtomicInteger calls = new AtomicInteger();
+		Diffbot diffbot = mockDiffbot(fixture("article.json"), calls);
+		diffbot.setUrlCanonicalizer(new UrlCanonicalizer());
+		diffbot.setResultCache(new ResultCache(1024 * 1024));
+
+		String variant = articleTestURL + "?utm_source=twitter";
+		Article article = diffbot.article().analyze(articleTestURL).execute();
+		Article other = diffbot.article().analyze(variant).execute();
+		assertEquals(1, calls.get());
+		assertEquals(articleTestURL, article.getRequestedUrl());
+		assertEquals(variant, other.getRequestedUrl());
+		assertEquals(article, other);
+		assertNotNull(other.getTitle());
+		assertSame(article, diffbot.article().analyze(articleTestURL).execute());
+	}
+
+}
@@ -0,0 +1,355 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.test;
+
+import static com.syncthemall.diffbot.Constants.HTTP_OK;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.gson.GsonFactory;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local stand-in of the Diffbot servers, on the JDK embedded HTTP server, to tune the concurrency and the batching of
+ * the SDK against a real HTTP stack. It implements the Article, Image, Product, Classifier (analyze), Frontpage and
+ * batch endpoints with the recorded responses of the test resources, or with bodies set by API. A {@code {url}} in a
+ * body is replaced by the URL of the analyzed page, so every page gets a distinct result.
+ * <p>
+ * The latency, the rate of API errors and the number of requests accepted per second are configurable. A batch call
+ * is answered after the longest latency of its sub-requests, as Diffbot processes them concurrently.
+ * 
+ * <pre>
+ * DiffbotServer server = DiffbotServer.fromFixtures().start();
+ * diffbot.setBaseUrl(server.getBaseUrl());
+ * ...
+ * server.stop();
+ * </pre>
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public class DiffbotServer {
+
+	private static final String BATCH_PATH = "/api/batch";
+	private static final String URL_PLACEHOLDER = "{url}";
+	private static final String JSON = "application/json; charset=UTF-8";
+	private static final String XML = "text/xml; charset=UTF-8";
+	private static final String NOT_FOUND = "{\"error\":\"Unknown API\",\"errorCode\":404}";
+	private static final String SERVER_ERROR = "{\"error\":\"Internal error\",\"errorCode\":500}";
+	private static final String TOO_MANY_REQUESTS = "{\"error\":\"Too many requests\",\"errorCode\":429}";
+	private static final int HTTP_NOT_FOUND = 404;
+	private static final int HTTP_SERVER_ERROR = 500;
+	private static final int HTTP_TOO_MANY_REQUESTS = 429;
+	private static final long ONE_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	private final Map<String, String> bodies = new ConcurrentHashMap<String, String>();
+	private final JsonFactory jsonFactory = new GsonFactory();
+	private final Random random = new Random(0);
+	private final AtomicInteger requestCount = new AtomicInteger();
+	private final AtomicInteger batchCount = new AtomicInteger();
+	private final AtomicInteger subRequestCount = new AtomicInteger();
+	private final AtomicInteger errorCount = new AtomicInteger();
+	private final AtomicInteger rejectedCount = new AtomicInteger();
+	private volatile LatencyDistribution latency = LatencyDistribution.NONE;
+	private volatile double errorRate;
+	private volatile int rateLimit;
+	private long windowStart;
+	private int windowCount;
+	private HttpServer server;
+	private ExecutorService executor;
+
+	/**
+	 * Creates a stand-in with no response body: every API answers a 404 error until its body is set.
+	 */
+	public DiffbotServer() {
+		super();
+	}
+
+	/**
+	 * @return a stand-in answering every API with its recorded response
+	 * @throws IOException if a recorded response cannot be read
+	 */
+	public static DiffbotServer fromFixtures() throws IOException {
+		DiffbotServer server = new DiffbotServer();
+		server.setBody(ReplayTransport.ARTICLE_PATH, OfflineTest.fixture("article.json"));
+		server.setBody(ReplayTransport.IMAGE_PATH, OfflineTest.fixture("images.json"));
+		server.setBody(ReplayTransport.PRODUCT_PATH, OfflineTest.fixture("products.json"));
+		server.setBody(ReplayTransport.CLASSIFIER_PATH, OfflineTest.fixture("classified.json"));
+		server.setBody(ReplayTransport.FRONTPAGE_PATH, OfflineTest.fixture("frontpage.xml"));
+		return server;
+	}
+
+	/**
+	 * @param path the path of an API, e.g. {@code /v2/article}
+	 * @param body the body of its successful responses, where {@code {url}} is replaced by the analyzed URL
+	 * @return this {@code DiffbotServer}
+	 */
+	public final DiffbotServer setBody(final String path, final String body) {
+		bodies.put(path, body);
+		return this;
+	}
+
+	/**
+	 * @param latency the processing time of every analyzed page (default none)
+	 * @return this {@code DiffbotServer}
+	 */
+	public final DiffbotServer setLatency(final LatencyDistribution latency) {
+		this.latency = latency;
+		return this;
+	}
+
+	/**
+	 * @param errorRate the probability, between 0 and 1, that a page is answered with a 500 API error (default 0)
+	 * @return this {@code DiffbotServer}
+	 */
+	public final DiffbotServer setErrorRate(final double errorRate) {
+		this.errorRate = errorRate;
+		return this;
+	}
+
+	/**
+	 * @param rateLimit the number of HTTP calls accepted per second, the others are answered with a 429 error, or 0
+	 *            for no limit (default)
+	 * @return this {@code DiffbotServer}
+	 */
+	public final DiffbotServer setRateLimit(final int rateLimit) {
+		this.rateLimit = rateLimit;
+		return this;
+	}
+
+	/**
+	 * Starts the server on a free port of the loopback interface.
+	 * 
+	 * @return this {@code DiffbotServer}
+	 * @throws IOException if the server cannot be started
+	 */
+	public final synchronized DiffbotServer start() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		executor = Executors.newCachedThreadPool();
+		server.setExecutor(executor);
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(final HttpExchange exchange) throws IOException {
+				try {
+					serve(exchange);
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		server.start();
+		return this;
+	}
+
+	/**
+	 * Stops the server, without waiting for the exchanges in progress.
+	 */
+	public final synchronized void stop() {
+		if (server != null) {
+			server.stop(0);
+			executor.shutdownNow();
+			server = null;
+		}
+	}
+
+	/**
+	 * @return the URL of the server, to set with {@code Diffbot.setBaseUrl}
+	 */
+	public final synchronized String getBaseUrl() {
+		return "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+
+	/**
+	 * @return the number of HTTP calls received, direct and batch
+	 */
+	public final int getRequestCount() {
+		return requestCount.get();
+	}
+
+	/**
+	 * @return the number of batch calls received
+	 */
+	public final int getBatchCount() {
+		return batchCount.get();
+	}
+
+	/**
+	 * @return the number of pages analyzed, by direct calls or batch sub-requests
+	 */
+	public final int getSubRequestCount() {
+		return subRequestCount.get();
+	}
+
+	/**
+	 * @return the number of pages answered with an API error
+	 */
+	public final int getErrorCount() {
+		return errorCount.get();
+	}
+
+	/**
+	 * @return the number of HTTP calls rejected by the rate limit
+	 */
+	public final int getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	private void serve(final HttpExchange exchange) throws IOException {
+		requestCount.incrementAndGet();
+		if (!acquire()) {
+			rejectedCount.incrementAndGet();
+			send(exchange, HTTP_TOO_MANY_REQUESTS, JSON, TOO_MANY_REQUESTS);
+			return;
+		}
+		String path = exchange.getRequestURI().getRawPath();
+		Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+		if (BATCH_PATH.equals(path)) {
+			batchCount.incrementAndGet();
+			serveBatch(exchange, query.get("batch"));
+		} else {
+			Page page = analyze(path, query.get("url"));
+			sleep(page.latency);
+			send(exchange, page.code, page.code == HTTP_OK && path.equals(ReplayTransport.FRONTPAGE_PATH) ? XML
+					: JSON, page.body);
+		}
+	}
+
+	private void serveBatch(final HttpExchange exchange, final String batch) throws IOException {
+		List<GenericJson> responses = new ArrayList<GenericJson>();
+		long longest = 0;
+		for (Object request : jsonFactory.createJsonParser(batch).parseArray(ArrayList.class, GenericJson.class)) {
+			String relativeUrl = ((GenericJson) request).get("relative_url").toString();
+			int separator = relativeUrl.indexOf('?');
+			String path = separator < 0 ? relativeUrl : relativeUrl.substring(0, separator);
+			Map<String, String> query = parseQuery(separator < 0 ? null : relativeUrl.substring(separator + 1));
+			Page page = analyze(path, query.get("url"));
+			longest = Math.max(longest, page.latency);
+			GenericJson response = new GenericJson();
+			response.set("code", page.code).set("body", page.body).set("relative_url", relativeUrl);
+			responses.add(response);
+		}
+		sleep(longest);
+		send(exchange, HTTP_OK, JSON, jsonFactory.toString(responses));
+	}
+
+	private Page analyze(final String path, final String url) {
+		subRequestCount.incrementAndGet();
+		long millis = latency.nextMillis();
+		String body = bodies.get(path);
+		if (body == null) {
+			errorCount.incrementAndGet();
+			return new Page(HTTP_NOT_FOUND, NOT_FOUND, millis);
+		}
+		boolean error;
+		synchronized (random) {
+			error = random.nextDouble() < errorRate;
+		}
+		if (error) {
+			errorCount.incrementAndGet();
+			return new Page(HTTP_SERVER_ERROR, SERVER_ERROR, millis);
+		}
+		return new Page(HTTP_OK, body.replace(URL_PLACEHOLDER, url == null ? "" : url), millis);
+	}
+
+	private synchronized boolean acquire() {
+		if (rateLimit <= 0) {
+			return true;
+		}
+		long now = System.nanoTime();
+		if (now - windowStart >= ONE_SECOND) {
+			windowStart = now;
+			windowCount = 0;
+		}
+		return ++windowCount <= rateLimit;
+	}
+
+	private static Map<String, String> parseQuery(final String rawQuery) throws UnsupportedEncodingException {
+		Map<String, String> result = new LinkedHashMap<String, String>();
+		if (rawQuery != null) {
+			for (String parameter : rawQuery.split("&")) {
+				int separator = parameter.indexOf('=');
+				if (separator > 0) {
+					result.put(URLDecoder.decode(parameter.substring(0, separator), "UTF-8"),
+							URLDecoder.decode(parameter.substring(separator + 1), "UTF-8"));
+				}
+			}
+		}
+		return result;
+	}
+
+	private static void send(final HttpExchange exchange, final int code, final String contentType,
+			final String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", contentType);
+		exchange.sendResponseHeaders(code, bytes.length);
+		OutputStream out = exchange.getResponseBody();
+		out.write(bytes);
+		out.close();
+	}
+
+	private static void sleep(final long millis) throws IOException {
+		if (millis > 0) {
+			try {
+				Thread.sleep(millis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while simulating the latency", e);
+			}
+		}
+	}
+
+	/**
+	 * The answer for an analyzed page.
+	 */
+	private static final class Page {
+
+		private final int code;
+		private final String body;
+		private final long latency;
+
+		private Page(final int code, final String body, final long latency) {
+			this.code = code;
+			this.body = body;
+			this.latency = latency;
+		}
+	}
+
+}
@@ -0,0 +1,218 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.bind.JAXBException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.syncthemall.diffbot.Diffbot;
+import com.syncthemall.diffbot.DiffbotRequest.ApiType;
+import com.syncthemall.diffbot.Future;
+import com.syncthemall.diffbot.cache.CacheKey;
+import com.syncthemall.diffbot.cache.DiskStore;
+import com.syncthemall.diffbot.exception.DiffbotException;
+import com.syncthemall.diffbot.model.article.Article;
+
+/**
+ * Test for the {@code DiskStore}.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public class DiskStoreTest extends OfflineTest {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final int SEGMENT_SIZE = 4096;
+
+	/** Directory of the segment files. */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Test that a client restarted with the same {@code DiskStore} directory does not call Diffbot again.
+	 * 
+	 * @throws IOException means the test is failed
+	 * @throws JAXBException means the test is failed
+	 * @throws DiffbotException means the test is failed
+	 */
+	@Test
+	public final void testWarmRestart() throws IOException, JAXBException, DiffbotException {
+		File directory = folder.newFolder();
+		AtomicInteger calls = new AtomicInteger();
+		Diffbot diffbot = mockDiffbot(fixture("article.json"), calls);
+		DiskStore store = new DiskStore(directory);
+		diffbot.setDiskStore(store);
+		Article article = diffbot.article().analyze(articleTestURL).execute();
+		assertEquals(1, calls.get());
+		store.close();
+
+		AtomicInteger restartCalls = new AtomicInteger();
+		Diffbot restarted = mockDiffbot(fixture("article.json"), restartCalls);
+		restarted.setDiskStore(new DiskStore(directory));
+		assertEquals(article, restarted.article().analyze(articleTestURL).execute());
+		Future<Article> future = restarted.article().analyze(articleTestURL).queue();
+		assertTrue("A stored result should not be queued", restarted.getFutures().isEmpty());
+		assertEquals(article.getTitle(), future.get().getTitle());
+		assertEquals("A warm restart should not call Diffbot", 0, restartCalls.get());
+	}
+
+	/**
+	 * Test that the records written before an incomplete record are recovered, and that the store is still writable.
+	 * 
+	 * @throws IOException means the test is failed
+	 */
+	@Test
+	public final void testRecovery() throws IOException {
+		File directory = folder.newFolder();
+		DiskStore store = new DiskStore(directory, SEGMENT_SIZE);
+		store.put(key(1), body(1));
+		store.put(key(2), body(2));
+		store.close();
+
+		// simulates a record interrupted by a crash after the two complete records
+		File segment = directory.listFiles()[0];
+		RandomAccessFile file = new RandomAccessFile(segment, "rw");
+		try {
+			int end = 0;
+			while (file.length() > end + 4) {
+				file.seek(end);
+				int length = file.readInt();
+				if (length == 0) {
+					break;
+				}
+				end += length;
+			}
+			file.seek(end);
+			file.writeInt(1000);
+			file.writeInt(42);
+		} finally {
+			file.close();
+		}
+
+		store = new DiskStore(directory, SEGMENT_SIZE);
+		assertEquals(2, store.size());
+		assertArrayEquals(body(1), store.get(key(1)));
+		assertArrayEquals(body(2), store.get(key(2)));
+		store.put(key(3), body(3));
+		store.close();
+
+		store = new DiskStore(directory, SEGMENT_SIZE);
+		assertEquals(3, store.size());
+		assertArrayEquals(body(3), store.get(key(3)));
+		store.close();
+	}
+
+	/**
+	 * Test that the replaced and expired records are removed when the segments are compacted.
+	 * 
+	 * @throws IOException means the test is failed
+	 * @throws InterruptedException means the test is failed
+	 */
+	@Test
+	public final void testCompaction() throws IOException, InterruptedException {
+		DiskStore store = new DiskStore(folder.newFolder(), SEGMENT_SIZE);
+		for (int i = 0; i < 200; i++) {
+			store.put(key(i % 3), body(i));
+		}
+		assertEquals(3, store.size());
+		assertTrue("The replaced records should be compacted", store.getSegmentCount() <= 2);
+		assertArrayEquals(body(199), store.get(key(1)));
+
+		store.setTtl(ApiType.IMAGE, 1, TimeUnit.MILLISECONDS);
+		store.put(new CacheKey(ApiType.IMAGE, "http://www.example.com/", null, null), body(0));
+		Thread.sleep(10);
+		assertNull(store.get(new CacheKey(ApiType.IMAGE, "http://www.example.com/", null, null)));
+		store.setTtl(ApiType.ARTICLE, 1, TimeUnit.MILLISECONDS);
+		for (int i = 0; i < 3; i++) {
+			store.put(key(i), body(i));
+		}
+		Thread.sleep(10);
+		store.compact();
+		assertEquals(1, store.getSegmentCount());
+		for (int i = 0; i < 3; i++) {
+			assertNull(store.get(key(i)));
+		}
+		assertEquals(0, store.size());
+		store.close();
+	}
+
+	/**
+	 * Test that a record still fits when the compaction triggered by its append fills the new segment with the live
+	 * records of several segments.
+	 * 
+	 * @throws IOException means the test is failed
+	 */
+	@Test
+	public final void testCompactionOfSeveralSegments() throws IOException {
+		DiskStore store = new DiskStore(folder.newFolder(), SEGMENT_SIZE);
+		byte[] body = new byte[1280];
+		Arrays.fill(body, (byte) 'x');
+		for (int i = 0; i < 9; i++) {
+			store.put(key(i), body);
+		}
+		assertEquals(3, store.getSegmentCount());
+		for (int i = 0; i < 9; i++) {
+			if (i % 3 != 0) {
+				store.invalidate(key(i));
+			}
+		}
+		store.put(key(9), body);
+		for (int i = 0; i < 10; i++) {
+			if (i % 3 == 0) {
+				assertArrayEquals(body, store.get(key(i)));
+			} else {
+				assertNull(store.get(key(i)));
+			}
+		}
+		assertEquals(4, store.size());
+		store.close();
+	}
+
+	private static CacheKey key(final int i) {
+		return new CacheKey(ApiType.ARTICLE, "http://www.example.com/" + i, null, null);
+	}
+
+	private static byte[] body(final int i) {
+		StringBuilder body = new StringBuilder("{\"body\":").append(i);
+		for (int j = 0; j < 20; j++) {
+			body.append(",\"field").append(j).append("\":\"value ").append(i).append('"');
+		}
+		return body.append('}').toString().getBytes(UTF8);
+	}
+
+}
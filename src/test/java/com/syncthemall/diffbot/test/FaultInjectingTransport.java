@@ -0,0 +1,253 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+
+/**
+ * {@code HttpTransport} decorating another one, injecting faults in its responses with configurable probabilities, to
+ * check how the SDK and its batch engine behave under partial failures. At most one fault is injected per call,
+ * chosen in the order of {@link Fault}.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public class FaultInjectingTransport extends HttpTransport {
+
+	/**
+	 * The faults that can be injected.
+	 */
+	public enum Fault {
+		/** The call is answered with a 401, as when the token is revoked. */
+		UNAUTHORIZED,
+		/** The call, direct or batch, is answered with a 500. */
+		SERVER_ERROR,
+		/** The response is not read before the read timeout of the request. */
+		SLOW_READ,
+		/** The body of the response is cut in half. */
+		TRUNCATED_BODY,
+		/** A random sub-response of a batch call gets a 500 code. */
+		SUB_RESPONSE_ERROR;
+	}
+
+	private static final String BATCH_PATH = "/api/batch";
+	private static final String JSON = "application/json; charset=UTF-8";
+	private static final String UNAUTHORIZED_BODY = "{\"error\":\"Not authorized API token.\",\"errorCode\":401}";
+	private static final String SERVER_ERROR_BODY = "{\"error\":\"Internal error\",\"errorCode\":500}";
+	private static final int HTTP_UNAUTHORIZED = 401;
+	private static final int HTTP_SERVER_ERROR = 500;
+	private static final int BUFFER_SIZE = 8192;
+
+	private final HttpTransport delegate;
+	private final Method buildRequest;
+	private final Map<Fault, Double> probabilities = new EnumMap<Fault, Double>(Fault.class);
+	private final Map<Fault, AtomicInteger> injected = new EnumMap<Fault, AtomicInteger>(Fault.class);
+	private final AtomicInteger callCount = new AtomicInteger();
+	private final JsonFactory jsonFactory = new GsonFactory();
+	private final Random random;
+
+	/**
+	 * @param delegate the transport sending the requests
+	 * @param seed the seed of the random numbers, for a reproducible sequence of faults
+	 */
+	public FaultInjectingTransport(final HttpTransport delegate, final long seed) {
+		super();
+		this.delegate = delegate;
+		this.random = new Random(seed);
+		for (Fault fault : Fault.values()) {
+			probabilities.put(fault, 0d);
+			injected.put(fault, new AtomicInteger());
+		}
+		try {
+			buildRequest = HttpTransport.class.getDeclaredMethod("buildRequest", String.class, String.class);
+			buildRequest.setAccessible(true);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @param fault a fault
+	 * @param probability the probability, between 0 and 1, to inject {@code fault} in a call
+	 * @return this {@code FaultInjectingTransport}
+	 */
+	public final synchronized FaultInjectingTransport setProbability(final Fault fault, final double probability) {
+		probabilities.put(fault, probability);
+		return this;
+	}
+
+	/**
+	 * @return the number of calls sent, with or without fault
+	 */
+	public final int getCallCount() {
+		return callCount.get();
+	}
+
+	/**
+	 * @param fault a fault
+	 * @return the number of calls in which {@code fault} has been injected
+	 */
+	public final int getInjectedCount(final Fault fault) {
+		return injected.get(fault).get();
+	}
+
+	@Override
+	public boolean supportsMethod(final String method) throws IOException {
+		return delegate.supportsMethod(method);
+	}
+
+	@Override
+	protected LowLevelHttpRequest buildRequest(final String method, final String url) throws IOException {
+		final LowLevelHttpRequest request;
+		try {
+			request = (LowLevelHttpRequest) buildRequest.invoke(delegate, method, url);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		} catch (InvocationTargetException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+		final boolean batch = url.contains(BATCH_PATH);
+		return new LowLevelHttpRequest() {
+
+			private int readTimeout;
+
+			@Override
+			public void addHeader(final String name, final String value) throws IOException {
+				request.addHeader(name, value);
+			}
+
+			@Override
+			public void setTimeout(final int connectTimeout, final int timeout) throws IOException {
+				this.readTimeout = timeout;
+				request.setTimeout(connectTimeout, timeout);
+			}
+
+			@Override
+			public LowLevelHttpResponse execute() throws IOException {
+				callCount.incrementAndGet();
+				request.setContentLength(getContentLength());
+				request.setContentType(getContentType());
+				request.setContentEncoding(getContentEncoding());
+				request.setStreamingContent(getStreamingContent());
+				Fault fault = nextFault(batch);
+				if (fault == Fault.UNAUTHORIZED) {
+					return error(HTTP_UNAUTHORIZED, UNAUTHORIZED_BODY);
+				} else if (fault == Fault.SERVER_ERROR) {
+					return error(HTTP_SERVER_ERROR, SERVER_ERROR_BODY);
+				} else if (fault == Fault.SLOW_READ) {
+					sleep(readTimeout);
+					throw new SocketTimeoutException("Read timed out");
+				}
+				LowLevelHttpResponse response = request.execute();
+				if (fault == Fault.TRUNCATED_BODY) {
+					String body = read(response);
+					return copy(response, body.substring(0, body.length() / 2));
+				} else if (fault == Fault.SUB_RESPONSE_ERROR) {
+					return copy(response, failSubResponse(read(response)));
+				}
+				return response;
+			}
+		};
+	}
+
+	private synchronized Fault nextFault(final boolean batch) {
+		for (Fault fault : Fault.values()) {
+			if ((batch || fault != Fault.SUB_RESPONSE_ERROR) && random.nextDouble() < probabilities.get(fault)) {
+				injected.get(fault).incrementAndGet();
+				return fault;
+			}
+		}
+		return null;
+	}
+
+	private String failSubResponse(final String body) throws IOException {
+		List<GenericJson> responses = new ArrayList<GenericJson>();
+		for (Object response : jsonFactory.createJsonParser(body).parseArray(ArrayList.class, GenericJson.class)) {
+			responses.add((GenericJson) response);
+		}
+		if (!responses.isEmpty()) {
+			int index;
+			synchronized (this) {
+				index = random.nextInt(responses.size());
+			}
+			responses.get(index).set("code", HTTP_SERVER_ERROR).set("body", SERVER_ERROR_BODY);
+		}
+		return jsonFactory.toString(responses);
+	}
+
+	private static LowLevelHttpResponse error(final int statusCode, final String body) {
+		return new MockLowLevelHttpResponse().setStatusCode(statusCode).setContentType(JSON).setContent(body);
+	}
+
+	private static LowLevelHttpResponse copy(final LowLevelHttpResponse response, final String body)
+			throws IOException {
+		return new MockLowLevelHttpResponse().setStatusCode(response.getStatusCode())
+				.setContentType(response.getContentType()).setContent(body);
+	}
+
+	private static String read(final LowLevelHttpResponse response) throws IOException {
+		InputStream content = response.getContent();
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[BUFFER_SIZE];
+			for (int read = content.read(buffer); read != -1; read = content.read(buffer)) {
+				out.write(buffer, 0, read);
+			}
+			return new String(out.toByteArray(), StandardCharsets.UTF_8);
+		} finally {
+			content.close();
+		}
+	}
+
+	private static void sleep(final int millis) throws IOException {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while simulating a slow read", e);
+		}
+	}
+
+}
@@ -0,0 +1,197 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.JAXBException;
+
+import org.junit.Test;
+
+import com.google.api.client.json.gson.GsonFactory;
+import com.syncthemall.diffbot.Diffbot;
+import com.syncthemall.diffbot.Future;
+import com.syncthemall.diffbot.exception.DiffbotAPIException;
+import com.syncthemall.diffbot.exception.DiffbotBatchException;
+import com.syncthemall.diffbot.exception.DiffbotException;
+import com.syncthemall.diffbot.exception.DiffbotParseException;
+import com.syncthemall.diffbot.exception.DiffbotServerException;
+import com.syncthemall.diffbot.exception.DiffbotUnauthorizedException;
+import com.syncthemall.diffbot.model.article.Article;
+import com.syncthemall.diffbot.test.FaultInjectingTransport.Fault;
+
+/**
+ * Test for the behavior of the batch engine when faults are injected in the Diffbot responses.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public class FaultInjectionTest extends OfflineTest {
+
+	private static final int BATCH_SIZE = 5;
+
+	/**
+	 * Test that a batch call answered with a 500 fails the initiator and queues back the whole batch, which succeeds
+	 * once the fault is gone.
+	 * 
+	 * @throws IOException means the test is failed
+	 * @throws JAXBException means the test is failed
+	 * @throws DiffbotException means the test is failed
+	 */
+	@Test
+	public final void testServerError() throws IOException, JAXBException, DiffbotException {
+		FaultInjectingTransport transport = transport(Fault.SERVER_ERROR);
+		Diffbot diffbot = new Diffbot(transport, new GsonFactory(), "token");
+		Future<Article> first = queue(diffbot);
+		DiffbotException cause = batchError(first);
+		assertTrue(cause instanceof DiffbotAPIException);
+		assertEquals(500, ((DiffbotAPIException) cause).getErrorCode());
+		assertEquals(BATCH_SIZE, diffbot.getFutures().size());
+
+		transport.setProbability(Fault.SERVER_ERROR, 0);
+		assertEquals("Zach Carter", first.get().getAuthor());
+		assertTrue(diffbot.getFutures().isEmpty());
+		assertEquals(2, transport.getCallCount());
+	}
+
+	/**
+	 * Test that a sub-response with an error code fails only the future it belongs to.
+	 * 
+	 * @throws IOException means the test is failed
+	 * @throws JAXBException means the test is failed
+	 * @throws DiffbotException means the test is failed
+	 */
+	@Test
+	public final void testSubResponseError() throws IOException, JAXBException, DiffbotException {
+		FaultInjectingTransport transport = transport(Fault.SUB_RESPONSE_ERROR);
+		Diffbot diffbot = new Diffbot(transport, new GsonFactory(), "token");
+		int failures = 0;
+		for (Future<Article> future : queue(diffbot, BATCH_SIZE)) {
+			try {
+				assertEquals("Zach Carter", future.get().getAuthor());
+			} catch (DiffbotAPIException e) {
+				assertEquals(500, e.getErrorCode());
+				failures++;
+			}
+		}
+		assertEquals(1, failures);
+		assertEquals(1, transport.getCallCount());
+	}
+
+	/**
+	 * Test that a truncated batch response fails with a parse error and queues back the batch.
+	 * 
+	 * @throws IOException means the test is failed
+	 * @throws JAXBException means the test is failed
+	 * @throws DiffbotException means the test is failed
+	 */
+	@Test
+	public final void testTruncatedBody() throws IOException, JAXBException, DiffbotException {
+		Diffbot diffbot = new Diffbot(transport(Fault.TRUNCATED_BODY), new GsonFactory(), "token");
+		assertTrue(batchError(queue(diffbot)) instanceof DiffbotParseException);
+		assertEquals(BATCH_SIZE, diffbot.getFutures().size());
+	}
+
+	/**
+	 * Test that a batch response slower than the batch request timeout fails with a server error.
+	 * 
+	 * @throws IOException means the test is failed
+	 * @throws JAXBException means the test is failed
+	 * @throws DiffbotException means the test is failed
+	 */
+	@Test
+	public final void testSlowRead() throws IOException, JAXBException, DiffbotException {
+		Diffbot diffbot = new Diffbot(transport(Fault.SLOW_READ), new GsonFactory(), "token");
+		diffbot.setBatchRequestTimeout(50);
+		long start = System.nanoTime();
+		DiffbotException cause = batchError(queue(diffbot));
+		assertTrue(System.nanoTime() - start >= 50000000L);
+		assertTrue(cause instanceof DiffbotServerException);
+		assertTrue(cause.getCause() instanceof SocketTimeoutException);
+		assertEquals(BATCH_SIZE, diffbot.getFutures().size());
+	}
+
+	/**
+	 * Test that a 401 in the middle of a run fails the batch with an unauthorized error, with both the direct and the
+	 * batch calls.
+	 * 
+	 * @throws IOException means the test is failed
+	 * @throws JAXBException means the test is failed
+	 * @throws DiffbotException means the test is failed
+	 */
+	@Test
+	public final void testUnauthorized() throws IOException, JAXBException, DiffbotException {
+		FaultInjectingTransport transport = transport(null);
+		Diffbot diffbot = new Diffbot(transport, new GsonFactory(), "token");
+		assertEquals("Zach Carter", diffbot.article().analyze(articleTestURL).execute().getAuthor());
+		transport.setProbability(Fault.UNAUTHORIZED, 1);
+		try {
+			diffbot.article().analyze(articleTestURL).execute();
+			fail("A DiffbotUnauthorizedException should be thrown");
+		} catch (DiffbotUnauthorizedException e) {
+			assertEquals(1, transport.getInjectedCount(Fault.UNAUTHORIZED));
+		}
+		assertTrue(batchError(queue(diffbot)) instanceof DiffbotUnauthorizedException);
+		assertEquals(2, transport.getInjectedCount(Fault.UNAUTHORIZED));
+	}
+
+	private static FaultInjectingTransport transport(final Fault fault) throws IOException {
+		FaultInjectingTransport transport = new FaultInjectingTransport(ReplayTransport.fromFixtures(), 1);
+		if (fault != null) {
+			transport.setProbability(fault, 1);
+		}
+		return transport;
+	}
+
+	private static Future<Article> queue(final Diffbot diffbot) throws DiffbotException {
+		return queue(diffbot, BATCH_SIZE).iterator().next();
+	}
+
+	private static List<Future<Article>> queue(final Diffbot diffbot, final int count)
+			throws DiffbotException {
+		List<Future<Article>> futures = new ArrayList<Future<Article>>();
+		for (int i = 0; i < count; i++) {
+			futures.add(diffbot.article().analyze(articleTestURL + "?page=" + i).queue());
+		}
+		return futures;
+	}
+
+	private static DiffbotException batchError(final Future<Article> future) {
+		try {
+			future.get();
+			fail("A DiffbotBatchException should be thrown");
+			return null;
+		} catch (DiffbotBatchException e) {
+			return (DiffbotException) e.getCause();
+		} catch (DiffbotException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+}
@@ -0,0 +1,109 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.bind.JAXBException;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.syncthemall.diffbot.Diffbot;
+import com.syncthemall.diffbot.DiffbotRequest.ApiType;
+import com.syncthemall.diffbot.Future;
+import com.syncthemall.diffbot.exception.DiffbotException;
+import com.syncthemall.diffbot.jfr.EventKind;
+import com.syncthemall.diffbot.jfr.FlightRecorderEvents;
+import com.syncthemall.diffbot.model.article.Article;
+
+/**
+ * Test for the Flight Recorder events of the requests.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public class FlightRecorderTest extends OfflineTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Test that the direct and batch requests are recorded when the events are enabled, and not recorded otherwise.
+	 * 
+	 * @throws IOException means the test is failed
+	 * @throws JAXBException means the test is failed
+	 * @throws DiffbotException means the test is failed
+	 */
+	@Test
+	public final void testEvents() throws IOException, JAXBException, DiffbotException {
+		assertTrue(FlightRecorderEvents.isAvailable());
+		Diffbot diffbot = mockDiffbot(fixture("article.json"));
+		diffbot.article().analyze("http://www.example.com/disabled").execute();
+
+		Recording recording = new Recording();
+		for (String name : new String[] { "Queue", "BatchBuild", "BatchRequest", "Request", "Parse" }) {
+			recording.enable("com.syncthemall.diffbot." + name).withoutThreshold();
+		}
+		recording.start();
+		diffbot.article().analyze(articleTestURL).execute();
+		Future<Article> first = diffbot.article().analyze("http://www.example.com/first").queue();
+		diffbot.article().analyze("http://www.example.com/second").queue();
+		first.get();
+		recording.stop();
+		FlightRecorderEvents.begin(EventKind.REQUEST).end(ApiType.ARTICLE, 1, 0, null);
+
+		File file = folder.newFile("diffbot.jfr");
+		recording.dump(file.toPath());
+		recording.close();
+		Map<String, Integer> counts = new HashMap<String, Integer>();
+		for (RecordedEvent event : RecordingFile.readAllEvents(file.toPath())) {
+			String name = event.getEventType().getName();
+			Integer count = counts.get(name);
+			counts.put(name, count == null ? 1 : count + 1);
+			if (name.endsWith("BatchRequest")) {
+				assertEquals(2, event.getInt("batchSize"));
+				assertTrue(event.getLong("bytes") > 0);
+				assertEquals("success", event.getString("outcome"));
+			} else if (name.endsWith("Request")) {
+				assertEquals("article", event.getString("api"));
+			}
+		}
+		assertEquals(Integer.valueOf(1), counts.get("com.syncthemall.diffbot.Request"));
+		assertEquals(Integer.valueOf(2), counts.get("com.syncthemall.diffbot.Queue"));
+		assertEquals(Integer.valueOf(1), counts.get("com.syncthemall.diffbot.BatchBuild"));
+		assertEquals(Integer.valueOf(1), counts.get("com.syncthemall.diffbot.BatchRequest"));
+		assertEquals(Integer.valueOf(3), counts.get("com.syncthemall.diffbot.Parse"));
+	}
+
+}
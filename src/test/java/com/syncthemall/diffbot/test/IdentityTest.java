@@ -0,0 +1,88 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.api.client.json.gson.GsonFactory;
+import com.syncthemall.diffbot.codec.JsonFactoryCodec;
+import com.syncthemall.diffbot.codec.Projection;
+import com.syncthemall.diffbot.model.ModelIdentity;
+import com.syncthemall.diffbot.model.PageType;
+import com.syncthemall.diffbot.model.article.Article;
+import com.syncthemall.diffbot.model.classifier.Classified;
+
+/**
+ * Test for the identity of the {@code Model}.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public class IdentityTest extends OfflineTest {
+
+	/**
+	 * Test that the identity is computed once and drives {@code equals} and {@code hashCode}.
+	 * 
+	 * @throws IOException means the test is failed
+	 */
+	@Test
+	public final void testIdentityIsCached() throws IOException {
+		JsonFactoryCodec codec = new JsonFactoryCodec(new GsonFactory());
+		Article article = codec.parse(fixture("article.json"), Article.class, Projection.ALL);
+		Classified classified = codec.parse(fixture("classified.json"), Classified.class, Projection.ALL);
+
+		assertSame(article.getIdentity(), article.getIdentity());
+		assertEquals(PageType.ARTICLE, article.getIdentity().getType());
+		assertEquals("An Article and a Classified of the same page should be equal", article, classified);
+		assertEquals(article.hashCode(), classified.hashCode());
+
+		Set<Object> results = new HashSet<Object>();
+		results.add(article);
+		assertFalse(results.add(classified));
+	}
+
+	/**
+	 * Test that the URL is normalized before being hashed.
+	 */
+	@Test
+	public final void testIdentityNormalizesUrl() {
+		ModelIdentity identity = new ModelIdentity(PageType.ARTICLE, "http://www.Example.com/Path?q=A#top");
+		ModelIdentity same = new ModelIdentity(PageType.ARTICLE, "HTTP://WWW.EXAMPLE.COM/Path?q=A");
+
+		assertEquals("http://www.example.com/Path?q=A", identity.getUrl());
+		assertEquals(identity, same);
+		assertEquals(identity.getHash(), same.getHash());
+		assertNotEquals(identity, new ModelIdentity(PageType.ARTICLE, "http://www.example.com/path?q=A"));
+		assertNotEquals(identity, new ModelIdentity(PageType.IMAGE, "http://www.example.com/Path?q=A"));
+		assertEquals(new ModelIdentity(null, null), new ModelIdentity(null, null));
+	}
+
+}
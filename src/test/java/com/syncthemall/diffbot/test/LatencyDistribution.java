@@ -0,0 +1,114 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Distribution of the simulated latency of the responses of a {@link ReplayTransport}.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public abstract class LatencyDistribution {
+
+	/** No latency. */
+	public static final LatencyDistribution NONE = fixed(0, TimeUnit.MILLISECONDS);
+
+	private final Random random;
+
+	/**
+	 * @param seed the seed of the random numbers, for a reproducible sequence of latencies
+	 */
+	protected LatencyDistribution(final long seed) {
+		super();
+		this.random = new Random(seed);
+	}
+
+	/**
+	 * @return the next latency, in milliseconds
+	 */
+	public final long nextMillis() {
+		return Math.max(0, Math.round(next(random)));
+	}
+
+	/**
+	 * @param random the source of random numbers
+	 * @return the next latency, in milliseconds
+	 */
+	protected abstract double next(Random random);
+
+	/**
+	 * @param latency the latency of every response
+	 * @param unit the unit of {@code latency}
+	 * @return a constant latency
+	 */
+	public static LatencyDistribution fixed(final long latency, final TimeUnit unit) {
+		final long millis = unit.toMillis(latency);
+		return new LatencyDistribution(0) {
+			@Override
+			protected double next(final Random random) {
+				return millis;
+			}
+		};
+	}
+
+	/**
+	 * @param min the minimum latency
+	 * @param max the maximum latency
+	 * @param unit the unit of {@code min} and {@code max}
+	 * @param seed the seed of the random numbers
+	 * @return a latency uniformly distributed between {@code min} and {@code max}
+	 */
+	public static LatencyDistribution uniform(final long min, final long max, final TimeUnit unit, final long seed) {
+		final long minMillis = unit.toMillis(min);
+		final long range = unit.toMillis(max) - minMillis;
+		return new LatencyDistribution(seed) {
+			@Override
+			protected double next(final Random random) {
+				return minMillis + random.nextDouble() * range;
+			}
+		};
+	}
+
+	/**
+	 * A log-normal latency, with the long tail of the response times of a remote service.
+	 * 
+	 * @param median the median latency
+	 * @param unit the unit of {@code median}
+	 * @param sigma the standard deviation of the logarithm of the latency, e.g. 0.5 for a p99 about 3 times the median
+	 * @param seed the seed of the random numbers
+	 * @return a log-normal latency
+	 */
+	public static LatencyDistribution logNormal(final long median, final TimeUnit unit, final double sigma,
+			final long seed) {
+		final double mu = Math.log(Math.max(1, unit.toMillis(median)));
+		return new LatencyDistribution(seed) {
+			@Override
+			protected double next(final Random random) {
+				return Math.exp(mu + sigma * random.nextGaussian());
+			}
+		};
+	}
+
+}
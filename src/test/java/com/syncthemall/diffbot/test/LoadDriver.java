@@ -0,0 +1,214 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.bind.JAXBException;
+
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.gson.GsonFactory;
+import com.syncthemall.diffbot.Diffbot;
+import com.syncthemall.diffbot.exception.DiffbotException;
+import com.syncthemall.diffbot.metrics.HistogramSnapshot;
+import com.syncthemall.diffbot.metrics.LatencyHistogram;
+
+/**
+ * Load driver running article requests from concurrent threads, by direct calls or through the batch queue, and
+ * reporting the throughput and the latency percentiles. Every request analyzes a distinct URL, so neither the caches
+ * nor the de-duplication of the requests hide the calls.
+ * <p>
+ * Can be run from the command line against a {@link DiffbotServer} it starts:
+ * {@code LoadDriver <threads> <requests> <direct|batch> <median latency ms>}.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public class LoadDriver {
+
+	private static final String URL = "http://www.example.com/load/%d";
+	private static final double[] PERCENTILES = { 50, 90, 99 };
+
+	private final Diffbot diffbot;
+	private final int threads;
+	private boolean batch;
+
+	/**
+	 * @param diffbot the client to load
+	 * @param threads the number of threads calling the client concurrently
+	 */
+	public LoadDriver(final Diffbot diffbot, final int threads) {
+		super();
+		this.diffbot = diffbot;
+		this.threads = threads;
+	}
+
+	/**
+	 * @param batch {@code true} to queue the requests and get their {@code Future}, {@code false} to execute them
+	 *            directly (default)
+	 * @return this {@code LoadDriver}
+	 */
+	public final LoadDriver setBatch(final boolean batch) {
+		this.batch = batch;
+		return this;
+	}
+
+	/**
+	 * Runs requests until {@code requests} have completed.
+	 * 
+	 * @param requests the number of requests to run
+	 * @return the measures of the run
+	 * @throws InterruptedException if interrupted while waiting for the requests
+	 */
+	public final Report run(final int requests) throws InterruptedException {
+		final LatencyHistogram latencies = new LatencyHistogram();
+		final AtomicInteger next = new AtomicInteger();
+		final AtomicInteger errors = new AtomicInteger();
+		final CountDownLatch done = new CountDownLatch(threads);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		long start = System.nanoTime();
+		for (int i = 0; i < threads; i++) {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						for (int request = next.getAndIncrement(); request < requests; request = next
+								.getAndIncrement()) {
+							long begin = System.nanoTime();
+							try {
+								call(String.format(URL, request));
+							} catch (DiffbotException e) {
+								errors.incrementAndGet();
+							}
+							latencies.record(System.nanoTime() - begin);
+						}
+					} finally {
+						done.countDown();
+					}
+				}
+			});
+		}
+		done.await();
+		long elapsed = System.nanoTime() - start;
+		executor.shutdown();
+		return new Report(requests, errors.get(), elapsed, latencies.snapshot());
+	}
+
+	private void call(final String url) throws DiffbotException {
+		if (batch) {
+			diffbot.article().analyze(url).queue().get();
+		} else {
+			diffbot.article().analyze(url).execute();
+		}
+	}
+
+	/**
+	 * Runs the load driver against a local {@link DiffbotServer}.
+	 * 
+	 * @param args threads, requests, {@code direct} or {@code batch}, median latency in milliseconds
+	 * @throws IOException if the server cannot be started
+	 * @throws JAXBException if JAXB is not in the classpath
+	 * @throws InterruptedException if interrupted while waiting for the requests
+	 */
+	public static void main(final String[] args) throws IOException, JAXBException, InterruptedException {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+		int requests = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		boolean batch = args.length > 2 && "batch".equals(args[2]);
+		long latency = args.length > 3 ? Long.parseLong(args[3]) : 100;
+		DiffbotServer server = DiffbotServer.fromFixtures()
+				.setLatency(LatencyDistribution.logNormal(latency, TimeUnit.MILLISECONDS, 0.5, 0)).start();
+		try {
+			Diffbot diffbot = new Diffbot(new NetHttpTransport(), new GsonFactory(), "token");
+			diffbot.setBaseUrl(server.getBaseUrl());
+			Report report = new LoadDriver(diffbot, threads).setBatch(batch).run(requests);
+			System.out.println(report);
+			System.out.println(String.format("%d HTTP calls, %d batch calls", server.getRequestCount(),
+					server.getBatchCount()));
+		} finally {
+			server.stop();
+		}
+	}
+
+	/**
+	 * The measures of a run.
+	 */
+	public static final class Report {
+
+		private final int requests;
+		private final int errors;
+		private final long elapsedNanos;
+		private final HistogramSnapshot latencies;
+
+		private Report(final int requests, final int errors, final long elapsedNanos,
+				final HistogramSnapshot latencies) {
+			this.requests = requests;
+			this.errors = errors;
+			this.elapsedNanos = elapsedNanos;
+			this.latencies = latencies;
+		}
+
+		/**
+		 * @return the number of requests run
+		 */
+		public int getRequests() {
+			return requests;
+		}
+
+		/**
+		 * @return the number of requests that failed
+		 */
+		public int getErrors() {
+			return errors;
+		}
+
+		/**
+		 * @return the number of requests completed per second
+		 */
+		public double getThroughput() {
+			return requests * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+		}
+
+		/**
+		 * @return the latencies of the requests, in nanoseconds
+		 */
+		public HistogramSnapshot getLatencies() {
+			return latencies;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder result = new StringBuilder(String.format("%d requests, %d errors, %.1f requests/s",
+					requests, errors, getThroughput()));
+			for (double percentile : PERCENTILES) {
+				result.append(String.format(", p%.0f %.1f ms", percentile, latencies.getPercentile(percentile)
+						/ (double) TimeUnit.MILLISECONDS.toNanos(1)));
+			}
+			return result.toString();
+		}
+	}
+
+}
@@ -0,0 +1,222 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.test;
+
+import static com.syncthemall.diffbot.Constants.HTTP_OK;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.bind.JAXBException;
+
+import org.junit.Test;
+
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+
+import com.syncthemall.diffbot.Diffbot;
+import com.syncthemall.diffbot.DiffbotRequest.ApiType;
+import com.syncthemall.diffbot.Future;
+import com.syncthemall.diffbot.exception.DiffbotAPIException;
+import com.syncthemall.diffbot.exception.DiffbotException;
+import com.syncthemall.diffbot.metrics.HistogramMetrics;
+import com.syncthemall.diffbot.metrics.HistogramSnapshot;
+import com.syncthemall.diffbot.metrics.LatencyHistogram;
+import com.syncthemall.diffbot.model.article.Article;
+
+/**
+ * Test for the {@code DiffbotMetrics} hooks and the {@code HistogramMetrics} implementation.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public class MetricsTest extends OfflineTest {
+
+	/**
+	 * Test that the direct and batch requests are measured.
+	 * 
+	 * @throws IOException means the test is failed
+	 * @throws JAXBException means the test is failed
+	 * @throws DiffbotException means the test is failed
+	 */
+	@Test
+	public final void testRequestMetrics() throws IOException, JAXBException, DiffbotException {
+		String content = fixture("article.json");
+		Diffbot diffbot = mockDiffbot(content);
+		HistogramMetrics metrics = new HistogramMetrics();
+		diffbot.setMetrics(metrics);
+
+		diffbot.article().analyze(articleTestURL).execute();
+		assertEquals(1, metrics.getRoundTrip(ApiType.ARTICLE).getCount());
+		assertEquals(1, metrics.getParseTime(ApiType.ARTICLE).getCount());
+		assertEquals(content.getBytes("UTF-8").length, metrics.getBytes(ApiType.ARTICLE));
+
+		diffbot.setMaxBatchRequest(4);
+		Future<Article> first = diffbot.article().analyze("http://www.example.com/first").queue();
+		diffbot.article().analyze("http://www.example.com/second").queue();
+		first.get();
+		assertEquals(1, metrics.getBatchRoundTrip().getCount());
+		assertEquals(0.5, metrics.getBatchFillRatio(), 0);
+		assertEquals(2, metrics.getQueueWait(ApiType.ARTICLE).getCount());
+		assertEquals(3, metrics.getParseTime(ApiType.ARTICLE).getCount());
+		assertEquals("The batch calls are not counted as direct calls", 1, metrics.getRoundTrip(ApiType.ARTICLE)
+				.getCount());
+
+		SortedMap<String, Number> snapshot = metrics.snapshot();
+		assertEquals(3L, snapshot.get("article.parse_ns.count"));
+		assertTrue(snapshot.containsKey("article.round_trip_ns.p99"));
+		assertEquals(0.5, snapshot.get("batch.fill_ratio"));
+	}
+
+	/**
+	 * Test that a queued request records when it was queued, sent, answered and parsed.
+	 * 
+	 * @throws IOException means the test is failed
+	 * @throws JAXBException means the test is failed
+	 * @throws DiffbotException means the test is failed
+	 */
+	@Test
+	public final void testFutureTimestamps() throws IOException, JAXBException, DiffbotException {
+		Diffbot diffbot = mockDiffbot(fixture("article.json"));
+		HistogramMetrics metrics = new HistogramMetrics();
+		diffbot.setMetrics(metrics);
+		Future<Article> first = diffbot.article().analyze("http://www.example.com/first").queue();
+		Future<Article> second = diffbot.article().analyze("http://www.example.com/second").queue();
+		assertEquals(-1, first.getQueueTimeNanos());
+		assertEquals(-1, first.getLatencyNanos());
+		second.get();
+
+		for (Future<Article> future : Arrays.asList(first, second)) {
+			assertTrue(future.getEnqueuedNanos() <= future.getDispatchedNanos());
+			assertTrue(future.getDispatchedNanos() <= future.getRespondedNanos());
+			assertTrue(future.getRespondedNanos() <= future.getCompletedNanos());
+			assertEquals(future.getDispatchedNanos() - future.getEnqueuedNanos(), future.getQueueTimeNanos());
+			assertEquals(future.getCompletedNanos() - future.getEnqueuedNanos(), future.getLatencyNanos());
+		}
+		assertEquals(first.getDispatchedNanos(), second.getDispatchedNanos());
+		assertTrue(first.getQueueTimeNanos() >= second.getQueueTimeNanos());
+		HistogramSnapshot endToEnd = metrics.getEndToEnd(ApiType.ARTICLE);
+		assertEquals(2, endToEnd.getCount());
+		assertTrue(endToEnd.getMax() >= second.getLatencyNanos());
+	}
+
+	/**
+	 * Test that the concurrent batch calls record their response time when they are answered, rather than when their
+	 * response is read after the slower calls.
+	 * 
+	 * @throws IOException means the test is failed
+	 * @throws JAXBException means the test is failed
+	 * @throws DiffbotException means the test is failed
+	 */
+	@Test
+	public final void testConcurrentBatchTimestamps() throws IOException, JAXBException, DiffbotException {
+		final String content = fixture("article.json");
+		final long delay = TimeUnit.MILLISECONDS.toNanos(300);
+		MockHttpTransport transport = new MockHttpTransport() {
+			@Override
+			public LowLevelHttpRequest buildRequest(final String method, final String url) throws IOException {
+				MockLowLevelHttpResponse response = new MockLowLevelHttpResponse().setContentType(
+						"application/json; charset=UTF-8").setContent(batchContent(url, content, HTTP_OK));
+				return new MockLowLevelHttpRequest(url) {
+					@Override
+					public LowLevelHttpResponse execute() throws IOException {
+						if (url.contains("slow")) {
+							try {
+								TimeUnit.NANOSECONDS.sleep(delay);
+							} catch (InterruptedException e) {
+								Thread.currentThread().interrupt();
+							}
+						}
+						return super.execute();
+					}
+				}.setResponse(response);
+			}
+		};
+		Diffbot diffbot = new Diffbot(transport, new GsonFactory(), "token");
+		HistogramMetrics metrics = new HistogramMetrics();
+		diffbot.setMetrics(metrics);
+		diffbot.setMaxBatchRequest(1);
+		diffbot.setConcurrentBatchRequest(2);
+		Future<Article> fast = diffbot.article().analyze("http://www.example.com/fast").queue();
+		Future<Article> slow = diffbot.article().analyze("http://www.example.com/slow").queue();
+		fast.get();
+
+		assertTrue(slow.getCompletedNanos() > 0);
+		assertTrue(fast.getRespondedNanos() - fast.getDispatchedNanos() < delay);
+		assertTrue(slow.getRespondedNanos() - slow.getDispatchedNanos() >= delay);
+		HistogramSnapshot roundTrip = metrics.getBatchRoundTrip();
+		assertEquals(2, roundTrip.getCount());
+		assertEquals(slow.getRespondedNanos() - slow.getDispatchedNanos(), roundTrip.getMax());
+	}
+
+	/**
+	 * Test that the failed requests are counted by API and by exception type.
+	 * 
+	 * @throws JAXBException means the test is failed
+	 * @throws DiffbotException means the test is failed
+	 */
+	@Test
+	public final void testErrorMetrics() throws JAXBException, DiffbotException {
+		Diffbot diffbot = mockDiffbot("{\"error\":\"Could not download page (404)\",\"errorCode\":404}", 404,
+				new AtomicInteger());
+		HistogramMetrics metrics = new HistogramMetrics();
+		diffbot.setMetrics(metrics);
+		try {
+			diffbot.images().analyze(articleTestURL).execute();
+			fail("A DiffbotAPIException should be thrown");
+		} catch (DiffbotAPIException e) {
+			assertEquals(1, metrics.getErrorCount(ApiType.IMAGE));
+			assertEquals(1, metrics.getErrorCount(DiffbotAPIException.class));
+			assertEquals(0, metrics.getErrorCount(ApiType.ARTICLE));
+		}
+	}
+
+	/**
+	 * Test that the percentiles of a {@code LatencyHistogram} are within its precision.
+	 */
+	@Test
+	public final void testHistogramPrecision() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long i = 1; i <= 1000000; i++) {
+			histogram.record(i * 1000);
+		}
+		HistogramSnapshot snapshot = histogram.snapshot();
+		assertEquals(1000000, snapshot.getCount());
+		assertEquals(1000000000L, snapshot.getMax());
+		assertEquals(500000500.0, snapshot.getMean(), 1);
+		assertEquals(500000000, snapshot.getPercentile(50), 500000000 / 32);
+		assertEquals(990000000, snapshot.getPercentile(99), 990000000 / 32);
+		assertEquals(1000000000L, snapshot.getPercentile(100));
+		assertEquals(0, new LatencyHistogram().snapshot().getPercentile(99));
+	}
+
+}
@@ -0,0 +1,160 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.test;
+
+import static com.syncthemall.diffbot.Constants.BATCH_URL;
+import static com.syncthemall.diffbot.Constants.HTTP_OK;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.bind.JAXBException;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.syncthemall.diffbot.Diffbot;
+
+/**
+ * Parent class for the test cases that don't call the Diffbot servers.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public class OfflineTest {
+
+	protected static String articleTestURL = "http://www.huffingtonpost.com/2014/01/11/fast-track-trade-democrats_n_4580720.html";
+
+	/**
+	 * Reads a recorded Diffbot response from the test resources.
+	 * 
+	 * @param name the name of the fixture file
+	 * @return the content of the fixture
+	 * @throws IOException if the fixture cannot be read
+	 */
+	public static final String fixture(final String name) throws IOException {
+		InputStream in = OfflineTest.class.getResourceAsStream(name);
+		if (in == null) {
+			throw new IOException("Missing fixture " + name);
+		}
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+			return new String(out.toByteArray(), StandardCharsets.UTF_8);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Creates a {@link Diffbot} client answering every request with the same JSON content.
+	 * 
+	 * @param content the JSON content of every response
+	 * @return a {@code Diffbot} client that doesn't call the Diffbot servers
+	 * @throws JAXBException if JAXB is not in the classpath
+	 */
+	public static final Diffbot mockDiffbot(final String content) throws JAXBException {
+		return mockDiffbot(content, new AtomicInteger());
+	}
+
+	/**
+	 * Creates a {@link Diffbot} client answering every request with the same JSON content. The batch requests are
+	 * answered with this content for every sub-request.
+	 * 
+	 * @param content the JSON content of every response
+	 * @param calls incremented on every HTTP request made by the client
+	 * @return a {@code Diffbot} client that doesn't call the Diffbot servers
+	 * @throws JAXBException if JAXB is not in the classpath
+	 */
+	public static final Diffbot mockDiffbot(final String content, final AtomicInteger calls) throws JAXBException {
+		return mockDiffbot(content, HTTP_OK, calls);
+	}
+
+	/**
+	 * Creates a {@link Diffbot} client answering every request with the same JSON content and status code. The batch
+	 * requests are answered successfully, with this content and status code for every sub-request.
+	 * 
+	 * @param content the JSON content of every response
+	 * @param statusCode the HTTP status code of every response
+	 * @param calls incremented on every HTTP request made by the client
+	 * @return a {@code Diffbot} client that doesn't call the Diffbot servers
+	 * @throws JAXBException if JAXB is not in the classpath
+	 */
+	public static final Diffbot mockDiffbot(final String content, final int statusCode, final AtomicInteger calls)
+			throws JAXBException {
+		MockHttpTransport transport = new MockHttpTransport() {
+			@Override
+			public LowLevelHttpRequest buildRequest(final String method, final String url) throws IOException {
+				calls.incrementAndGet();
+				MockLowLevelHttpResponse response = new MockLowLevelHttpResponse()
+						.setContentType("application/json; charset=UTF-8");
+				if (url.startsWith(BATCH_URL)) {
+					response.setContent(batchContent(url, content, statusCode));
+				} else {
+					response.setContent(content).setStatusCode(statusCode);
+				}
+				return new MockLowLevelHttpRequest(url).setResponse(response);
+			}
+		};
+		return new Diffbot(transport, new GsonFactory(), "token");
+	}
+
+	/**
+	 * @param url the URL of a batch request
+	 * @param content the JSON content of every sub-response
+	 * @param statusCode the HTTP status code of every sub-response
+	 * @return the JSON response to the batch request, with one sub-response for every sub-request
+	 * @throws IOException if the batch request cannot be parsed
+	 */
+	protected static String batchContent(final String url, final String content, final int statusCode)
+			throws IOException {
+		JsonFactory factory = new GsonFactory();
+		List<GenericJson> responses = new ArrayList<GenericJson>();
+		String batch = new GenericUrl(url).getFirst("batch").toString();
+		for (Object request : factory.createJsonParser(batch).parseArray(ArrayList.class, GenericJson.class)) {
+			GenericJson response = new GenericJson();
+			response.set("code", statusCode).set("body", content)
+					.set("relative_url", ((GenericJson) request).get("relative_url"));
+			responses.add(response);
+		}
+		return factory.toString(responses);
+	}
+
+	protected OfflineTest() {
+		super();
+	}
+
+}
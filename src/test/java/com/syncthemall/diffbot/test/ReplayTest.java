@@ -0,0 +1,145 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBException;
+
+import org.junit.Test;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.json.gson.GsonFactory;
+import com.syncthemall.diffbot.Diffbot;
+import com.syncthemall.diffbot.Future;
+import com.syncthemall.diffbot.exception.DiffbotAPIException;
+import com.syncthemall.diffbot.exception.DiffbotException;
+import com.syncthemall.diffbot.model.article.Article;
+import com.syncthemall.diffbot.model.classifier.Classified;
+import com.syncthemall.diffbot.model.frontpage.Frontpage;
+import com.syncthemall.diffbot.model.images.Images;
+import com.syncthemall.diffbot.model.products.Products;
+
+/**
+ * Test for the {@code ReplayTransport}, answering the direct and batch calls with recorded responses.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public class ReplayTest extends OfflineTest {
+
+	private static final String OTHER_URL = "http://www.example.com/missing";
+
+	/**
+	 * Test that every API is answered with its recorded response, by direct calls.
+	 * 
+	 * @throws IOException means the test is failed
+	 * @throws JAXBException means the test is failed
+	 * @throws DiffbotException means the test is failed
+	 */
+	@Test
+	public final void testDirectCalls() throws IOException, JAXBException, DiffbotException {
+		ReplayTransport transport = ReplayTransport.fromFixtures();
+		Diffbot diffbot = new Diffbot(transport, new GsonFactory(), "token");
+		assertEquals("Zach Carter", diffbot.article().analyze(articleTestURL).execute().getAuthor());
+		assertEquals(2, diffbot.images().analyze(articleTestURL).execute().getImages().size());
+		assertEquals(1, diffbot.products().analyze(articleTestURL).execute().getProducts().size());
+		assertEquals("Zach Carter", diffbot.classifier().analyze(articleTestURL).execute().asArticle().getAuthor());
+		assertEquals(3, diffbot.frontpage().analyze(articleTestURL).execute().getItems().size());
+		assertEquals(5, transport.getRequestCount());
+	}
+
+	/**
+	 * Test that the sub-requests of a batch call are answered by relative URL, the most specific first.
+	 * 
+	 * @throws IOException means the test is failed
+	 * @throws JAXBException means the test is failed
+	 * @throws DiffbotException means the test is failed
+	 */
+	@Test
+	public final void testBatchCall() throws IOException, JAXBException, DiffbotException {
+		ReplayTransport transport = ReplayTransport.fromFixtures();
+		Diffbot diffbot = new Diffbot(transport, new GsonFactory(), "token");
+		GenericUrl missing = new GenericUrl("http://api.diffbot.com" + ReplayTransport.ARTICLE_PATH);
+		missing.set("url", OTHER_URL);
+		transport.record(missing.buildRelativeUrl(), 404,
+				"{\"error\":\"Could not download page (404)\",\"errorCode\":404}");
+
+		Future<Article> article = diffbot.article().analyze(articleTestURL).queue();
+		Future<Images> images = diffbot.images().analyze(articleTestURL).queue();
+		Future<Products> products = diffbot.products().analyze(articleTestURL).queue();
+		Future<Classified> classified = diffbot.classifier().analyze(articleTestURL).queue();
+		Future<Frontpage> frontpage = diffbot.frontpage().analyze(articleTestURL).queue();
+		Future<Article> error = diffbot.article().analyze(OTHER_URL).queue();
+		Future<Images> notRecorded = diffbot.images().analyze(OTHER_URL).queue();
+
+		assertEquals("Zach Carter", article.get().getAuthor());
+		assertEquals(1, transport.getRequestCount());
+		assertEquals(2, images.get().getImages().size());
+		assertEquals(1, products.get().getProducts().size());
+		assertEquals("Zach Carter", classified.get().asArticle().getAuthor());
+		assertEquals(3, frontpage.get().getItems().size());
+		try {
+			error.get();
+			fail("A DiffbotAPIException should be thrown");
+		} catch (DiffbotAPIException e) {
+			assertEquals(404, e.getErrorCode());
+		}
+		assertEquals(2, notRecorded.get().getImages().size());
+		assertEquals(1, transport.getRequestCount());
+	}
+
+	/**
+	 * Test that the responses are delayed by the latency distributions.
+	 * 
+	 * @throws IOException means the test is failed
+	 * @throws JAXBException means the test is failed
+	 * @throws DiffbotException means the test is failed
+	 */
+	@Test
+	public final void testLatency() throws IOException, JAXBException, DiffbotException {
+		ReplayTransport transport = ReplayTransport.fromFixtures();
+		transport.setLatency(LatencyDistribution.fixed(50, TimeUnit.MILLISECONDS));
+		Diffbot diffbot = new Diffbot(transport, new GsonFactory(), "token");
+		long start = System.nanoTime();
+		diffbot.article().analyze(articleTestURL).execute();
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+
+		LatencyDistribution uniform = LatencyDistribution.uniform(10, 20, TimeUnit.MILLISECONDS, 1);
+		LatencyDistribution logNormal = LatencyDistribution.logNormal(100, TimeUnit.MILLISECONDS, 0.5, 1);
+		long above = 0;
+		for (int i = 0; i < 1000; i++) {
+			long latency = uniform.nextMillis();
+			assertTrue(latency >= 10 && latency <= 20);
+			if (logNormal.nextMillis() > 100) {
+				above++;
+			}
+		}
+		assertTrue("Half of the log-normal latencies should be above the median", above > 400 && above < 600);
+	}
+
+}
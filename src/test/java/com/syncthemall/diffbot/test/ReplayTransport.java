@@ -0,0 +1,216 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.test;
+
+import static com.syncthemall.diffbot.Constants.BATCH_URL;
+import static com.syncthemall.diffbot.Constants.HTTP_OK;
+import static com.syncthemall.diffbot.Constants.TOKEN;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.json.GenericJson;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+
+/**
+ * {@code HttpTransport} answering the Diffbot requests with recorded responses, without network access. The direct
+ * calls and the sub-requests of the batch calls are matched by relative URL: first the whole relative URL (path and
+ * query, without the developer token), then the path only. The requests that match no recorded response are answered
+ * with a Diffbot 404 error.
+ * <p>
+ * {@link #fromFixtures()} creates a transport answering every API with the recorded responses of the test resources.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public class ReplayTransport extends MockHttpTransport {
+
+	/** Path of the Article API. */
+	public static final String ARTICLE_PATH = "/v2/article";
+	/** Path of the Image API. */
+	public static final String IMAGE_PATH = "/v2/image";
+	/** Path of the Product API. */
+	public static final String PRODUCT_PATH = "/v2/product";
+	/** Path of the Classifier API. */
+	public static final String CLASSIFIER_PATH = "/v2/analyze";
+	/** Path of the Frontpage API. */
+	public static final String FRONTPAGE_PATH = "/api/frontpage";
+
+	private static final String JSON = "application/json; charset=UTF-8";
+	private static final String XML = "text/xml; charset=UTF-8";
+	private static final String NOT_FOUND = "{\"error\":\"Could not download page (404)\",\"errorCode\":404}";
+	private static final int HTTP_NOT_FOUND = 404;
+
+	private final Map<String, Recorded> responses = new ConcurrentHashMap<String, Recorded>();
+	private final JsonFactory jsonFactory = new GsonFactory();
+	private final AtomicInteger requestCount = new AtomicInteger();
+	private volatile LatencyDistribution latency = LatencyDistribution.NONE;
+	private volatile LatencyDistribution batchLatency = LatencyDistribution.NONE;
+
+	/**
+	 * Creates a {@code ReplayTransport} with no recorded response.
+	 */
+	public ReplayTransport() {
+		super();
+	}
+
+	/**
+	 * @return a {@code ReplayTransport} answering the Article, Image, Product, Classifier and Frontpage APIs with the
+	 *         recorded responses of the test resources
+	 * @throws IOException if a recorded response cannot be read
+	 */
+	public static ReplayTransport fromFixtures() throws IOException {
+		ReplayTransport transport = new ReplayTransport();
+		transport.record(ARTICLE_PATH, HTTP_OK, OfflineTest.fixture("article.json"));
+		transport.record(IMAGE_PATH, HTTP_OK, OfflineTest.fixture("images.json"));
+		transport.record(PRODUCT_PATH, HTTP_OK, OfflineTest.fixture("products.json"));
+		transport.record(CLASSIFIER_PATH, HTTP_OK, OfflineTest.fixture("classified.json"));
+		transport.record(FRONTPAGE_PATH, HTTP_OK, OfflineTest.fixture("frontpage.xml"));
+		return transport;
+	}
+
+	/**
+	 * Records the response of a relative URL. The Frontpage responses with a 200 status code are served as XML, the
+	 * others as JSON.
+	 * 
+	 * @param relativeUrl a path, or a path and query, e.g. {@code /v2/article}
+	 * @param statusCode the HTTP status code of the response, or of the batch sub-response
+	 * @param body the body of the response
+	 * @return this {@code ReplayTransport}
+	 */
+	public final ReplayTransport record(final String relativeUrl, final int statusCode, final String body) {
+		responses.put(relativeUrl, new Recorded(statusCode, body));
+		return this;
+	}
+
+	/**
+	 * @param latency the latency of the direct calls (default none)
+	 * @return this {@code ReplayTransport}
+	 */
+	public final ReplayTransport setLatency(final LatencyDistribution latency) {
+		this.latency = latency;
+		return this;
+	}
+
+	/**
+	 * @param batchLatency the latency of the batch calls (default none)
+	 * @return this {@code ReplayTransport}
+	 */
+	public final ReplayTransport setBatchLatency(final LatencyDistribution batchLatency) {
+		this.batchLatency = batchLatency;
+		return this;
+	}
+
+	/**
+	 * @return the number of HTTP requests received, direct and batch
+	 */
+	public final int getRequestCount() {
+		return requestCount.get();
+	}
+
+	@Override
+	public LowLevelHttpRequest buildRequest(final String method, final String url) throws IOException {
+		requestCount.incrementAndGet();
+		final boolean batch = url.startsWith(BATCH_URL);
+		final MockLowLevelHttpResponse response;
+		if (batch) {
+			response = new MockLowLevelHttpResponse().setContentType(JSON).setContent(batchContent(url));
+		} else {
+			GenericUrl genericUrl = new GenericUrl(url);
+			genericUrl.remove(TOKEN);
+			Recorded recorded = lookup(genericUrl.buildRelativeUrl(), genericUrl.getRawPath());
+			response = new MockLowLevelHttpResponse().setStatusCode(recorded.statusCode)
+					.setContentType(recorded.isXml(genericUrl.getRawPath()) ? XML : JSON).setContent(recorded.body);
+		}
+		return new MockLowLevelHttpRequest(url) {
+			@Override
+			public LowLevelHttpResponse execute() throws IOException {
+				sleep(batch ? batchLatency : latency);
+				return response;
+			}
+		}.setResponse(response);
+	}
+
+	private Recorded lookup(final String relativeUrl, final String path) {
+		Recorded recorded = responses.get(relativeUrl);
+		if (recorded == null) {
+			recorded = responses.get(path);
+		}
+		return recorded == null ? new Recorded(HTTP_NOT_FOUND, NOT_FOUND) : recorded;
+	}
+
+	private String batchContent(final String url) throws IOException {
+		List<GenericJson> result = new ArrayList<GenericJson>();
+		String batch = new GenericUrl(url).getFirst("batch").toString();
+		for (Object request : jsonFactory.createJsonParser(batch).parseArray(ArrayList.class, GenericJson.class)) {
+			String relativeUrl = ((GenericJson) request).get("relative_url").toString();
+			int query = relativeUrl.indexOf('?');
+			Recorded recorded = lookup(relativeUrl, query < 0 ? relativeUrl : relativeUrl.substring(0, query));
+			GenericJson response = new GenericJson();
+			response.set("code", recorded.statusCode).set("body", recorded.body).set("relative_url", relativeUrl);
+			result.add(response);
+		}
+		return jsonFactory.toString(result);
+	}
+
+	private static void sleep(final LatencyDistribution distribution) throws IOException {
+		long millis = distribution.nextMillis();
+		if (millis > 0) {
+			try {
+				Thread.sleep(millis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while simulating the latency", e);
+			}
+		}
+	}
+
+	/**
+	 * A recorded response.
+	 */
+	private static final class Recorded {
+
+		private final int statusCode;
+		private final String body;
+
+		private Recorded(final int statusCode, final String body) {
+			this.statusCode = statusCode;
+			this.body = body;
+		}
+
+		private boolean isXml(final String path) {
+			return statusCode == HTTP_OK && path.startsWith(FRONTPAGE_PATH);
+		}
+	}
+
+}
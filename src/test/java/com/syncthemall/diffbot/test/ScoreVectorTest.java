@@ -0,0 +1,119 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.google.api.client.json.gson.GsonFactory;
+import com.syncthemall.diffbot.codec.JsonFactoryCodec;
+import com.syncthemall.diffbot.codec.Projection;
+import com.syncthemall.diffbot.codec.UnknownKeys;
+import com.syncthemall.diffbot.model.PageType;
+import com.syncthemall.diffbot.model.article.Article;
+import com.syncthemall.diffbot.model.article.Categories;
+import com.syncthemall.diffbot.model.article.Category;
+import com.syncthemall.diffbot.model.classifier.Classified;
+import com.syncthemall.diffbot.model.classifier.Types;
+
+/**
+ * Test for the {@code ScoreVector} elements.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public class ScoreVectorTest extends OfflineTest {
+
+	/**
+	 * Test the vector access to the {@code Categories} of an {@code Article}.
+	 * 
+	 * @throws IOException means the test is failed
+	 */
+	@Test
+	public final void testCategories() throws IOException {
+		JsonFactoryCodec codec = new JsonFactoryCodec(new GsonFactory());
+		Categories categories = codec.parse(fixture("article.json"), Article.class, Projection.ALL).getCategories();
+
+		assertEquals(Category.values().length, categories.scores().length);
+		assertSame(categories.scores(), categories.scores());
+		assertEquals(0.83f, categories.getPolitics(), 0f);
+		assertEquals(categories.getPolitics(), categories.scores()[Category.POLITICS.ordinal()], 0f);
+		assertEquals(Category.POLITICS, categories.argmax());
+		assertEquals(Arrays.asList(Category.POLITICS, Category.BUSINESS_FINANCE, Category.LAW_CRIME),
+				categories.topK(3));
+		assertEquals(4, categories.topK(10).size());
+		assertEquals(0, categories.topK(0).size());
+
+		float[] matrix = new float[Category.values().length * 2];
+		categories.copyTo(matrix, Category.values().length);
+		assertEquals(0.83f, matrix[Category.values().length + Category.POLITICS.ordinal()], 0f);
+	}
+
+	/**
+	 * Test that the {@code Types} of a {@code Classified} are indexed by {@code PageType} and kept by a strict codec.
+	 * 
+	 * @throws IOException means the test is failed
+	 */
+	@Test
+	public final void testTypes() throws IOException {
+		JsonFactoryCodec codec = new JsonFactoryCodec(new GsonFactory());
+		codec.setUnknownKeys(UnknownKeys.DISCARD);
+		Types types = codec.parse(fixture("classified.json"), Classified.class, Projection.ALL).getStats()
+				.getTypes();
+
+		assertEquals(PageType.values().length, types.scores().length);
+		assertEquals(0.92f, types.score(PageType.ARTICLE), 0f);
+		assertEquals(0.02f, types.getReviewslist(), 0f);
+		assertEquals(PageType.ARTICLE, types.argmax());
+		assertEquals(Arrays.asList(PageType.ARTICLE, PageType.FRONTPAGE), types.topK(2));
+		assertNull(new Types().argmax());
+	}
+
+	/**
+	 * Test that the scores are serialized and copied with their element.
+	 * 
+	 * @throws IOException means the test is failed
+	 */
+	@Test
+	public final void testSerializeAndClone() throws IOException {
+		JsonFactoryCodec codec = new JsonFactoryCodec(new GsonFactory());
+		Categories categories = codec.parse(fixture("article.json"), Article.class, Projection.ALL).getCategories();
+		Categories parsed = codec.parse(categories.toString().substring("Categories - ".length()), Categories.class,
+				Projection.ALL);
+		Categories clone = (Categories) categories.clone();
+
+		assertArrayEquals(categories.scores(), parsed.scores(), 0f);
+		assertEquals(categories, parsed);
+		assertArrayEquals(categories.scores(), clone.scores(), 0f);
+		clone.set(Category.POLITICS.getKey(), 0);
+		assertEquals(0.83f, categories.getPolitics(), 0f);
+		assertEquals(Category.BUSINESS_FINANCE, clone.argmax());
+	}
+
+}
@@ -0,0 +1,98 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.syncthemall.diffbot.BatchSimulator;
+import com.syncthemall.diffbot.BatchSimulator.Policy;
+import com.syncthemall.diffbot.BatchSimulator.Report;
+import com.syncthemall.diffbot.DiffbotRequest.ApiType;
+
+/**
+ * Test for the {@code BatchSimulator}, simulating the batch engine on a virtual clock.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public class SimulatorTest {
+
+	private static final int REQUESTS = 2000;
+
+	/**
+	 * Test that requests arriving slower than the batch calls are answered are mostly sent alone as soon as they are
+	 * got.
+	 */
+	@Test
+	public final void testLowLoad() {
+		BatchSimulator simulator = simulator(0.5);
+		Report report = simulator.run(new Policy(50, 1, 0, TimeUnit.MILLISECONDS), REQUESTS);
+		assertEquals(REQUESTS, report.getRequests());
+		assertTrue(report.getCalls() > REQUESTS * 0.95);
+		assertEquals(0, report.getQueueTime().getPercentile(90));
+		assertTrue(report.getCompletion().getPercentile(50) >= TimeUnit.MILLISECONDS.toNanos(100));
+		assertTrue(report.getSimulatedSeconds() > 1000);
+	}
+
+	/**
+	 * Test that under load the requests are grouped in calls of at most {@code maxBatchRequest} requests, and that
+	 * concurrent batch calls drain the queue faster.
+	 */
+	@Test
+	public final void testHighLoad() {
+		BatchSimulator simulator = simulator(200);
+		Report sequential = simulator.run(new Policy(10, 1, 0, TimeUnit.MILLISECONDS), REQUESTS);
+		assertEquals(REQUESTS, sequential.getRequests());
+		assertTrue(sequential.getCalls() >= REQUESTS / 10);
+		assertTrue(sequential.getCalls() < REQUESTS / 5);
+
+		Report concurrent = simulator.run(new Policy(10, 4, 0, TimeUnit.MILLISECONDS), REQUESTS);
+		assertEquals(REQUESTS, concurrent.getRequests());
+		assertTrue(concurrent.getThroughput() > 2 * sequential.getThroughput());
+		assertTrue(concurrent.getCompletion().getPercentile(99) < sequential.getCompletion().getPercentile(99));
+	}
+
+	/**
+	 * Test that a simulation is reproducible with the same seed.
+	 */
+	@Test
+	public final void testReproducible() {
+		Policy policy = new Policy(25, 2, 50, TimeUnit.MILLISECONDS);
+		Report first = simulator(50).run(policy, REQUESTS);
+		Report second = simulator(50).run(policy, REQUESTS);
+		assertEquals(first.getCalls(), second.getCalls());
+		assertEquals(first.getSimulatedSeconds(), second.getSimulatedSeconds(), 0);
+		assertEquals(first.getCompletion().getSum(), second.getCompletion().getSum());
+	}
+
+	private static BatchSimulator simulator(final double rate) {
+		return new BatchSimulator(1).setArrivalRate(rate)
+				.setApi(ApiType.ARTICLE, 3, LatencyDistribution.fixed(100, TimeUnit.MILLISECONDS))
+				.setApi(ApiType.IMAGE, 1, LatencyDistribution.uniform(100, 200, TimeUnit.MILLISECONDS, 1));
+	}
+
+}
@@ -0,0 +1,146 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.gson.GsonFactory;
+import com.syncthemall.diffbot.Diffbot;
+import com.syncthemall.diffbot.Future;
+import com.syncthemall.diffbot.exception.DiffbotAPIException;
+import com.syncthemall.diffbot.exception.DiffbotException;
+import com.syncthemall.diffbot.model.article.Article;
+import com.syncthemall.diffbot.model.frontpage.Frontpage;
+
+/**
+ * Test of the client against the local {@code DiffbotServer} stand-in, through a real HTTP stack.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public class StandInTest extends OfflineTest {
+
+	private DiffbotServer server;
+	private Diffbot diffbot;
+
+	/**
+	 * Starts the stand-in and creates a client calling it.
+	 * 
+	 * @throws IOException means the test is failed
+	 * @throws JAXBException means the test is failed
+	 */
+	@Before
+	public final void setUp() throws IOException, JAXBException {
+		server = DiffbotServer.fromFixtures().start();
+		diffbot = new Diffbot(new NetHttpTransport(), new GsonFactory(), "token");
+		diffbot.setBaseUrl(server.getBaseUrl() + "/");
+	}
+
+	/**
+	 * Stops the stand-in.
+	 */
+	@After
+	public final void tearDown() {
+		server.stop();
+	}
+
+	/**
+	 * Test that the direct and batch calls are sent to the base URL.
+	 * 
+	 * @throws DiffbotException means the test is failed
+	 */
+	@Test
+	public final void testBaseUrl() throws DiffbotException {
+		assertEquals(server.getBaseUrl(), diffbot.getBaseUrl());
+		server.setBody(ReplayTransport.ARTICLE_PATH, "{\"type\":\"article\",\"url\":\"{url}\",\"title\":\"Stand-in\"}");
+		Article article = diffbot.article().analyze(articleTestURL).execute();
+		assertEquals(articleTestURL, article.getUrl());
+		assertEquals(2, diffbot.images().analyze(articleTestURL).execute().getImages().size());
+
+		Future<Article> queued = diffbot.article().analyze("http://www.example.com/queued").queue();
+		Future<Frontpage> frontpage = diffbot.frontpage().analyze(articleTestURL).queue();
+		assertEquals("http://www.example.com/queued", queued.get().getUrl());
+		assertEquals(3, frontpage.get().getItems().size());
+		assertEquals(3, server.getRequestCount());
+		assertEquals(1, server.getBatchCount());
+		assertEquals(4, server.getSubRequestCount());
+	}
+
+	/**
+	 * Test the API errors and the rate limit of the stand-in.
+	 * 
+	 * @throws DiffbotException means the test is failed
+	 */
+	@Test
+	public final void testErrors() throws DiffbotException {
+		server.setErrorRate(1);
+		try {
+			diffbot.products().analyze(articleTestURL).execute();
+			fail("A DiffbotAPIException should be thrown");
+		} catch (DiffbotAPIException e) {
+			assertEquals(500, e.getErrorCode());
+		}
+		server.setErrorRate(0).setRateLimit(1);
+		diffbot.classifier().analyze("http://www.example.com/first").execute();
+		try {
+			diffbot.classifier().analyze("http://www.example.com/second").execute();
+			fail("A DiffbotAPIException should be thrown");
+		} catch (DiffbotAPIException e) {
+			assertEquals(429, e.getErrorCode());
+		}
+		assertEquals(1, server.getRejectedCount());
+		assertEquals(1, server.getErrorCount());
+	}
+
+	/**
+	 * Test that the load driver reports every request, with their latency.
+	 * 
+	 * @throws InterruptedException means the test is failed
+	 */
+	@Test
+	public final void testLoadDriver() throws InterruptedException {
+		server.setLatency(LatencyDistribution.fixed(5, TimeUnit.MILLISECONDS));
+		LoadDriver.Report direct = new LoadDriver(diffbot, 4).run(40);
+		assertEquals(40, direct.getLatencies().getCount());
+		assertEquals(0, direct.getErrors());
+		assertTrue(direct.getLatencies().getPercentile(50) >= TimeUnit.MILLISECONDS.toNanos(5));
+		assertTrue(direct.getThroughput() > 0);
+
+		LoadDriver.Report batch = new LoadDriver(diffbot, 4).setBatch(true).run(40);
+		assertEquals(0, batch.getErrors());
+		assertEquals(40, server.getSubRequestCount() - 40);
+		assertTrue("The queued requests should share batch calls", server.getBatchCount() <= 40);
+	}
+
+}
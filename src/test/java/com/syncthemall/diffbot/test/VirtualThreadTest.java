@@ -0,0 +1,223 @@
+/**
+ * The MIT License
+ * Copyright (c) 2013 Pierre-Denis Vanduynslager
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.syncthemall.diffbot.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBException;
+
+import org.junit.Test;
+
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.json.gson.GsonFactory;
+import com.syncthemall.diffbot.Diffbot;
+import com.syncthemall.diffbot.Future;
+import com.syncthemall.diffbot.model.article.Article;
+
+/**
+ * Test for the locks of the batch engine and for the virtual-thread mode. The virtual-thread tests only run on Java 21
+ * or later.
+ * 
+ * @author Pierre-Denis Vanduynslager <pierre.denis.vanduynslager@gmail.com>
+ */
+public class VirtualThreadTest extends OfflineTest {
+
+	private static final String AUTHOR = "Zach Carter";
+
+	/**
+	 * Test that the virtual-thread mode cannot be enabled before Java 21.
+	 * 
+	 * @throws JAXBException means the test is failed
+	 */
+	@Test
+	public final void testUnsupported() throws JAXBException {
+		assumeFalse(Diffbot.isVirtualThreadsSupported());
+		Diffbot diffbot = new Diffbot(new ReplayTransport(), new GsonFactory(), "token");
+		try {
+			diffbot.setVirtualThreads(true);
+			fail("An UnsupportedOperationException should be thrown");
+		} catch (UnsupportedOperationException e) {
+			assertFalse(diffbot.isVirtualThreads());
+		}
+		diffbot.setVirtualThreads(false);
+	}
+
+	/**
+	 * Test that futures queued and got concurrently by several threads are each sent once.
+	 * 
+	 * @throws Exception means the test is failed
+	 */
+	@Test
+	public final void testConcurrentGets() throws Exception {
+		ReplayTransport transport = ReplayTransport.fromFixtures();
+		transport.setBatchLatency(LatencyDistribution.fixed(5, TimeUnit.MILLISECONDS));
+		final Diffbot diffbot = new Diffbot(transport, new GsonFactory(), "token");
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<java.util.concurrent.Future<String>> results = run(executor, 200, new Task() {
+				@Override
+				public String call(final int i) throws Exception {
+					return diffbot.article().analyze(articleTestURL + "?page=" + i).queue().get().getAuthor();
+				}
+			});
+			for (java.util.concurrent.Future<String> result : results) {
+				assertEquals(AUTHOR, result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertTrue(diffbot.getFutures().isEmpty());
+		assertTrue(transport.getRequestCount() >= 200 / diffbot.getMaxBatchRequest());
+	}
+
+	/**
+	 * Test that the concurrent batch calls are made on virtual threads.
+	 * 
+	 * @throws Exception means the test is failed
+	 */
+	@Test
+	public final void testVirtualBatchCalls() throws Exception {
+		assumeTrue(Diffbot.isVirtualThreadsSupported());
+		final Set<Boolean> virtual = Collections.newSetFromMap(new ConcurrentHashMap<Boolean, Boolean>());
+		ReplayTransport transport = new ReplayTransport() {
+			@Override
+			public LowLevelHttpRequest buildRequest(final String method, final String url) throws IOException {
+				virtual.add(isVirtual(Thread.currentThread()));
+				return super.buildRequest(method, url);
+			}
+		};
+		transport.record(ReplayTransport.ARTICLE_PATH, 200, fixture("article.json"));
+		Diffbot diffbot = new Diffbot(transport, new GsonFactory(), "token");
+		diffbot.setVirtualThreads(true);
+		assertTrue(diffbot.isVirtualThreads());
+		diffbot.setMaxBatchRequest(10);
+		diffbot.setConcurrentBatchRequest(4);
+		List<Future<Article>> futures = new ArrayList<Future<Article>>();
+		for (int i = 0; i < 40; i++) {
+			futures.add(diffbot.article().analyze(articleTestURL + "?page=" + i).queue());
+		}
+		for (Future<Article> future : futures) {
+			assertEquals(AUTHOR, future.get().getAuthor());
+		}
+		assertEquals(4, transport.getRequestCount());
+		assertEquals(Collections.singleton(true), virtual);
+		diffbot.setVirtualThreads(false);
+		assertFalse(diffbot.isVirtualThreads());
+	}
+
+	/**
+	 * Test that thousands of virtual threads waiting on the batch lock don't pin their carrier threads: the direct
+	 * calls made meanwhile by other virtual threads complete before the batches are drained.
+	 * 
+	 * @throws Exception means the test is failed
+	 */
+	@Test
+	public final void testManyVirtualWaits() throws Exception {
+		assumeTrue(Diffbot.isVirtualThreadsSupported());
+		ReplayTransport transport = ReplayTransport.fromFixtures();
+		transport.setLatency(LatencyDistribution.fixed(100, TimeUnit.MILLISECONDS));
+		transport.setBatchLatency(LatencyDistribution.fixed(20, TimeUnit.MILLISECONDS));
+		final Diffbot diffbot = new Diffbot(transport, new GsonFactory(), "token");
+		diffbot.setVirtualThreads(true);
+		final int waits = 5000;
+		ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+				.invoke(null);
+		try {
+			List<java.util.concurrent.Future<String>> batched = run(executor, waits, new Task() {
+				@Override
+				public String call(final int i) throws Exception {
+					return diffbot.article().analyze(articleTestURL + "?batch=" + i).queue().get().getAuthor();
+				}
+			});
+			Thread.sleep(100);
+			List<java.util.concurrent.Future<String>> direct = run(executor, waits, new Task() {
+				@Override
+				public String call(final int i) throws Exception {
+					return diffbot.article().analyze(articleTestURL + "?direct=" + i).execute().getAuthor();
+				}
+			});
+			for (java.util.concurrent.Future<String> result : direct) {
+				assertEquals(AUTHOR, result.get());
+			}
+			int pending = 0;
+			for (java.util.concurrent.Future<String> result : batched) {
+				pending += result.isDone() ? 0 : 1;
+			}
+			assertTrue("The direct calls should not wait for the batches", pending > 0);
+			for (java.util.concurrent.Future<String> result : batched) {
+				assertEquals(AUTHOR, result.get());
+			}
+		} finally {
+			executor.shutdown();
+			diffbot.setVirtualThreads(false);
+		}
+	}
+
+	/**
+	 * A task of a concurrent run.
+	 */
+	private interface Task {
+		String call(int i) throws Exception;
+	}
+
+	private static List<java.util.concurrent.Future<String>> run(final ExecutorService executor, final int count,
+			final Task task) throws InterruptedException, ExecutionException {
+		List<java.util.concurrent.Future<String>> results = new ArrayList<java.util.concurrent.Future<String>>();
+		for (int i = 0; i < count; i++) {
+			final int index = i;
+			results.add(executor.submit(new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					return task.call(index);
+				}
+			}));
+		}
+		return results;
+	}
+
+	private static boolean isVirtual(final Thread thread) {
+		try {
+			return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+		} catch (ReflectiveOperationException e) {
+			return false;
+		}
+	}
+
+}